@@ -0,0 +1,101 @@
+package com.vr.miniautorizador.carga;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Chamadas HTTP à API do autorizador. As respostas são devolvidas como vieram; quem chama decide o
+ * que é esperado.
+ */
+final class ClienteAutorizador {
+
+    static final String SENHA = "1234";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Resposta de uma requisição: o código HTTP e o corpo.
+     */
+    static final class Resposta {
+
+        final int status;
+        final String corpo;
+
+        private Resposta(int status, String corpo) {
+            this.status = status;
+            this.corpo = corpo;
+        }
+
+        /**
+         * Saldo em centavos de uma resposta {@code 200} de {@code GET /cartoes/{numeroCartao}}.
+         */
+        long saldoCentavos() {
+            return new BigDecimal(corpo.trim()).movePointRight(2).longValueExact();
+        }
+    }
+
+    private final String url;
+    private final HttpClient http;
+
+    ClienteAutorizador(String url) {
+        this.url = url;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                // As respostas são tratadas na própria thread que enviou a requisição
+                .executor(Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "carga-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    Resposta criar(String numeroCartao) throws IOException, InterruptedException {
+        return enviar(post("/cartoes", "application/json",
+                "{\"numeroCartao\":\"" + numeroCartao + "\",\"senha\":\"" + SENHA + "\"}"));
+    }
+
+    /**
+     * Cria os cartões por {@code POST /cartoes/lote}; cartões já existentes são mantidos.
+     */
+    Resposta criarLote(List<String> numerosCartao) throws IOException, InterruptedException {
+        StringBuilder corpo = new StringBuilder(numerosCartao.size() * 50);
+        for (String numero : numerosCartao) {
+            corpo.append("{\"numeroCartao\":\"").append(numero).append("\",\"senha\":\"").append(SENHA).append("\"}\n");
+        }
+        return enviar(post("/cartoes/lote", "application/x-ndjson", corpo.toString()));
+    }
+
+    Resposta saldo(String numeroCartao) throws IOException, InterruptedException {
+        return enviar(HttpRequest.newBuilder(URI.create(url + "/cartoes/" + numeroCartao))
+                .timeout(TIMEOUT)
+                .GET()
+                .build());
+    }
+
+    Resposta debitar(String numeroCartao, long centavos) throws IOException, InterruptedException {
+        return enviar(post("/transacoes", "application/json",
+                "{\"numeroCartao\":\"" + numeroCartao + "\",\"senhaCartao\":\"" + SENHA
+                        + "\",\"valor\":" + BigDecimal.valueOf(centavos, 2).toPlainString() + "}"));
+    }
+
+    private HttpRequest post(String caminho, String tipo, String corpo) {
+        return HttpRequest.newBuilder(URI.create(url + caminho))
+                .timeout(TIMEOUT)
+                .header("Content-Type", tipo)
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private Resposta enviar(HttpRequest requisicao) throws IOException, InterruptedException {
+        HttpResponse<String> resposta = http.send(requisicao, HttpResponse.BodyHandlers.ofString());
+        return new Resposta(resposta.statusCode(), resposta.body());
+    }
+}
@@ -0,0 +1,101 @@
+package com.vr.miniautorizador.carga;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parâmetros do teste de carga, lidos das propriedades de sistema {@code carga.*} (ver o perfil
+ * {@code carga} do {@code pom.xml}).
+ */
+final class ConfiguracaoCarga {
+
+    enum Modo {
+        /** Cada cliente envia a próxima requisição assim que recebe a resposta da anterior. */
+        FECHADO,
+        /** Chegadas de Poisson a uma taxa fixa, independentes das respostas. */
+        ABERTO
+    }
+
+    /** Aplicação já em execução; vazio para iniciar a aplicação no próprio processo, sobre H2. */
+    final String url;
+    final String motor;
+    final Modo modo;
+    /** Clientes simultâneos no modo fechado; requisições em andamento no máximo no modo aberto. */
+    final int clientes;
+    /** Requisições por segundo no modo aberto. */
+    final double taxa;
+    final Duration aquecimento;
+    final Duration duracao;
+    final int cartoes;
+    /** Expoente da popularidade dos cartões; {@code 0} sorteia os cartões uniformemente. */
+    final double zipf;
+    final Map<Operacao, Integer> mix;
+    final long valorMaximoCentavos;
+    final long semente;
+    final Duration sloP99;
+    final double sloErros;
+    final double sloVazao;
+    final String relatorio;
+
+    private ConfiguracaoCarga() {
+        url = propriedade("carga.url", "");
+        motor = propriedade("carga.motor", "pessimista");
+        modo = Modo.valueOf(propriedade("carga.modo", "fechado").toUpperCase(Locale.ROOT));
+        clientes = Integer.parseInt(propriedade("carga.clientes", "16"));
+        taxa = Double.parseDouble(propriedade("carga.taxa", "200"));
+        aquecimento = DurationStyle.detectAndParse(propriedade("carga.aquecimento", "10s"));
+        duracao = DurationStyle.detectAndParse(propriedade("carga.duracao", "30s"));
+        cartoes = Integer.parseInt(propriedade("carga.cartoes", "1000"));
+        zipf = Double.parseDouble(propriedade("carga.zipf", "1.0"));
+        mix = mix(propriedade("carga.mix", "criar=5,saldo=25,debito=70"));
+        valorMaximoCentavos = new BigDecimal(propriedade("carga.valor-maximo", "20.00")).movePointRight(2).longValueExact();
+        semente = Long.parseLong(propriedade("carga.semente", "42"));
+        sloP99 = DurationStyle.detectAndParse(propriedade("carga.slo.p99", "100ms"));
+        sloErros = Double.parseDouble(propriedade("carga.slo.erros", "0.001"));
+        sloVazao = Double.parseDouble(propriedade("carga.slo.vazao", "0"));
+        relatorio = propriedade("carga.relatorio", "target/carga");
+
+        if (clientes <= 0 || cartoes <= 0 || taxa <= 0 || valorMaximoCentavos <= 0 || zipf < 0) {
+            throw new IllegalArgumentException("carga.clientes, carga.cartoes, carga.taxa e carga.valor-maximo devem ser positivos e carga.zipf não negativo");
+        }
+    }
+
+    static ConfiguracaoCarga doSistema() {
+        return new ConfiguracaoCarga();
+    }
+
+    /**
+     * Pesos no formato {@code criar=5,saldo=25,debito=70}; operações omitidas têm peso zero.
+     */
+    private static Map<Operacao, Integer> mix(String valor) {
+        Map<Operacao, Integer> pesos = new EnumMap<>(Operacao.class);
+        for (Operacao operacao : Operacao.values()) {
+            pesos.put(operacao, 0);
+        }
+        for (String parte : valor.split(",")) {
+            String[] chaveValor = parte.trim().split("=");
+            if (chaveValor.length != 2) {
+                throw new IllegalArgumentException("carga.mix inválido: " + valor);
+            }
+            int peso = Integer.parseInt(chaveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("carga.mix inválido: " + valor);
+            }
+            pesos.put(Operacao.valueOf(chaveValor[0].trim().toUpperCase(Locale.ROOT)), peso);
+        }
+        if (pesos.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("carga.mix sem nenhuma operação: " + valor);
+        }
+        return pesos;
+    }
+
+    private static String propriedade(String nome, String padrao) {
+        String valor = System.getProperty(nome);
+        return valor == null || valor.isBlank() ? padrao : valor.trim();
+    }
+}
@@ -0,0 +1,210 @@
+package com.vr.miniautorizador.carga;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Saldos dos cartões do teste vistos pelo cliente: o saldo inicial de cada um, a soma dos débitos
+ * autorizados ({@code 201}) e a dos débitos de resultado desconhecido (timeout, erro de conexão ou
+ * {@code 5xx}), que podem ou não ter sido aplicados. Ao final, confere com a API que nenhum saldo
+ * ficou negativo e que cada saldo caiu exatamente o que foi autorizado.
+ */
+final class ContabilidadeCartoes {
+
+    private static final int CARTOES_POR_LOTE = 1000;
+    private static final int VIOLACOES_LISTADAS = 20;
+
+    /**
+     * Resultado da conferência dos invariantes.
+     */
+    static final class Invariantes {
+
+        int cartoesConferidos;
+        int cartoesCriadosConferidos;
+        long saldosNegativosObservados;
+        long debitosAutorizadosCentavos;
+        long debitosIndeterminadosCentavos;
+        long reducaoSaldosCentavos;
+        final List<String> violacoes = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger totalViolacoes = new AtomicInteger();
+
+        boolean respeitados() {
+            return totalViolacoes.get() == 0;
+        }
+
+        int totalViolacoes() {
+            return totalViolacoes.get();
+        }
+
+        private void violacao(String descricao) {
+            if (totalViolacoes.incrementAndGet() <= VIOLACOES_LISTADAS) {
+                violacoes.add(descricao);
+            }
+        }
+    }
+
+    private final String[] numeros;
+    private final long[] saldosIniciais;
+    private final AtomicLongArray autorizados;
+    private final AtomicLongArray indeterminados;
+    private final LongAdder saldosNegativos = new LongAdder();
+    private final AtomicInteger proximoNovo = new AtomicInteger();
+    private final Queue<String> criados = new ConcurrentLinkedQueue<>();
+
+    private ContabilidadeCartoes(int cartoes) {
+        numeros = new String[cartoes];
+        for (int i = 0; i < cartoes; i++) {
+            numeros[i] = String.format("77%014d", i);
+        }
+        saldosIniciais = new long[cartoes];
+        autorizados = new AtomicLongArray(cartoes);
+        indeterminados = new AtomicLongArray(cartoes);
+    }
+
+    /**
+     * Cria os cartões do teste (os já existentes são mantidos, como numa segunda execução contra o
+     * mesmo banco) e lê o saldo inicial de cada um.
+     */
+    static ContabilidadeCartoes preparar(ClienteAutorizador cliente, int cartoes, int paralelismo)
+            throws IOException, InterruptedException {
+        ContabilidadeCartoes contabilidade = new ContabilidadeCartoes(cartoes);
+        for (int inicio = 0; inicio < cartoes; inicio += CARTOES_POR_LOTE) {
+            List<String> lote = List.of(contabilidade.numeros).subList(inicio, Math.min(cartoes, inicio + CARTOES_POR_LOTE));
+            ClienteAutorizador.Resposta resposta = cliente.criarLote(lote);
+            if (resposta.status != 200) {
+                throw new IllegalStateException("Falha ao criar os cartões: HTTP " + resposta.status + " " + resposta.corpo);
+            }
+        }
+        paraCada(cartoes, paralelismo, i -> {
+            ClienteAutorizador.Resposta resposta = cliente.saldo(contabilidade.numeros[i]);
+            if (resposta.status != 200) {
+                throw new IllegalStateException("Cartão " + contabilidade.numeros[i] + " sem saldo: HTTP " + resposta.status);
+            }
+            contabilidade.saldosIniciais[i] = resposta.saldoCentavos();
+        });
+        return contabilidade;
+    }
+
+    int cartoes() {
+        return numeros.length;
+    }
+
+    String numero(int cartao) {
+        return numeros[cartao];
+    }
+
+    /**
+     * Número para {@code POST /cartoes}, fora da faixa dos cartões do teste.
+     */
+    String novoNumero() {
+        return String.format("78%014d", proximoNovo.getAndIncrement());
+    }
+
+    void debitoAutorizado(int cartao, long centavos) {
+        autorizados.addAndGet(cartao, centavos);
+    }
+
+    void debitoIndeterminado(int cartao, long centavos) {
+        indeterminados.addAndGet(cartao, centavos);
+    }
+
+    void saldoObservado(long centavos) {
+        if (centavos < 0) {
+            saldosNegativos.increment();
+        }
+    }
+
+    void cartaoCriado(String numero) {
+        criados.add(numero);
+    }
+
+    /**
+     * Lê o saldo final de todos os cartões, depois de encerrada a carga.
+     */
+    Invariantes conferir(ClienteAutorizador cliente, int paralelismo) throws InterruptedException {
+        Invariantes invariantes = new Invariantes();
+        invariantes.saldosNegativosObservados = saldosNegativos.sum();
+        if (invariantes.saldosNegativosObservados > 0) {
+            invariantes.violacao(invariantes.saldosNegativosObservados + " consultas de saldo retornaram saldo negativo durante a carga");
+        }
+
+        LongAdder reducao = new LongAdder();
+        paraCada(numeros.length, paralelismo, i -> {
+            ClienteAutorizador.Resposta resposta = cliente.saldo(numeros[i]);
+            if (resposta.status != 200) {
+                invariantes.violacao(numeros[i] + ": HTTP " + resposta.status + " na consulta final");
+                return;
+            }
+            long saldo = resposta.saldoCentavos();
+            long esperado = saldosIniciais[i] - autorizados.get(i);
+            long indeterminado = indeterminados.get(i);
+            reducao.add(saldosIniciais[i] - saldo);
+            if (saldo < 0) {
+                invariantes.violacao(numeros[i] + ": saldo final negativo (" + saldo + " centavos)");
+            } else if (saldo > esperado || saldo < esperado - indeterminado) {
+                invariantes.violacao(numeros[i] + ": saldo final " + saldo + " centavos; esperado " + esperado
+                        + (indeterminado > 0 ? " menos até " + indeterminado + " de débitos sem resposta" : ""));
+            }
+        });
+
+        List<String> novos = new ArrayList<>(criados);
+        paraCada(novos.size(), paralelismo, i -> {
+            ClienteAutorizador.Resposta resposta = cliente.saldo(novos.get(i));
+            if (resposta.status != 200 || resposta.saldoCentavos() < 0) {
+                invariantes.violacao(novos.get(i) + ": cartão criado com HTTP " + resposta.status + " e saldo " + resposta.corpo);
+            }
+        });
+
+        invariantes.cartoesConferidos = numeros.length;
+        invariantes.cartoesCriadosConferidos = novos.size();
+        for (int i = 0; i < numeros.length; i++) {
+            invariantes.debitosAutorizadosCentavos += autorizados.get(i);
+            invariantes.debitosIndeterminadosCentavos += indeterminados.get(i);
+        }
+        invariantes.reducaoSaldosCentavos = reducao.sum();
+        if (invariantes.reducaoSaldosCentavos < invariantes.debitosAutorizadosCentavos
+                || invariantes.reducaoSaldosCentavos > invariantes.debitosAutorizadosCentavos + invariantes.debitosIndeterminadosCentavos) {
+            invariantes.violacao("Os saldos caíram " + invariantes.reducaoSaldosCentavos + " centavos; os débitos autorizados somam "
+                    + invariantes.debitosAutorizadosCentavos + " e os sem resposta " + invariantes.debitosIndeterminadosCentavos);
+        }
+        return invariantes;
+    }
+
+    private interface AcaoCartao {
+        void executar(int indice) throws IOException, InterruptedException;
+    }
+
+    private static void paraCada(int quantidade, int paralelismo, AcaoCartao acao) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(paralelismo);
+        try {
+            AtomicInteger proximo = new AtomicInteger();
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < paralelismo; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int i = proximo.getAndIncrement(); i < quantidade; i = proximo.getAndIncrement()) {
+                        acao.executar(i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao consultar os cartões do teste", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.vr.miniautorizador.carga;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Sorteia índices em {@code [0, n)} com probabilidade proporcional a {@code 1 / posto^expoente}.
+ * Os postos são distribuídos entre os índices por uma permutação da semente, para que os cartões
+ * mais populares não sejam os de números consecutivos (e, no motor {@code memoria} ou no cluster,
+ * não caiam todos no mesmo shard ou partição).
+ */
+final class DistribuicaoZipf {
+
+    private final double[] acumulada;
+    private final int[] indicePorPosto;
+
+    DistribuicaoZipf(int n, double expoente, long semente) {
+        acumulada = new double[n];
+        double soma = 0;
+        for (int posto = 0; posto < n; posto++) {
+            soma += 1 / Math.pow(posto + 1, expoente);
+            acumulada[posto] = soma;
+        }
+        for (int posto = 0; posto < n; posto++) {
+            acumulada[posto] /= soma;
+        }
+
+        indicePorPosto = new int[n];
+        for (int i = 0; i < n; i++) {
+            indicePorPosto[i] = i;
+        }
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+        for (int i = n - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int troca = indicePorPosto[i];
+            indicePorPosto[i] = indicePorPosto[j];
+            indicePorPosto[j] = troca;
+        }
+    }
+
+    int sortear(SplittableRandom aleatorio) {
+        int posto = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+        if (posto < 0) {
+            posto = Math.min(-posto - 1, acumulada.length - 1);
+        }
+        return indicePorPosto[posto];
+    }
+
+    /**
+     * Fração das requisições que vai para o cartão mais popular.
+     */
+    double probabilidadeMaisPopular() {
+        return acumulada[0];
+    }
+}
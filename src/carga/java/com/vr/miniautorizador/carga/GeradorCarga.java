@@ -0,0 +1,229 @@
+package com.vr.miniautorizador.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Envia as requisições do teste e mede a latência de cada uma.
+ *
+ * <p>No modo fechado, cada um dos {@code carga.clientes} clientes envia a próxima requisição assim
+ * que recebe a resposta da anterior, e a vazão é a que a aplicação consegue sustentar. No modo
+ * aberto, as requisições chegam a {@code carga.taxa} por segundo em instantes de um processo de
+ * Poisson, atendidas por até {@code carga.clientes} conexões; a latência é medida a partir do
+ * instante planejado, de modo que a espera por uma conexão livre quando a aplicação não acompanha
+ * a taxa também é contada.
+ *
+ * <p>A sequência de operações, cartões e valores depende apenas de {@code carga.semente}: cada
+ * cliente do modo fechado tem o seu gerador, e o modo aberto sorteia tudo numa única thread.
+ * Apenas as requisições planejadas depois do aquecimento entram nas medições; todas entram na
+ * contabilidade dos saldos.
+ */
+final class GeradorCarga {
+
+    private static final long LATENCIA_MAXIMA_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * Latências (em microssegundos) e desfechos por operação, no período medido.
+     */
+    static final class Medicoes {
+
+        final Map<Operacao, Histogram> latencias = new EnumMap<>(Operacao.class);
+        final Map<Operacao, Map<String, LongAdder>> desfechos = new EnumMap<>(Operacao.class);
+        final LongAdder erros = new LongAdder();
+        long duracaoNanos;
+
+        private Medicoes() {
+            for (Operacao operacao : Operacao.values()) {
+                latencias.put(operacao, new ConcurrentHistogram(LATENCIA_MAXIMA_MICROS, 3));
+                desfechos.put(operacao, new ConcurrentHashMap<>());
+            }
+        }
+
+        long total() {
+            return latencias.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        Map<String, Long> desfechos(Operacao operacao) {
+            Map<String, Long> contagem = new TreeMap<>();
+            desfechos.get(operacao).forEach((desfecho, quantidade) -> contagem.put(desfecho, quantidade.sum()));
+            return contagem;
+        }
+    }
+
+    private final ConfiguracaoCarga configuracao;
+    private final ClienteAutorizador cliente;
+    private final ContabilidadeCartoes contabilidade;
+    private final DistribuicaoZipf popularidade;
+    private final Operacao[] operacoes;
+    private final int[] pesosAcumulados;
+    private final Medicoes medicoes = new Medicoes();
+    private long inicioMedicao;
+    private long fimMedicao;
+
+    GeradorCarga(ConfiguracaoCarga configuracao, ClienteAutorizador cliente, ContabilidadeCartoes contabilidade) {
+        this.configuracao = configuracao;
+        this.cliente = cliente;
+        this.contabilidade = contabilidade;
+        this.popularidade = new DistribuicaoZipf(contabilidade.cartoes(), configuracao.zipf, configuracao.semente);
+        this.operacoes = Operacao.values();
+        this.pesosAcumulados = new int[operacoes.length];
+        int soma = 0;
+        for (int i = 0; i < operacoes.length; i++) {
+            soma += configuracao.mix.get(operacoes[i]);
+            pesosAcumulados[i] = soma;
+        }
+    }
+
+    DistribuicaoZipf popularidade() {
+        return popularidade;
+    }
+
+    Medicoes executar() throws InterruptedException {
+        long inicio = System.nanoTime();
+        inicioMedicao = inicio + configuracao.aquecimento.toNanos();
+        fimMedicao = inicioMedicao + configuracao.duracao.toNanos();
+        medicoes.duracaoNanos = fimMedicao - inicioMedicao;
+
+        if (configuracao.modo == ConfiguracaoCarga.Modo.FECHADO) {
+            executarFechado();
+        } else {
+            executarAberto(inicio);
+        }
+        return medicoes;
+    }
+
+    private void executarFechado() throws InterruptedException {
+        Thread[] clientes = new Thread[configuracao.clientes];
+        for (int i = 0; i < clientes.length; i++) {
+            SplittableRandom aleatorio = new SplittableRandom(configuracao.semente + i);
+            clientes[i] = new Thread(() -> {
+                while (System.nanoTime() < fimMedicao) {
+                    long planejado = System.nanoTime();
+                    executar(sortear(aleatorio), planejado);
+                }
+            }, "carga-cliente-" + i);
+            clientes[i].start();
+        }
+        for (Thread thread : clientes) {
+            thread.join();
+        }
+    }
+
+    private void executarAberto(long inicio) throws InterruptedException {
+        ThreadPoolExecutor conexoes = new ThreadPoolExecutor(configuracao.clientes, configuracao.clientes,
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        SplittableRandom aleatorio = new SplittableRandom(configuracao.semente);
+        double intervaloMedioNanos = TimeUnit.SECONDS.toNanos(1) / configuracao.taxa;
+        long planejado = inicio;
+        while (planejado < fimMedicao) {
+            long espera = planejado - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            Requisicao requisicao = sortear(aleatorio);
+            long instante = planejado;
+            conexoes.execute(() -> executar(requisicao, instante));
+            planejado += (long) (-Math.log(1 - aleatorio.nextDouble()) * intervaloMedioNanos);
+        }
+        encerrar(conexoes);
+    }
+
+    /**
+     * Aguarda as requisições já planejadas; as que não tiverem começado em um minuto são descartadas.
+     */
+    private static void encerrar(ExecutorService conexoes) throws InterruptedException {
+        conexoes.shutdown();
+        if (!conexoes.awaitTermination(1, TimeUnit.MINUTES)) {
+            conexoes.shutdownNow();
+            conexoes.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private Requisicao sortear(SplittableRandom aleatorio) {
+        int peso = aleatorio.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        int operacao = 0;
+        while (peso >= pesosAcumulados[operacao]) {
+            operacao++;
+        }
+        return new Requisicao(operacoes[operacao], popularidade.sortear(aleatorio),
+                1 + aleatorio.nextLong(configuracao.valorMaximoCentavos));
+    }
+
+    private void executar(Requisicao requisicao, long planejado) {
+        String desfecho;
+        boolean esperado;
+        try {
+            switch (requisicao.operacao) {
+                case CRIAR -> {
+                    String numero = contabilidade.novoNumero();
+                    ClienteAutorizador.Resposta resposta = cliente.criar(numero);
+                    if (resposta.status == 201) {
+                        contabilidade.cartaoCriado(numero);
+                    }
+                    desfecho = String.valueOf(resposta.status);
+                    esperado = resposta.status == 201 || resposta.status == 422;
+                }
+                case SALDO -> {
+                    ClienteAutorizador.Resposta resposta = cliente.saldo(contabilidade.numero(requisicao.cartao));
+                    if (resposta.status == 200) {
+                        contabilidade.saldoObservado(resposta.saldoCentavos());
+                    }
+                    desfecho = String.valueOf(resposta.status);
+                    esperado = resposta.status == 200;
+                }
+                default -> {
+                    ClienteAutorizador.Resposta resposta = cliente.debitar(contabilidade.numero(requisicao.cartao), requisicao.centavos);
+                    esperado = resposta.status == 201 || resposta.status == 422;
+                    if (resposta.status == 201) {
+                        contabilidade.debitoAutorizado(requisicao.cartao, requisicao.centavos);
+                    } else if (!esperado) {
+                        contabilidade.debitoIndeterminado(requisicao.cartao, requisicao.centavos);
+                    }
+                    desfecho = esperado ? resposta.status + " " + resposta.corpo : String.valueOf(resposta.status);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            if (requisicao.operacao == Operacao.DEBITO) {
+                contabilidade.debitoIndeterminado(requisicao.cartao, requisicao.centavos);
+            }
+            desfecho = e.getClass().getSimpleName();
+            esperado = false;
+        }
+
+        long fim = System.nanoTime();
+        if (planejado >= inicioMedicao && planejado < fimMedicao) {
+            medicoes.latencias.get(requisicao.operacao)
+                    .recordValue(Math.min(LATENCIA_MAXIMA_MICROS, Math.max(0, (fim - planejado) / 1000)));
+            medicoes.desfechos.get(requisicao.operacao).computeIfAbsent(desfecho, d -> new LongAdder()).increment();
+            if (!esperado) {
+                medicoes.erros.increment();
+            }
+        }
+    }
+
+    private static final class Requisicao {
+
+        final Operacao operacao;
+        final int cartao;
+        final long centavos;
+
+        Requisicao(Operacao operacao, int cartao, long centavos) {
+            this.operacao = operacao;
+            this.cartao = cartao;
+            this.centavos = centavos;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.vr.miniautorizador.carga;
+
+/**
+ * Requisições geradas pelo teste de carga.
+ */
+enum Operacao {
+    /** {@code POST /cartoes} com um número ainda não usado pela execução. */
+    CRIAR,
+    /** {@code GET /cartoes/{numeroCartao}}. */
+    SALDO,
+    /** {@code POST /transacoes}. */
+    DEBITO
+}
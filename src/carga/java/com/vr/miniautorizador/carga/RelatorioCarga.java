@@ -0,0 +1,163 @@
+package com.vr.miniautorizador.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Vazão, percentis de latência, desfechos e invariantes de uma execução, avaliados contra os SLOs
+ * ({@code carga.slo.*}). Impresso na saída padrão e gravado em JSON em {@code carga.relatorio}.
+ */
+final class RelatorioCarga {
+
+    private static final double[] PERCENTIS = {50, 90, 99, 99.9};
+
+    private final ConfiguracaoCarga configuracao;
+    private final String url;
+    private final GeradorCarga.Medicoes medicoes;
+    private final ContabilidadeCartoes.Invariantes invariantes;
+    private final double probabilidadeMaisPopular;
+
+    RelatorioCarga(ConfiguracaoCarga configuracao, String url, GeradorCarga.Medicoes medicoes,
+                   ContabilidadeCartoes.Invariantes invariantes, double probabilidadeMaisPopular) {
+        this.configuracao = configuracao;
+        this.url = url;
+        this.medicoes = medicoes;
+        this.invariantes = invariantes;
+        this.probabilidadeMaisPopular = probabilidadeMaisPopular;
+    }
+
+    /**
+     * Imprime e grava o relatório; retorna se os invariantes e os SLOs foram atendidos.
+     */
+    boolean emitir() throws IOException {
+        double segundos = medicoes.duracaoNanos / 1e9;
+        long total = medicoes.total();
+        double vazao = total / segundos;
+        double taxaErros = total == 0 ? 1 : (double) medicoes.erros.sum() / total;
+        long sloP99Micros = configuracao.sloP99.toNanos() / 1000;
+
+        List<String> falhas = new ArrayList<>();
+        if (!invariantes.respeitados()) {
+            falhas.add(invariantes.totalViolacoes() + " violações de invariantes de saldo");
+        }
+        if (taxaErros > configuracao.sloErros) {
+            falhas.add(String.format(Locale.ROOT, "taxa de erros %.4f acima de %.4f", taxaErros, configuracao.sloErros));
+        }
+        if (vazao < configuracao.sloVazao) {
+            falhas.add(String.format(Locale.ROOT, "vazão %.1f req/s abaixo de %.1f", vazao, configuracao.sloVazao));
+        }
+
+        Map<String, Object> operacoes = new LinkedHashMap<>();
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format(Locale.ROOT, "%nTeste de carga: modo %s, %s, motor %s, %d cartões (zipf %.2f, %.1f%% no mais popular), semente %d%n",
+                configuracao.modo.name().toLowerCase(Locale.ROOT),
+                configuracao.modo == ConfiguracaoCarga.Modo.FECHADO ? configuracao.clientes + " clientes"
+                        : String.format(Locale.ROOT, "%.0f req/s em até %d conexões", configuracao.taxa, configuracao.clientes),
+                configuracao.url.isEmpty() ? configuracao.motor : url, configuracao.cartoes, configuracao.zipf,
+                probabilidadeMaisPopular * 100, configuracao.semente));
+        texto.append(String.format(Locale.ROOT, "Medido por %.0f s após %d s de aquecimento: %d requisições, %.1f req/s, %.4f de erros%n%n",
+                segundos, configuracao.aquecimento.toSeconds(), total, vazao, taxaErros));
+        texto.append(String.format(Locale.ROOT, "%-7s %9s %10s %9s %9s %9s %9s %9s%n",
+                "", "req", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms"));
+
+        for (Operacao operacao : Operacao.values()) {
+            Histogram latencias = medicoes.latencias.get(operacao);
+            if (latencias.getTotalCount() == 0) {
+                continue;
+            }
+            Map<String, Object> percentis = new LinkedHashMap<>();
+            texto.append(String.format(Locale.ROOT, "%-7s %9d %10.1f", operacao.name().toLowerCase(Locale.ROOT),
+                    latencias.getTotalCount(), latencias.getTotalCount() / segundos));
+            for (double percentil : PERCENTIS) {
+                double ms = latencias.getValueAtPercentile(percentil) / 1000.0;
+                percentis.put("p" + formatar(percentil), ms);
+                texto.append(String.format(Locale.ROOT, " %9.2f", ms));
+            }
+            double maximoMs = latencias.getMaxValue() / 1000.0;
+            percentis.put("max", maximoMs);
+            texto.append(String.format(Locale.ROOT, " %9.2f   %s%n", maximoMs, medicoes.desfechos(operacao)));
+
+            if (latencias.getValueAtPercentile(99) > sloP99Micros) {
+                falhas.add(String.format(Locale.ROOT, "p99 de %s %.2f ms acima de %d ms", operacao.name().toLowerCase(Locale.ROOT),
+                        latencias.getValueAtPercentile(99) / 1000.0, configuracao.sloP99.toMillis()));
+            }
+
+            Map<String, Object> resumo = new LinkedHashMap<>();
+            resumo.put("requisicoes", latencias.getTotalCount());
+            resumo.put("vazao", latencias.getTotalCount() / segundos);
+            resumo.put("latenciaMs", percentis);
+            resumo.put("desfechos", medicoes.desfechos(operacao));
+            operacoes.put(operacao.name().toLowerCase(Locale.ROOT), resumo);
+        }
+
+        texto.append(String.format(Locale.ROOT, "%nInvariantes: %d cartões e %d cartões criados conferidos; débitos autorizados %d, sem resposta %d, queda dos saldos %d (centavos); %d saldos negativos observados%n",
+                invariantes.cartoesConferidos, invariantes.cartoesCriadosConferidos, invariantes.debitosAutorizadosCentavos,
+                invariantes.debitosIndeterminadosCentavos, invariantes.reducaoSaldosCentavos, invariantes.saldosNegativosObservados));
+        invariantes.violacoes.forEach(violacao -> texto.append("  ").append(violacao).append(System.lineSeparator()));
+        texto.append(falhas.isEmpty() ? "Resultado: APROVADO" : "Resultado: REPROVADO (" + String.join("; ", falhas) + ")")
+                .append(System.lineSeparator());
+        System.out.print(texto);
+
+        Map<String, Object> relatorio = new LinkedHashMap<>();
+        relatorio.put("instante", Instant.now().toString());
+        relatorio.put("configuracao", configuracao());
+        relatorio.put("requisicoes", total);
+        relatorio.put("vazao", vazao);
+        relatorio.put("taxaErros", taxaErros);
+        relatorio.put("operacoes", operacoes);
+        Map<String, Object> saldos = new LinkedHashMap<>();
+        saldos.put("respeitados", invariantes.respeitados());
+        saldos.put("cartoesConferidos", invariantes.cartoesConferidos);
+        saldos.put("cartoesCriadosConferidos", invariantes.cartoesCriadosConferidos);
+        saldos.put("debitosAutorizadosCentavos", invariantes.debitosAutorizadosCentavos);
+        saldos.put("debitosSemRespostaCentavos", invariantes.debitosIndeterminadosCentavos);
+        saldos.put("quedaSaldosCentavos", invariantes.reducaoSaldosCentavos);
+        saldos.put("saldosNegativosObservados", invariantes.saldosNegativosObservados);
+        saldos.put("violacoes", invariantes.violacoes);
+        relatorio.put("invariantes", saldos);
+        relatorio.put("aprovado", falhas.isEmpty());
+        relatorio.put("falhas", falhas);
+
+        Path diretorio = Path.of(configuracao.relatorio);
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve("carga-" + configuracao.modo.name().toLowerCase(Locale.ROOT) + "-" + System.currentTimeMillis() + ".json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(arquivo.toFile(), relatorio);
+        System.out.println("Relatório: " + arquivo);
+        return falhas.isEmpty();
+    }
+
+    private Map<String, Object> configuracao() {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("url", url);
+        parametros.put("motor", configuracao.url.isEmpty() ? configuracao.motor : null);
+        parametros.put("modo", configuracao.modo.name().toLowerCase(Locale.ROOT));
+        parametros.put("clientes", configuracao.clientes);
+        parametros.put("taxa", configuracao.modo == ConfiguracaoCarga.Modo.ABERTO ? configuracao.taxa : null);
+        parametros.put("aquecimento", configuracao.aquecimento.toString());
+        parametros.put("duracao", configuracao.duracao.toString());
+        parametros.put("cartoes", configuracao.cartoes);
+        parametros.put("zipf", configuracao.zipf);
+        parametros.put("mix", configuracao.mix);
+        parametros.put("valorMaximoCentavos", configuracao.valorMaximoCentavos);
+        parametros.put("semente", configuracao.semente);
+        parametros.put("sloP99Ms", configuracao.sloP99.toMillis());
+        parametros.put("sloErros", configuracao.sloErros);
+        parametros.put("sloVazao", configuracao.sloVazao);
+        return parametros;
+    }
+
+    private static String formatar(double percentil) {
+        return percentil == Math.rint(percentil) ? String.valueOf((long) percentil) : String.valueOf(percentil);
+    }
+}
@@ -0,0 +1,55 @@
+package com.vr.miniautorizador.carga;
+
+import com.vr.miniautorizador.MiniAutorizadorApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Teste de carga: cria os cartões, gera a carga configurada em {@code carga.*}, confere os
+ * invariantes de saldo e emite o relatório. Sem {@code carga.url}, a aplicação é iniciada no
+ * próprio processo com o perfil {@code test} (H2 em memória) numa porta livre; propriedades
+ * {@code -Dautorizador.*} passadas em {@code carga.jvm} valem para ela. Termina com código
+ * {@code 1} se um invariante for violado ou um SLO não for atingido.
+ */
+public final class TesteCarga {
+
+    private TesteCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracaoCarga configuracao = ConfiguracaoCarga.doSistema();
+        ConfigurableApplicationContext contexto = configuracao.url.isEmpty() ? iniciarAplicacao(configuracao) : null;
+        boolean aprovado;
+        try {
+            String url = contexto == null ? configuracao.url
+                    : "http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            ClienteAutorizador cliente = new ClienteAutorizador(url);
+            ContabilidadeCartoes contabilidade = ContabilidadeCartoes.preparar(cliente, configuracao.cartoes, configuracao.clientes);
+
+            GeradorCarga gerador = new GeradorCarga(configuracao, cliente, contabilidade);
+            GeradorCarga.Medicoes medicoes = gerador.executar();
+            ContabilidadeCartoes.Invariantes invariantes = contabilidade.conferir(cliente, configuracao.clientes);
+
+            aprovado = new RelatorioCarga(configuracao, url, medicoes, invariantes,
+                    gerador.popularidade().probabilidadeMaisPopular()).emitir();
+        } finally {
+            if (contexto != null) {
+                contexto.close();
+            }
+        }
+        System.exit(aprovado ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext iniciarAplicacao(ConfiguracaoCarga configuracao) {
+        return new SpringApplicationBuilder(MiniAutorizadorApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--autorizador.motor=" + configuracao.motor);
+    }
+}
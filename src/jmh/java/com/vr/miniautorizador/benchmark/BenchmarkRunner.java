@@ -0,0 +1,97 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.motor.RecuperacaoSnapshotBenchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Executa os benchmarks e grava um JSON por execução em {@code jmh.resultados}. {@code jmh.include}
+ * filtra pelo nome.
+ *
+ * <p>Com uma thread:
+ * <ul>
+ *     <li>os microbenchmarks ({@link ComponentesBenchmark}, {@link SenhaBenchmark} e {@link IndiceCartoesBenchmark});</li>
+ *     <li>{@link CodecTransacaoBenchmark};</li>
+ *     <li>{@link FiltroCartoesBenchmark};</li>
+ *     <li>{@link RecuperacaoSnapshotBenchmark}.</li>
+ * </ul>
+ *
+ * <p>Repetidos para cada quantidade de threads em {@code jmh.threads}:
+ * <ul>
+ *     <li>{@link IdempotenciaBenchmark};</li>
+ *     <li>{@link MetricasBenchmark};</li>
+ *     <li>{@link CartaoServiceBenchmark}.</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Pattern filtro = Pattern.compile(System.getProperty("jmh.include", ".*"));
+        int[] threads = Arrays.stream(System.getProperty("jmh.threads", "1,2,4,8,16,32,64").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Path resultados = Path.of(System.getProperty("jmh.resultados", "target/jmh"));
+        Files.createDirectories(resultados);
+
+        if (filtro.matcher(ComponentesBenchmark.class.getSimpleName()).find()) {
+            executar(ComponentesBenchmark.class, 1, resultados.resolve("componentes.json"));
+        }
+        if (filtro.matcher(SenhaBenchmark.class.getSimpleName()).find()) {
+            executar(SenhaBenchmark.class, 1, resultados.resolve("senha.json"));
+        }
+        if (filtro.matcher(IndiceCartoesBenchmark.class.getSimpleName()).find()) {
+            executar(IndiceCartoesBenchmark.class, 1, resultados.resolve("indice-cartoes.json"));
+        }
+        if (filtro.matcher(CodecTransacaoBenchmark.class.getSimpleName()).find()) {
+            executar(CodecTransacaoBenchmark.class, 1, resultados.resolve("codec-transacao.json"));
+        }
+        if (filtro.matcher(FiltroCartoesBenchmark.class.getSimpleName()).find()) {
+            executar(FiltroCartoesBenchmark.class, 1, resultados.resolve("filtro-cartoes.json"));
+        }
+        if (filtro.matcher(RecuperacaoSnapshotBenchmark.class.getSimpleName()).find()) {
+            executar(RecuperacaoSnapshotBenchmark.class, 1, resultados.resolve("recuperacao-snapshot.json"));
+        }
+        if (filtro.matcher(IdempotenciaBenchmark.class.getSimpleName()).find()) {
+            for (int quantidade : threads) {
+                executar(IdempotenciaBenchmark.class, quantidade,
+                        resultados.resolve("idempotencia-" + quantidade + "-threads.json"));
+            }
+        }
+        if (filtro.matcher(MetricasBenchmark.class.getSimpleName()).find()) {
+            for (int quantidade : threads) {
+                executar(MetricasBenchmark.class, quantidade,
+                        resultados.resolve("metricas-" + quantidade + "-threads.json"));
+            }
+        }
+        if (filtro.matcher(CartaoServiceBenchmark.class.getSimpleName()).find()) {
+            for (int quantidade : threads) {
+                executar(CartaoServiceBenchmark.class, quantidade,
+                        resultados.resolve("cartao-service-" + quantidade + "-threads.json"));
+            }
+        }
+    }
+
+    private static void executar(Class<?> benchmark, int threads, Path resultado) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Pattern.quote(benchmark.getName()) + ".*")
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultado.toString())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,134 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import com.vr.miniautorizador.service.CartaoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caminho quente do {@link CartaoService} contra H2 em processo, para cada motor de autorização.
+ * No cenário {@code CONTENDIDO} todas as threads usam o mesmo cartão; no {@code DISTRIBUIDO}
+ * cada operação sorteia um cartão uniformemente. A quantidade de threads é definida pelo
+ * {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class CartaoServiceBenchmark {
+
+    // Saldo grande o bastante para o cartão não se esgotar durante a medição
+    private static final long SALDO_CENTAVOS = Long.MAX_VALUE / 2;
+    private static final BigDecimal VALOR = new BigDecimal("0.01");
+    private static final String SENHA = "1234";
+    private static final String SENHA_INVALIDA = "0000";
+
+    public enum Cenario {
+        CONTENDIDO,
+        DISTRIBUIDO
+    }
+
+    @Param({"pessimista", "condicional", "memoria", "coalescente", "adaptativo"})
+    public String motor;
+
+    @Param({"CONTENDIDO", "DISTRIBUIDO"})
+    public Cenario cenario;
+
+    @Param("10000")
+    public int cartoes;
+
+    private ConfigurableApplicationContext contexto;
+    private CartaoService cartaoService;
+    private String[] numeros;
+    private final AtomicLong proximoCartao = new AtomicLong(1_000_000_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoAplicacao.iniciar("benchmark", Map.of("autorizador.motor", motor));
+        cartaoService = contexto.getBean(CartaoService.class);
+
+        // Gravados direto no repositório para começar com saldo máximo também no motor em memória.
+        // A senha de cada cartão é conferida uma vez aqui, para que as faltas do cache de senhas
+        // (um PBKDF2 cada) fiquem fora da medição
+        VerificadorSenha verificador = contexto.getBean(VerificadorSenha.class);
+        numeros = new String[cenario == Cenario.CONTENDIDO ? 1 : cartoes];
+        List<Cartao> novos = new ArrayList<>(numeros.length);
+        for (int i = 0; i < numeros.length; i++) {
+            numeros[i] = String.format("%016d", i);
+            String senhaArmazenada = verificador.codificar(SENHA);
+            verificador.confere(numeros[i], SENHA, senhaArmazenada);
+            novos.add(Cartao.builder().numeroCartao(numeros[i]).senha(senhaArmazenada).saldoCentavos(SALDO_CENTAVOS).build());
+        }
+        contexto.getBean(CartaoRepository.class).saveAll(novos);
+        contexto.getBean(FiltroCartoes.class).carregar();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public TransacaoStatus realizarTransacao() {
+        return cartaoService.realizarTransacao(TransacaoRequest.builder()
+                .numeroCartao(sortearCartao())
+                .senhaCartao(SENHA)
+                .valor(VALOR)
+                .build());
+    }
+
+    @Benchmark
+    public TransacaoStatus recusarTransacao() {
+        return cartaoService.realizarTransacao(TransacaoRequest.builder()
+                .numeroCartao(sortearCartao())
+                .senhaCartao(SENHA_INVALIDA)
+                .valor(VALOR)
+                .build());
+    }
+
+    @Benchmark
+    public long obterSaldo() {
+        return cartaoService.obterSaldo(sortearCartao());
+    }
+
+    @Benchmark
+    public CartaoResponse criarCartao() {
+        return cartaoService.criarCartao(CartaoRequest.builder()
+                .numeroCartao(Long.toString(proximoCartao.incrementAndGet()))
+                .senha(SENHA)
+                .build());
+    }
+
+    private String sortearCartao() {
+        return numeros.length == 1 ? numeros[0] : numeros[ThreadLocalRandom.current().nextInt(numeros.length)];
+    }
+}
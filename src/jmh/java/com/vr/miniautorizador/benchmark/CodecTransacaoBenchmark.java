@@ -0,0 +1,176 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /transacoes} e {@code GET /cartoes/{numeroCartao}} por HTTP, com o
+ * {@code CodecTransacaoFilter} habilitado e desabilitado, sobre o motor em memória. O cliente é uma
+ * conexão keep-alive que envia requisições já codificadas e lê as respostas num buffer reutilizado
+ * (com {@code Content-Length} ou em chunks),
+ * de modo que {@code gc.alloc.rate.norm} e o tempo por operação são praticamente os do servidor,
+ * que roda no mesmo processo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecTransacaoBenchmark {
+
+    private static final String SENHA = "1234";
+    private static final int CARTOES = 1000;
+
+    @Param({"true", "false"})
+    public boolean codec;
+
+    private ConfigurableApplicationContext contexto;
+    private Socket conexao;
+    private OutputStream saida;
+    private InputStream entrada;
+    private final byte[] resposta = new byte[8192];
+    private byte[][] transacoes;
+    private byte[][] consultas;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException {
+        contexto = ContextoAplicacao.iniciar("codec", Map.of(
+                "autorizador.motor", "memoria",
+                "autorizador.historico.habilitado", false,
+                // Sem a sincronização periódica com o banco, que mediria o H2 e não a requisição
+                "autorizador.memoria.intervalo-sincronizacao", "1h",
+                "autorizador.codec.habilitado", codec,
+                "server.tomcat.max-keep-alive-requests", -1), WebApplicationType.SERVLET);
+        int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+        VerificadorSenha verificador = contexto.getBean(VerificadorSenha.class);
+        String senhaArmazenada = verificador.codificar(SENHA);
+        List<Cartao> novos = new ArrayList<>(CARTOES);
+        transacoes = new byte[CARTOES][];
+        consultas = new byte[CARTOES][];
+        for (int i = 0; i < CARTOES; i++) {
+            String numero = String.format("%016d", i);
+            verificador.confere(numero, SENHA, senhaArmazenada);
+            novos.add(Cartao.builder().numeroCartao(numero).senha(senhaArmazenada).saldoCentavos(Long.MAX_VALUE / 2).build());
+            String corpo = "{\"numeroCartao\":\"" + numero + "\",\"senhaCartao\":\"" + SENHA + "\",\"valor\":0.01}";
+            transacoes[i] = ("POST /transacoes HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + corpo.length() + "\r\n\r\n" + corpo).getBytes(StandardCharsets.US_ASCII);
+            consultas[i] = ("GET /cartoes/" + numero + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        contexto.getBean(CartaoRepository.class).saveAll(novos);
+        contexto.getBean(FiltroCartoes.class).carregar();
+
+        conexao = new Socket("localhost", porta);
+        conexao.setTcpNoDelay(true);
+        saida = conexao.getOutputStream();
+        entrada = conexao.getInputStream();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws IOException {
+        conexao.close();
+        contexto.close();
+    }
+
+    @Benchmark
+    public int realizarTransacao() throws IOException {
+        return enviar(transacoes[ThreadLocalRandom.current().nextInt(CARTOES)]);
+    }
+
+    @Benchmark
+    public int obterSaldo() throws IOException {
+        return enviar(consultas[ThreadLocalRandom.current().nextInt(CARTOES)]);
+    }
+
+    /**
+     * Envia a requisição e lê a resposta inteira; retorna o código de status.
+     */
+    private int enviar(byte[] requisicao) throws IOException {
+        saida.write(requisicao);
+        int lidos = 0;
+        int fimCabecalho = -1;
+        int tamanhoCorpo = 0;
+        while (fimCabecalho < 0 || (tamanhoCorpo >= 0 ? lidos < fimCabecalho + tamanhoCorpo : !fimChunks(lidos))) {
+            int n = entrada.read(resposta, lidos, resposta.length - lidos);
+            if (n < 0) {
+                throw new IOException("Conexão encerrada pelo servidor");
+            }
+            lidos += n;
+            if (fimCabecalho < 0) {
+                fimCabecalho = fimCabecalho(lidos);
+                if (fimCabecalho >= 0) {
+                    tamanhoCorpo = contentLength(fimCabecalho);
+                }
+            }
+        }
+        return (resposta[9] - '0') * 100 + (resposta[10] - '0') * 10 + (resposta[11] - '0');
+    }
+
+    private boolean fimChunks(int lidos) {
+        byte[] fim = {'\r', '\n', '0', '\r', '\n', '\r', '\n'};
+        return lidos >= fim.length && Arrays.equals(resposta, lidos - fim.length, lidos, fim, 0, fim.length);
+    }
+
+    private int fimCabecalho(int lidos) {
+        for (int i = 3; i < lidos; i++) {
+            if (resposta[i] == '\n' && resposta[i - 1] == '\r' && resposta[i - 2] == '\n' && resposta[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Valor do {@code Content-Length}, ou {@code -1} numa resposta em chunks.
+     */
+    private int contentLength(int fimCabecalho) {
+        byte[] nome = "content-length:".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + nome.length < fimCabecalho; i++) {
+            int j = 0;
+            while (j < nome.length && Character.toLowerCase(resposta[i + j]) == nome[j]) {
+                j++;
+            }
+            if (j == nome.length) {
+                int valor = 0;
+                for (int k = i + j; resposta[k] != '\r'; k++) {
+                    if (resposta[k] >= '0' && resposta[k] <= '9') {
+                        valor = valor * 10 + resposta[k] - '0';
+                    }
+                }
+                return valor;
+            }
+        }
+        return -1;
+    }
+}
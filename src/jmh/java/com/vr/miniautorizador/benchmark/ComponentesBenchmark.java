@@ -0,0 +1,99 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.dto.Centavos;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peças isoladas do caminho de autorização: aritmética do saldo, comparação de senha e
+ * (des)serialização Jackson do {@link TransacaoRequest}. O débito em {@code BigDecimal} é mantido
+ * como referência para a taxa de alocação ({@code gc.alloc.rate.norm}) do débito em centavos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentesBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BigDecimal saldo;
+    private BigDecimal valor;
+    private long saldoCentavos;
+    private long valorCentavos;
+    private Cartao cartao;
+    private String senhaCorreta;
+    private String senhaIncorreta;
+    private TransacaoRequest request;
+    private byte[] json;
+
+    @Setup
+    public void iniciar() throws IOException {
+        saldo = new BigDecimal("500.00");
+        valor = new BigDecimal("10.00");
+        saldoCentavos = Centavos.deReais(saldo);
+        valorCentavos = Centavos.deReais(valor);
+        cartao = Cartao.builder().numeroCartao("6549873025634501").senha("1234").saldoCentavos(saldoCentavos).build();
+        // Instâncias distintas da senha armazenada, como chegariam de uma requisição
+        senhaCorreta = new String("1234".toCharArray());
+        senhaIncorreta = new String("4321".toCharArray());
+        request = TransacaoRequest.builder()
+                .numeroCartao("6549873025634501")
+                .senhaCartao("1234")
+                .valor(valor)
+                .build();
+        json = objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public BigDecimal debitarSaldoBigDecimal() {
+        return saldo.compareTo(valor) >= 0 ? saldo.subtract(valor) : saldo;
+    }
+
+    @Benchmark
+    public long debitarSaldoCentavos() {
+        return saldoCentavos >= valorCentavos ? saldoCentavos - valorCentavos : saldoCentavos;
+    }
+
+    @Benchmark
+    public long converterValorParaCentavos() {
+        return request.getValorCentavos();
+    }
+
+    @Benchmark
+    public boolean validarSenhaCorreta() {
+        return cartao.getSenha().equals(senhaCorreta);
+    }
+
+    @Benchmark
+    public boolean validarSenhaIncorreta() {
+        return cartao.getSenha().equals(senhaIncorreta);
+    }
+
+    @Benchmark
+    public TransacaoRequest desserializarTransacao() throws IOException {
+        return objectMapper.readValue(json, TransacaoRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializarTransacao() throws IOException {
+        return objectMapper.writeValueAsBytes(request);
+    }
+}
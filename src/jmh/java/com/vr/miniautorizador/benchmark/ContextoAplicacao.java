@@ -0,0 +1,39 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.MiniAutorizadorApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sobe a aplicação sobre um H2 em memória exclusivo do benchmark, sem servidor web ou, com
+ * {@link WebApplicationType#SERVLET}, com o Tomcat numa porta livre.
+ */
+final class ContextoAplicacao {
+
+    private ContextoAplicacao() {
+    }
+
+    static ConfigurableApplicationContext iniciar(String banco, Map<String, Object> propriedades) {
+        return iniciar(banco, propriedades, WebApplicationType.NONE);
+    }
+
+    static ConfigurableApplicationContext iniciar(String banco, Map<String, Object> propriedades, WebApplicationType tipo) {
+        Map<String, Object> padrao = new HashMap<>();
+        padrao.put("spring.datasource.url", "jdbc:h2:mem:" + banco + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        padrao.put("spring.jpa.show-sql", false);
+        padrao.put("spring.main.banner-mode", "off");
+        padrao.put("logging.level.root", "WARN");
+        padrao.put("server.port", 0);
+        padrao.putAll(propriedades);
+
+        return new SpringApplicationBuilder(MiniAutorizadorApplication.class)
+                .web(tipo)
+                .profiles("test")
+                .properties(padrao)
+                .run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.CartaoNaoEncontradoException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import com.vr.miniautorizador.service.CartaoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CartaoService} com e sem o {@link FiltroCartoes} num tráfego em que
+ * {@code percentualInexistentes}% das transações e consultas são de cartões que não existem, como
+ * numa enumeração de números. A criação usa sempre números novos, cuja verificação de existência
+ * é evitada pelo filtro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class FiltroCartoesBenchmark {
+
+    private static final long SALDO_CENTAVOS = Long.MAX_VALUE / 2;
+    private static final BigDecimal VALOR = new BigDecimal("0.01");
+    private static final String SENHA = "1234";
+
+    @Param({"true", "false"})
+    public boolean filtro;
+
+    @Param({"pessimista", "memoria"})
+    public String motor;
+
+    @Param("10000")
+    public int cartoes;
+
+    @Param("90")
+    public int percentualInexistentes;
+
+    private ConfigurableApplicationContext contexto;
+    private CartaoService cartaoService;
+    private String[] existentes;
+    private final AtomicLong proximoCartao = new AtomicLong(1_000_000_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoAplicacao.iniciar("filtro", Map.of(
+                "autorizador.motor", motor,
+                "autorizador.filtro-cartoes.habilitado", filtro));
+        cartaoService = contexto.getBean(CartaoService.class);
+
+        VerificadorSenha verificador = contexto.getBean(VerificadorSenha.class);
+        existentes = new String[cartoes];
+        List<Cartao> novos = new ArrayList<>(cartoes);
+        for (int i = 0; i < cartoes; i++) {
+            existentes[i] = String.format("%016d", i);
+            String senhaArmazenada = verificador.codificar(SENHA);
+            verificador.confere(existentes[i], SENHA, senhaArmazenada);
+            novos.add(Cartao.builder().numeroCartao(existentes[i]).senha(senhaArmazenada).saldoCentavos(SALDO_CENTAVOS).build());
+        }
+        contexto.getBean(CartaoRepository.class).saveAll(novos);
+        contexto.getBean(FiltroCartoes.class).carregar();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public TransacaoStatus realizarTransacao() {
+        return cartaoService.realizarTransacao(TransacaoRequest.builder()
+                .numeroCartao(sortearCartao())
+                .senhaCartao(SENHA)
+                .valor(VALOR)
+                .build());
+    }
+
+    @Benchmark
+    public long obterSaldo() {
+        try {
+            return cartaoService.obterSaldo(sortearCartao());
+        } catch (CartaoNaoEncontradoException e) {
+            return -1;
+        }
+    }
+
+    @Benchmark
+    public CartaoResponse criarCartao() {
+        return cartaoService.criarCartao(CartaoRequest.builder()
+                .numeroCartao(Long.toString(proximoCartao.incrementAndGet()))
+                .senha(SENHA)
+                .build());
+    }
+
+    private String sortearCartao() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        if (aleatorio.nextInt(100) >= percentualInexistentes) {
+            return existentes[aleatorio.nextInt(existentes.length)];
+        }
+        // Fora da faixa dos existentes e dos criados pelo benchmark
+        return String.format("%016d", 5_000_000_000_000_000L + aleatorio.nextLong(1_000_000_000_000L));
+    }
+}
@@ -0,0 +1,97 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.idempotencia.DeduplicadorTransacoes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deduplicação de {@code Idempotency-Key} pelo {@link DeduplicadorTransacoes} (impressão da
+ * chave, status e valor em um array de {@code long}) comparada a um
+ * {@link ConcurrentHashMap} de {@code String}, ambos com a capacidade padrão. {@code registrar*}
+ * reserva e conclui uma chave nova; {@code repetir*} consulta uma chave já concluída. O profiler de
+ * GC do {@link BenchmarkRunner} mostra a alocação por operação, incluindo a da chave nova, que nas
+ * requisições já vem do corpo lido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotenciaBenchmark {
+
+    private static final int CAPACIDADE = 500_000;
+    private static final String CARTAO = "6549873025634501";
+    private static final long VALOR = 1_000;
+    private static final byte OK = (byte) TransacaoStatus.OK.ordinal();
+
+    private final AtomicLong proximaChave = new AtomicLong();
+    private DeduplicadorTransacoes deduplicador;
+    private Map<String, TransacaoStatus> mapa;
+    private String[] concluidas;
+
+    @Setup
+    public void iniciar() {
+        deduplicador = new DeduplicadorTransacoes(CAPACIDADE, Duration.ofMinutes(1).toNanos());
+        mapa = new ConcurrentHashMap<>(CAPACIDADE * 2);
+        concluidas = new String[CAPACIDADE / 2];
+        for (int i = 0; i < concluidas.length; i++) {
+            concluidas[i] = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            deduplicador.reservar(concluidas[i], CARTAO, VALOR);
+            deduplicador.concluir(concluidas[i], CARTAO, VALOR, OK);
+            mapa.put(concluidas[i], TransacaoStatus.OK);
+        }
+    }
+
+    @Benchmark
+    public byte registrarDeduplicador() {
+        String chave = Long.toHexString(espalhar(proximaChave.incrementAndGet()));
+        byte anterior = deduplicador.reservar(chave, CARTAO, VALOR);
+        deduplicador.concluir(chave, CARTAO, VALOR, OK);
+        return anterior;
+    }
+
+    @Benchmark
+    public byte repetirDeduplicador() {
+        return deduplicador.reservar(concluidas[ThreadLocalRandom.current().nextInt(concluidas.length)], CARTAO, VALOR);
+    }
+
+    @Benchmark
+    public TransacaoStatus registrarMapa() {
+        String chave = Long.toHexString(espalhar(proximaChave.incrementAndGet()));
+        TransacaoStatus anterior = mapa.putIfAbsent(chave, TransacaoStatus.OK);
+        // Mantém o mapa no tamanho da janela, como o descarte das gerações
+        if (mapa.size() > CAPACIDADE) {
+            mapa.clear();
+        }
+        return anterior;
+    }
+
+    @Benchmark
+    public TransacaoStatus repetirMapa() {
+        return mapa.get(concluidas[ThreadLocalRandom.current().nextInt(concluidas.length)]);
+    }
+
+    // Sequência espalhada pela finalização do SplitMix64
+    private static long espalhar(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
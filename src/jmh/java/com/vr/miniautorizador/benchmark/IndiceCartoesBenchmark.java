@@ -0,0 +1,119 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.motor.IndiceCartoes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link IndiceCartoes} contra um {@code ConcurrentHashMap<String, Cartao>}: consulta de saldo e
+ * débito de um cartão aleatório, com o número recebido como uma {@code String} nova, como chegaria
+ * de uma requisição. Os bytes por cartão de cada estrutura, medidos pela diferença do heap
+ * ocupado, são impressos no início de cada execução.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndiceCartoesBenchmark {
+
+    private static final String SENHA = "pbkdf2$310000$c2FsdGFsZWF0b3Jpbw==$aGFzaGRhc2VuaGFkb2NhcnRhb2RldGVzdGU=";
+
+    @Param({"1000000"})
+    private int cartoes;
+
+    private char[][] numeros;
+    private IndiceCartoes indice;
+    private Map<String, Cartao> mapa;
+
+    @Setup
+    public void iniciar() {
+        numeros = new char[cartoes][];
+        for (int i = 0; i < cartoes; i++) {
+            numeros[i] = String.format("%016d", 6_549_873_000_000_000L + i * 7919L).toCharArray();
+        }
+
+        indice = medir("IndiceCartoes", () -> {
+            IndiceCartoes criado = new IndiceCartoes(0);
+            for (char[] numero : numeros) {
+                criado.inserir(new String(numero), 50_000, 0);
+            }
+            return criado;
+        });
+        mapa = medir("ConcurrentHashMap<String, Cartao>", () -> {
+            Map<String, Cartao> criado = new ConcurrentHashMap<>();
+            for (char[] numero : numeros) {
+                String numeroCartao = new String(numero);
+                criado.put(numeroCartao, Cartao.builder().numeroCartao(numeroCartao).senha(SENHA)
+                        .saldoCentavos(50_000L).version(0L).build());
+            }
+            return criado;
+        });
+    }
+
+    @Benchmark
+    public long consultarSaldoIndice() {
+        return indice.saldo(numeroAleatorio());
+    }
+
+    @Benchmark
+    public long consultarSaldoMapa() {
+        return mapa.get(numeroAleatorio()).getSaldoCentavos();
+    }
+
+    @Benchmark
+    public long debitarIndice() {
+        int posicao = indice.localizar(numeroAleatorio());
+        long saldo = indice.saldo(posicao);
+        long novo = saldo >= 1 ? saldo - 1 : 50_000;
+        indice.atualizarSaldo(posicao, novo);
+        return novo;
+    }
+
+    @Benchmark
+    public long debitarMapa() {
+        Cartao cartao = mapa.get(numeroAleatorio());
+        long saldo = cartao.getSaldoCentavos();
+        long novo = saldo >= 1 ? saldo - 1 : 50_000;
+        cartao.setSaldoCentavos(novo);
+        cartao.setVersion(cartao.getVersion() + 1);
+        return novo;
+    }
+
+    private String numeroAleatorio() {
+        return new String(numeros[ThreadLocalRandom.current().nextInt(cartoes)]);
+    }
+
+    private <T> T medir(String estrutura, Supplier<T> criar) {
+        long antes = heapOcupado();
+        T criado = criar.get();
+        long depois = heapOcupado();
+        System.out.printf("%n%s: %.1f bytes por cartão (%d cartões)%n", estrutura, (double) (depois - antes) / cartoes, cartoes);
+        return criado;
+    }
+
+    private static long heapOcupado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
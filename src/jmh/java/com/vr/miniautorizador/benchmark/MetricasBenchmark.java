@@ -0,0 +1,60 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por requisição das métricas de {@link MetricasAutorizacao} sobre o registro Prometheus.
+ * {@code realizarTransacao} reproduz as medições do motor pessimista (espera pelo lock, validação
+ * e total com status); o orçamento é de 1µs por requisição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricasBenchmark {
+
+    private static final String NUMERO_CARTAO = "6549873025634501";
+
+    private MetricasAutorizacao metricas;
+
+    @Setup
+    public void iniciar() {
+        metricas = new MetricasAutorizacao(new AutorizadorProperties(), new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public void realizarTransacao() {
+        long inicio = System.nanoTime();
+        metricas.registrarEsperaLock(NUMERO_CARTAO, inicio);
+        metricas.registrarValidacao(System.nanoTime());
+        metricas.registrarTransacao(TransacaoStatus.OK, inicio);
+    }
+
+    @Benchmark
+    public void obterSaldo() {
+        metricas.registrarConsulta(System.nanoTime());
+    }
+
+    @Benchmark
+    public long semMetricas() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,81 @@
+package com.vr.miniautorizador.benchmark;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.seguranca.CodificadorSenha;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conferência da senha de uma transação: comparação em texto puro (o comportamento anterior ao
+ * hash), acerto no cache do {@link VerificadorSenha} e, como referência do custo de uma falta, o
+ * PBKDF2 com as iterações padrão. Em {@link Mode#SampleTime} o JMH reporta os percentis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SenhaBenchmark {
+
+    private static final int CARTOES = 10_000;
+
+    private VerificadorSenha verificador;
+    private CodificadorSenha codificador;
+    private String[] numeros;
+    private String[] armazenadas;
+    private String senhaArmazenadaPbkdf2;
+    private String senha;
+
+    @Setup
+    public void iniciar() {
+        AutorizadorProperties properties = new AutorizadorProperties();
+        verificador = new VerificadorSenha(properties, new SimpleMeterRegistry());
+        codificador = new CodificadorSenha(properties.getSenha().getIteracoes());
+        senhaArmazenadaPbkdf2 = codificador.codificar("1234");
+        // Instância distinta da senha armazenada, como chegaria de uma requisição
+        senha = new String("1234".toCharArray());
+
+        // Hash barato só para aquecer o cache rapidamente; um acerto não depende das iterações
+        CodificadorSenha rapido = new CodificadorSenha(1_000);
+        numeros = new String[CARTOES];
+        armazenadas = new String[CARTOES];
+        for (int i = 0; i < CARTOES; i++) {
+            numeros[i] = String.format("%016d", i);
+            armazenadas[i] = rapido.codificar("1234");
+            verificador.confere(numeros[i], "1234", armazenadas[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean compararTextoPuro() {
+        int i = ThreadLocalRandom.current().nextInt(CARTOES);
+        return numeros[i] != null && "1234".equals(senha);
+    }
+
+    @Benchmark
+    public boolean conferirComCache() {
+        int i = ThreadLocalRandom.current().nextInt(CARTOES);
+        return verificador.confere(numeros[i], senha, armazenadas[i]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 2, time = 1)
+    public boolean conferirSemCache() {
+        return codificador.confere(senha, senhaArmazenadaPbkdf2);
+    }
+}
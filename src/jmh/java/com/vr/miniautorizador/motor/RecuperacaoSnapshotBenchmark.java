@@ -0,0 +1,95 @@
+package com.vr.miniautorizador.motor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Recuperação de um shard do motor em memória: carga do snapshot pelo {@link SnapshotCartoes}
+ * contra a releitura dos mesmos cartões como registros de estado do journal, o formato do snapshot
+ * anterior. No início, são impressos o tempo de gravação do snapshot e o tempo em que a thread
+ * escritora fica parada para iniciá-lo. Fica no pacote do motor por usar as suas classes internas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecuperacaoSnapshotBenchmark {
+
+    @Param({"10000000"})
+    private int cartoes;
+
+    private Path diretorioSnapshot;
+    private Path diretorioJournal;
+
+    @Setup(Level.Trial)
+    public void gravar() throws IOException {
+        IndiceCartoes indice = new IndiceCartoes(cartoes);
+        for (int i = 0; i < cartoes; i++) {
+            indice.inserir(String.format("%016d", 6_549_873_000_000_000L + i * 7919L), 50_000 - i % 1000, 0);
+        }
+
+        diretorioSnapshot = Files.createTempDirectory("snapshot");
+        try (JournalShard journal = new JournalShard(diretorioSnapshot, 0)) {
+            long inicio = System.nanoTime();
+            var gravacao = journal.snapshot(indice, 0);
+            long pausa = System.nanoTime() - inicio;
+            gravacao.join();
+            System.out.printf("%nSnapshot de %d cartões: thread escritora parada %.2f ms, gravação %d ms, %.1f bytes por cartão%n",
+                    cartoes, pausa / 1e6, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                    (double) Files.size(diretorioSnapshot.resolve("snapshot-0.dat")) / cartoes);
+        }
+
+        diretorioJournal = Files.createTempDirectory("journal");
+        try (JournalShard journal = new JournalShard(diretorioJournal, 0)) {
+            indice.paraCada(journal::registrarEstado);
+            journal.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void apagar() throws IOException {
+        for (Path diretorio : new Path[]{diretorioSnapshot, diretorioJournal}) {
+            try (Stream<Path> arquivos = Files.walk(diretorio)) {
+                arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public int carregarSnapshot() throws IOException {
+        return recuperar(diretorioSnapshot);
+    }
+
+    @Benchmark
+    public int reaplicarRegistrosDeEstado() throws IOException {
+        return recuperar(diretorioJournal);
+    }
+
+    private int recuperar(Path diretorio) throws IOException {
+        IndiceCartoes indice = new IndiceCartoes(0);
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.recuperar(indice, numero -> { });
+        }
+        return indice.tamanho();
+    }
+}
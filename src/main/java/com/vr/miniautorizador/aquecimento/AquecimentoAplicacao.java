@@ -0,0 +1,276 @@
+package com.vr.miniautorizador.aquecimento;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.CartaoNaoEncontradoException;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import com.vr.miniautorizador.service.CartaoService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Aquece a aplicação antes de ela ser declarada pronta: o Spring Boot só publica
+ * {@code ReadinessState.ACCEPTING_TRAFFIC} depois que os {@link ApplicationRunner}s terminam.
+ *
+ * <ol>
+ *     <li>Abre as conexões mínimas do pool do Hikari.</li>
+ *     <li>Exercita o {@link CartaoService} com cartões sintéticos (prefixo
+ *     {@code autorizador.aquecimento.prefixo-cartao}): débitos autorizados e recusados, consultas e
+ *     lotes. O p99 dos débitos autorizados é medido em janelas, e o aquecimento termina quando
+ *     {@value #JANELAS_ESTAVEIS} janelas seguidas ficam a até 10% do menor p99 observado. Tudo
+ *     roda numa única transação marcada para rollback: os cartões sintéticos, os seus débitos e o
+ *     seu histórico nunca são gravados. Por isso este passo não é executado no motor
+ *     {@code memoria}, cujos saldos ficam nos shards e no journal, nem se algum dos números
+ *     sintéticos já existir no banco.</li>
+ *     <li>Carrega os saldos dos cartões com mais transações recentes no histórico.</li>
+ * </ol>
+ *
+ * Desabilitado por padrão. Falhas são registradas e não impedem a aplicação de ficar pronta.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "autorizador.aquecimento.habilitado", havingValue = "true")
+public class AquecimentoAplicacao implements ApplicationRunner {
+
+    private static final int JANELAS_ESTAVEIS = 3;
+    private static final String SENHA = "0000";
+    private static final String SENHA_INCORRETA = "1111";
+    private static final BigDecimal VALOR = new BigDecimal("0.01");
+    private static final BigDecimal VALOR_ACIMA_DO_SALDO = new BigDecimal("1000000.00");
+
+    private final CartaoService cartaoService;
+    private final CacheSaldos cacheSaldos;
+    private final VerificadorSenha verificadorSenha;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacaoDescartada;
+    private final EntityManager entityManager;
+    private final AutorizadorProperties.Motor motor;
+    private final AutorizadorProperties.Aquecimento configuracao;
+
+    private volatile double duracaoSegundos;
+    private volatile double p99InicialSegundos;
+    private volatile double p99FinalSegundos;
+    private volatile int transacoesExecutadas;
+
+    public AquecimentoAplicacao(CartaoService cartaoService, CacheSaldos cacheSaldos, VerificadorSenha verificadorSenha,
+                                HikariDataSource dataSource, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, EntityManager entityManager,
+                                AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        this.cartaoService = cartaoService;
+        this.cacheSaldos = cacheSaldos;
+        this.verificadorSenha = verificadorSenha;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacaoDescartada = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.motor = properties.getMotor();
+        this.configuracao = properties.getAquecimento();
+
+        Gauge.builder("autorizador.aquecimento.duracao", this, aquecimento -> aquecimento.duracaoSegundos)
+                .description("Duração do aquecimento")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.aquecimento.p99", this, aquecimento -> aquecimento.p99InicialSegundos)
+                .description("p99 dos débitos autorizados na primeira janela do aquecimento")
+                .tag("janela", "inicial")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.aquecimento.p99", this, aquecimento -> aquecimento.p99FinalSegundos)
+                .description("p99 dos débitos autorizados na última janela do aquecimento")
+                .tag("janela", "final")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.aquecimento.transacoes", this, aquecimento -> aquecimento.transacoesExecutadas)
+                .description("Débitos autorizados executados no aquecimento")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long inicio = System.nanoTime();
+        preencherPool();
+        exercitar();
+        preCarregar();
+        duracaoSegundos = (System.nanoTime() - inicio) / 1e9;
+
+        log.info("Aquecimento concluído em {} ms; aplicação pronta {} ms após o início da JVM",
+                Math.round(duracaoSegundos * 1000), ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * Carrega os saldos dos {@code autorizador.aquecimento.cartoes-pre-carregados} cartões com mais
+     * transações no histórico dentro de {@code autorizador.aquecimento.janela-atividade}.
+     */
+    public int preCarregar() {
+        if (configuracao.getCartoesPreCarregados() <= 0) {
+            return 0;
+        }
+        int carregados = 0;
+        try {
+            List<String> ativos = jdbcTemplate.queryForList(
+                    "SELECT numero_cartao FROM transacao WHERE realizada_em >= ? "
+                            + "GROUP BY numero_cartao ORDER BY COUNT(*) DESC LIMIT ?",
+                    String.class,
+                    Timestamp.from(Instant.now().minus(configuracao.getJanelaAtividade())),
+                    configuracao.getCartoesPreCarregados());
+            for (String numeroCartao : ativos) {
+                try {
+                    cartaoService.obterSaldo(numeroCartao);
+                    carregados++;
+                } catch (CartaoNaoEncontradoException e) {
+                    // Removido desde a transação
+                }
+            }
+            log.info("Saldos de {} cartões carregados", carregados);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao carregar os saldos dos cartões mais ativos", e);
+        }
+        return carregados;
+    }
+
+    private void preencherPool() {
+        int conexoes = Math.max(dataSource.getMinimumIdle(), 1);
+        List<Connection> abertas = new ArrayList<>(conexoes);
+        try {
+            for (int i = 0; i < conexoes; i++) {
+                abertas.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("Falha ao preencher o pool de conexões com {} conexões", conexoes, e);
+        } finally {
+            for (Connection conexao : abertas) {
+                try {
+                    conexao.close();
+                } catch (SQLException e) {
+                    log.warn("Falha ao devolver conexão ao pool", e);
+                }
+            }
+        }
+    }
+
+    private void exercitar() {
+        if (configuracao.getTransacoes() <= 0) {
+            return;
+        }
+        if (motor == AutorizadorProperties.Motor.MEMORIA) {
+            log.info("Aquecimento com cartões sintéticos não executado: o motor memoria não desfaz os débitos com a transação");
+            return;
+        }
+        List<String> cartoes = IntStream.range(0, configuracao.getCartoes())
+                .mapToObj(i -> configuracao.getPrefixoCartao() + String.format("%0" + (16 - configuracao.getPrefixoCartao().length()) + "d", i))
+                .toList();
+        try {
+            List<String> existentes = cartoes.stream().filter(this::existe).toList();
+            if (!existentes.isEmpty()) {
+                log.warn("Aquecimento com cartões sintéticos não executado: os cartões {} já existem no banco", existentes);
+                return;
+            }
+            transacaoDescartada.executeWithoutResult(transacao -> {
+                transacao.setRollbackOnly();
+                cartoes.forEach(numeroCartao -> operacao(() -> cartaoService.criarCartao(new CartaoRequest(numeroCartao, SENHA))));
+                medir(cartoes);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Aquecimento com cartões sintéticos interrompido", e);
+        } finally {
+            // Os caches de saldos e senhas podem ter lido os cartões desfeitos pelo rollback
+            for (String numeroCartao : cartoes) {
+                cacheSaldos.invalidarAposCommit(numeroCartao);
+                verificadorSenha.invalidar(numeroCartao);
+            }
+        }
+    }
+
+    private boolean existe(String numeroCartao) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao WHERE numero_cartao = ?", Integer.class, numeroCartao) > 0;
+    }
+
+    private void medir(List<String> cartoes) {
+        List<TransacaoRequest> lote = cartoes.stream().map(numeroCartao -> debito(numeroCartao, SENHA, VALOR)).toList();
+        long[] janela = new long[configuracao.getJanela()];
+        long limite = System.nanoTime() + configuracao.getDuracaoMaxima().toNanos();
+        long menorP99 = Long.MAX_VALUE;
+        int estaveis = 0;
+        int i = 0;
+
+        for (; i < configuracao.getTransacoes() && System.nanoTime() < limite && estaveis < JANELAS_ESTAVEIS; i++) {
+            String numeroCartao = cartoes.get(i % cartoes.size());
+            long inicio = System.nanoTime();
+            operacao(() -> cartaoService.realizarTransacao(debito(numeroCartao, SENHA, VALOR)));
+            janela[i % janela.length] = System.nanoTime() - inicio;
+
+            operacao(() -> cartaoService.realizarTransacao(debito(numeroCartao, SENHA_INCORRETA, VALOR)));
+            operacao(() -> cartaoService.realizarTransacao(debito(numeroCartao, SENHA, VALOR_ACIMA_DO_SALDO)));
+            operacao(() -> cartaoService.obterSaldo(numeroCartao));
+            if (i % janela.length == 0) {
+                operacao(() -> cartaoService.realizarTransacoes(lote));
+            }
+
+            if ((i + 1) % janela.length == 0) {
+                long p99 = p99(janela);
+                if (p99InicialSegundos == 0) {
+                    p99InicialSegundos = p99 / 1e9;
+                }
+                p99FinalSegundos = p99 / 1e9;
+                menorP99 = Math.min(menorP99, p99);
+                estaveis = p99 <= menorP99 * 1.1 ? estaveis + 1 : 0;
+            }
+        }
+        transacoesExecutadas = i;
+
+        log.info("p99 dos débitos no aquecimento: {} µs na primeira janela e {} µs na última, após {} débitos ({})",
+                Math.round(p99InicialSegundos * 1e6), Math.round(p99FinalSegundos * 1e6), i,
+                estaveis == JANELAS_ESTAVEIS ? "estabilizado" : "não estabilizado");
+    }
+
+    /**
+     * Grava e descarta o contexto de persistência após cada operação, como o commit de uma
+     * requisição, para que a seguinte leia os cartões do banco, ainda dentro da transação.
+     */
+    private <T> T operacao(Supplier<T> acao) {
+        T resultado = acao.get();
+        entityManager.flush();
+        entityManager.clear();
+        return resultado;
+    }
+
+    private static long p99(long[] duracoes) {
+        long[] ordenadas = duracoes.clone();
+        Arrays.sort(ordenadas);
+        return ordenadas[(int) Math.ceil(ordenadas.length * 0.99) - 1];
+    }
+
+    private static TransacaoRequest debito(String numeroCartao, String senha, BigDecimal valor) {
+        return TransacaoRequest.builder()
+                .numeroCartao(numeroCartao)
+                .senhaCartao(senha)
+                .valor(valor)
+                .build();
+    }
+}
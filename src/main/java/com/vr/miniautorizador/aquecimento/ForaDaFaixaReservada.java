@@ -0,0 +1,25 @@
+package com.vr.miniautorizador.aquecimento;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Número de cartão fora da faixa {@code autorizador.aquecimento.prefixo-cartao}, reservada aos
+ * cartões sintéticos do {@link AquecimentoAplicacao}.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ForaDaFaixaReservadaValidator.class)
+public @interface ForaDaFaixaReservada {
+
+    String message() default "Número do cartão reservado ao aquecimento";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
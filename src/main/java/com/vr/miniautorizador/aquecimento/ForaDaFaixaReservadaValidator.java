@@ -0,0 +1,22 @@
+package com.vr.miniautorizador.aquecimento;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Criado pelo Spring, que injeta a configuração do aquecimento.
+ */
+public class ForaDaFaixaReservadaValidator implements ConstraintValidator<ForaDaFaixaReservada, String> {
+
+    private final String prefixo;
+
+    public ForaDaFaixaReservadaValidator(AutorizadorProperties properties) {
+        this.prefixo = properties.getAquecimento().getPrefixoCartao();
+    }
+
+    @Override
+    public boolean isValid(String numeroCartao, ConstraintValidatorContext context) {
+        return numeroCartao == null || prefixo.isEmpty() || !numeroCartao.startsWith(prefixo);
+    }
+}
@@ -0,0 +1,93 @@
+package com.vr.miniautorizador.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.OptionalLong;
+import java.util.function.Function;
+
+/**
+ * Cache read-through dos saldos, limitado por tamanho e TTL, usado pelos motores que consultam
+ * o banco. Os débitos atualizam ou invalidam a entrada somente após o commit; como a carga e a
+ * atualização de uma mesma chave são serializadas pelo Caffeine, uma leitura concorrente não
+ * sobrescreve o saldo de um débito já confirmado neste nó. Os callbacks de commit de dois débitos
+ * do mesmo cartão podem rodar fora da ordem dos commits; como os saldos só diminuem (o que os
+ * aumenta invalida a entrada), a atualização mantém o menor dos dois.
+ *
+ * <p>Acertos, faltas e remoções são publicados como métricas {@code cache.*{cache="saldos"}}.
+ */
+@Component
+public class CacheSaldos {
+
+    private final boolean habilitado;
+    private final Cache<String, Long> saldos;
+
+    public CacheSaldos(AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        AutorizadorProperties.CacheSaldo configuracao = properties.getCacheSaldo();
+
+        this.habilitado = configuracao.isHabilitado();
+        this.saldos = Caffeine.newBuilder()
+                .maximumSize(configuracao.getTamanhoMaximo())
+                .expireAfterWrite(configuracao.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, saldos, "saldos");
+    }
+
+    public OptionalLong obter(String numeroCartao, Function<String, OptionalLong> carregar) {
+        if (!habilitado) {
+            return carregar.apply(numeroCartao);
+        }
+        Long saldo = saldos.get(numeroCartao, numero -> {
+            OptionalLong carregado = carregar.apply(numero);
+            return carregado.isPresent() ? carregado.getAsLong() : null;
+        });
+        return saldo == null ? OptionalLong.empty() : OptionalLong.of(saldo);
+    }
+
+    public void atualizarAposCommit(String numeroCartao, long saldoCentavos) {
+        aposCommit(() -> saldos.asMap().merge(numeroCartao, saldoCentavos, Math::min));
+    }
+
+    public void invalidarAposCommit(String numeroCartao) {
+        aposCommit(() -> saldos.invalidate(numeroCartao));
+    }
+
+    /**
+     * Descarta todas as entradas, por exemplo após alterações feitas diretamente no banco.
+     */
+    public void limpar() {
+        saldos.invalidateAll();
+    }
+
+    @TransactionalEventListener
+    public void onCartaoCriado(CartaoCriadoEvent event) {
+        if (habilitado) {
+            saldos.put(event.getCartao().getNumeroCartao(), event.getCartao().getSaldoCentavos());
+        }
+    }
+
+    private void aposCommit(Runnable acao) {
+        if (!habilitado) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
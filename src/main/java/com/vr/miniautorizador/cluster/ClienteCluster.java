@@ -0,0 +1,116 @@
+package com.vr.miniautorizador.cluster;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TopologiaRequest;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.ClusterIndisponivelException;
+import com.vr.miniautorizador.exception.NoIncorretoException;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+/**
+ * Chamadas aos endpoints {@code /interno} dos outros nós, sobre conexões HTTP/1.1 mantidas pelo
+ * {@link HttpClient} do JDK. Um {@code 421} vira {@link NoIncorretoException} e um {@code 503},
+ * recusa do outro nó antes de executar a operação, vira {@link TransacaoNaoExecutadaException};
+ * falhas de rede e os demais erros viram {@link ClusterIndisponivelException}.
+ */
+@Component
+@ConditionalOnProperty(name = "autorizador.cluster.habilitado", havingValue = "true")
+public class ClienteCluster {
+
+    private static final ParameterizedTypeReference<List<TransacaoStatus>> LISTA_STATUS = new ParameterizedTypeReference<>() {
+    };
+
+    private final RestClient restClient;
+
+    public ClienteCluster(AutorizadorProperties properties, RestClient.Builder builder) {
+        Duration timeout = properties.getCluster().getTimeout();
+        JdkClientHttpRequestFactory fabrica = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build());
+        fabrica.setReadTimeout(timeout);
+        this.restClient = builder.requestFactory(fabrica).build();
+    }
+
+    TransacaoStatus realizarTransacao(String no, TransacaoRequest request) {
+        return TransacaoStatus.valueOf(chamar(no, request.getNumeroCartao(), () -> restClient.post()
+                .uri(no + "/interno/transacoes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .body(String.class)));
+    }
+
+    List<TransacaoStatus> realizarTransacoes(String no, List<TransacaoRequest> requests) {
+        return chamar(no, requests.get(0).getNumeroCartao(), () -> restClient.post()
+                .uri(no + "/interno/transacoes/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requests)
+                .retrieve()
+                .body(LISTA_STATUS));
+    }
+
+    OptionalLong obterSaldo(String no, String numeroCartao) {
+        Long saldo = chamar(no, numeroCartao, () -> restClient.get()
+                .uri(no + "/interno/cartoes/{numeroCartao}", numeroCartao)
+                .retrieve()
+                .onStatus(status -> status.value() == HttpStatus.NOT_FOUND.value(), (request, response) -> {
+                })
+                .body(Long.class));
+        return saldo == null ? OptionalLong.empty() : OptionalLong.of(saldo);
+    }
+
+    void preparar(String no, List<String> nos) {
+        enviar(no, "/interno/cluster/preparar", new TopologiaRequest(nos));
+    }
+
+    void concluir(String no) {
+        enviar(no, "/interno/cluster/concluir", null);
+    }
+
+    void cancelar(String no) {
+        enviar(no, "/interno/cluster/cancelar", null);
+    }
+
+    private void enviar(String no, String caminho, Object corpo) {
+        chamar(no, null, () -> {
+            RestClient.RequestBodySpec requisicao = restClient.post().uri(no + caminho);
+            if (corpo != null) {
+                requisicao.contentType(MediaType.APPLICATION_JSON).body(corpo);
+            }
+            return requisicao.retrieve().toBodilessEntity();
+        });
+    }
+
+    private static <T> T chamar(String no, String numeroCartao, Supplier<T> chamada) {
+        try {
+            return chamada.get();
+        } catch (RestClientResponseException e) {
+            if (e.getStatusCode().value() == 421) {
+                throw new NoIncorretoException(numeroCartao);
+            }
+            if (e.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                throw new TransacaoNaoExecutadaException("O nó " + no + " recusou a operação", e);
+            }
+            throw new ClusterIndisponivelException("O nó " + no + " respondeu " + e.getStatusCode().value(), e);
+        } catch (ResourceAccessException e) {
+            throw new ClusterIndisponivelException("O nó " + no + " não está acessível", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.vr.miniautorizador.cluster;
+
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.NoIncorretoException;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.motor.MotorAutorizacaoMemoria;
+import com.vr.miniautorizador.service.MotorAutorizacao;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Motor usado em cluster, na frente do {@link MotorAutorizacaoMemoria} deste nó: as operações
+ * sobre cartões de outros nós são encaminhadas ao dono pelo {@link ClienteCluster}. Se o dono
+ * recusar a operação por ter mudado durante um rebalanceamento, ela é repetida uma vez com a
+ * topologia atualizada.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "autorizador.cluster.habilitado", havingValue = "true")
+public class MotorAutorizacaoParticionado implements MotorAutorizacao {
+
+    private final MotorAutorizacaoMemoria memoria;
+    private final ParticionamentoCluster particionamento;
+    private final ClienteCluster cliente;
+
+    public MotorAutorizacaoParticionado(ObjectProvider<MotorAutorizacaoMemoria> memoria,
+                                        ParticionamentoCluster particionamento, ClienteCluster cliente) {
+        this.memoria = memoria.getObject();
+        this.particionamento = particionamento;
+        this.cliente = cliente;
+    }
+
+    @Override
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        return encaminhar(request.getNumeroCartao(),
+                () -> memoria.realizarTransacao(request),
+                no -> cliente.realizarTransacao(no, request));
+    }
+
+    /**
+     * Envia um único lote a cada nó envolvido; a ordem entre as transações de um mesmo cartão é
+     * mantida porque todas vão para o mesmo nó.
+     */
+    @Override
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        TransacaoStatus[] resultados = new TransacaoStatus[requests.size()];
+        particionamento.agrupar(requests.stream().map(TransacaoRequest::getNumeroCartao).toList())
+                .forEach((no, posicoes) -> {
+                    List<TransacaoRequest> grupo = posicoes.stream().map(requests::get).toList();
+                    List<TransacaoStatus> obtidos;
+                    try {
+                        obtidos = particionamento.local(no)
+                                ? realizarTransacoesLocal(grupo)
+                                : cliente.realizarTransacoes(no, grupo);
+                    } catch (NoIncorretoException e) {
+                        obtidos = grupo.stream().map(this::realizarTransacao).toList();
+                    }
+                    for (int i = 0; i < posicoes.size(); i++) {
+                        resultados[posicoes.get(i)] = obtidos.get(i);
+                    }
+                });
+        return Arrays.asList(resultados);
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        return encaminhar(numeroCartao,
+                () -> memoria.obterSaldo(numeroCartao),
+                no -> cliente.obterSaldo(no, numeroCartao));
+    }
+
+    /**
+     * Operações encaminhadas por outros nós, executadas somente aqui.
+     */
+    public TransacaoStatus realizarTransacaoLocal(TransacaoRequest request) {
+        return particionamento.executarLocal(List.of(request.getNumeroCartao()), () -> memoria.realizarTransacao(request));
+    }
+
+    public List<TransacaoStatus> realizarTransacoesLocal(List<TransacaoRequest> requests) {
+        return particionamento.executarLocal(requests.stream().map(TransacaoRequest::getNumeroCartao).toList(),
+                () -> memoria.realizarTransacoes(requests));
+    }
+
+    public OptionalLong obterSaldoLocal(String numeroCartao) {
+        return particionamento.executarLocal(List.of(numeroCartao), () -> memoria.obterSaldo(numeroCartao));
+    }
+
+    private <T> T encaminhar(String numeroCartao, Supplier<T> local, Function<String, T> remoto) {
+        try {
+            return particionamento.executar(numeroCartao, local, remoto);
+        } catch (NoIncorretoException e) {
+            try {
+                return particionamento.executar(numeroCartao, local, remoto);
+            } catch (NoIncorretoException repetida) {
+                throw new TransacaoNaoExecutadaException("Nós divergem sobre o responsável pelo cartão " + numeroCartao, repetida);
+            }
+        }
+    }
+}
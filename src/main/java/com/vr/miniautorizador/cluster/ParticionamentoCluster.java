@@ -0,0 +1,316 @@
+package com.vr.miniautorizador.cluster;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TopologiaResponse;
+import com.vr.miniautorizador.exception.ClusterIndisponivelException;
+import com.vr.miniautorizador.exception.NoIncorretoException;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.motor.MotorAutorizacaoMemoria;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Topologia do cluster vista por este nó. Cada cartão pertence a uma partição e cada partição a um
+ * único nó ({@link TopologiaCluster}); só o dono mantém o cartão no {@link MotorAutorizacaoMemoria}
+ * e os demais encaminham as operações a ele.
+ *
+ * <p>O rebalanceamento tem duas fases, coordenadas por {@link #rebalancear(List)}. Em
+ * {@link #preparar(List)} cada nó suspende as partições que mudam de dono, aguarda as operações
+ * locais em andamento, grava no banco os saldos dos cartões dessas partições e os remove da
+ * memória. Só depois que todos os nós prepararam, {@link #concluir()} adota a nova topologia e
+ * libera as partições; o novo dono então carrega os cartões do banco. Operações sobre partições
+ * suspensas aguardam até {@code autorizador.cluster.timeout}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "autorizador.cluster.habilitado", havingValue = "true")
+public class ParticionamentoCluster {
+
+    private final String noLocal;
+    private final int particoes;
+    private final Duration timeout;
+    private final MotorAutorizacaoMemoria memoria;
+    private final ClienteCluster cliente;
+    private final Lock leitura;
+    private final Lock escrita;
+    private final Object monitor = new Object();
+    private final Object coordenacao = new Object();
+
+    private volatile TopologiaCluster atual;
+    private volatile boolean[] suspensas;
+    private TopologiaCluster pendente;
+    private boolean ingressando;
+
+    public ParticionamentoCluster(AutorizadorProperties properties, ObjectProvider<MotorAutorizacaoMemoria> memoria,
+                                  ClienteCluster cliente) {
+        AutorizadorProperties.Cluster cluster = properties.getCluster();
+        if (properties.getMotor() != AutorizadorProperties.Motor.MEMORIA) {
+            throw new IllegalStateException("O cluster mantém os saldos em memória e requer o motor memoria");
+        }
+        if (cluster.getNoLocal() == null || !normalizar(cluster.getNos()).contains(normalizar(cluster.getNoLocal()))) {
+            throw new IllegalStateException("autorizador.cluster.no-local deve ser um dos nós em autorizador.cluster.nos");
+        }
+
+        this.noLocal = normalizar(cluster.getNoLocal());
+        this.particoes = cluster.getParticoes();
+        this.timeout = cluster.getTimeout();
+        this.memoria = memoria.getObject();
+        this.cliente = cliente;
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.leitura = lock.readLock();
+        this.escrita = lock.writeLock();
+        this.atual = new TopologiaCluster(normalizar(cluster.getNos()), particoes);
+        this.ingressando = cluster.isIngressando();
+        this.suspensas = ingressando ? locais(atual) : new boolean[particoes];
+    }
+
+    /**
+     * Se este nó é o dono do cartão e a partição não está suspensa.
+     */
+    public boolean responsavel(String numeroCartao) {
+        int particao = atual.particao(numeroCartao);
+        return !suspensas[particao] && atual.dono(particao).equals(noLocal);
+    }
+
+    /**
+     * Executa {@code local} se este nó for o dono do cartão, ou {@code remoto} com a URL do dono.
+     * Uma operação local nunca é executada durante a troca de topologia.
+     */
+    public <T> T executar(String numeroCartao, Supplier<T> local, Function<String, T> remoto) {
+        int particao = atual.particao(numeroCartao);
+        while (true) {
+            aguardar(particao);
+            String dono;
+            leitura.lock();
+            try {
+                if (suspensas[particao]) {
+                    continue;
+                }
+                dono = atual.dono(particao);
+                if (dono.equals(noLocal)) {
+                    return local.get();
+                }
+            } finally {
+                leitura.unlock();
+            }
+            return remoto.apply(dono);
+        }
+    }
+
+    /**
+     * Executa uma operação encaminhada por outro nó, se este nó for o dono de todos os cartões.
+     *
+     * @throws NoIncorretoException se algum cartão pertence a outro nó na topologia deste nó
+     */
+    public <T> T executarLocal(Collection<String> numerosCartao, Supplier<T> local) {
+        while (true) {
+            numerosCartao.forEach(numeroCartao -> aguardar(atual.particao(numeroCartao)));
+            leitura.lock();
+            try {
+                boolean[] suspensasAgora = suspensas;
+                boolean suspensa = false;
+                for (String numeroCartao : numerosCartao) {
+                    int particao = atual.particao(numeroCartao);
+                    suspensa |= suspensasAgora[particao];
+                    if (!suspensasAgora[particao] && !atual.dono(particao).equals(noLocal)) {
+                        throw new NoIncorretoException(numeroCartao);
+                    }
+                }
+                if (!suspensa) {
+                    return local.get();
+                }
+            } finally {
+                leitura.unlock();
+            }
+        }
+    }
+
+    /**
+     * Agrupa as posições de {@code numerosCartao} pelo nó dono, na ordem da primeira ocorrência.
+     */
+    public Map<String, List<Integer>> agrupar(List<String> numerosCartao) {
+        Map<String, List<Integer>> grupos = new LinkedHashMap<>();
+        for (int i = 0; i < numerosCartao.size(); i++) {
+            int particao = atual.particao(numerosCartao.get(i));
+            aguardar(particao);
+            grupos.computeIfAbsent(atual.dono(particao), no -> new ArrayList<>()).add(i);
+        }
+        return grupos;
+    }
+
+    public boolean local(String no) {
+        return noLocal.equals(no);
+    }
+
+    /**
+     * Primeira fase do rebalanceamento para a topologia {@code nos}.
+     */
+    public synchronized void preparar(List<String> nos) {
+        TopologiaCluster nova = new TopologiaCluster(normalizar(nos), particoes);
+        TopologiaCluster anterior = atual;
+        boolean[] transferidas = anterior.particoesTransferidas(nova);
+
+        escrita.lock();
+        try {
+            pendente = nova;
+            boolean[] novasSuspensas = suspensas.clone();
+            for (int particao = 0; particao < particoes; particao++) {
+                novasSuspensas[particao] |= transferidas[particao];
+            }
+            suspensas = novasSuspensas;
+        } finally {
+            escrita.unlock();
+        }
+
+        int liberados = memoria.liberar(numeroCartao -> transferidas[anterior.particao(numeroCartao)]);
+        log.info("Rebalanceamento preparado para {}: {} cartões liberados", nova.getNos(), liberados);
+    }
+
+    /**
+     * Segunda fase: adota a topologia preparada e libera as partições suspensas.
+     */
+    public synchronized void concluir() {
+        trocar(pendente != null ? pendente : atual, new boolean[particoes]);
+        ingressando = false;
+        log.info("Topologia {} adotada", atual.getNos());
+    }
+
+    /**
+     * Descarta a topologia preparada. Os cartões liberados são carregados de novo do banco.
+     */
+    public synchronized void cancelar() {
+        trocar(atual, ingressando ? locais(atual) : new boolean[particoes]);
+        log.info("Rebalanceamento cancelado; topologia {} mantida", atual.getNos());
+    }
+
+    /**
+     * Prepara todos os nós da topologia atual e de {@code nos} e, se todos prepararem, conclui em
+     * todos. Se algum nó falhar na preparação, os já preparados são cancelados.
+     */
+    public void rebalancear(List<String> nos) {
+        synchronized (coordenacao) {
+            List<String> novos = normalizar(nos);
+            Set<String> participantes = new LinkedHashSet<>(atual.getNos());
+            participantes.addAll(novos);
+
+            List<String> preparados = new ArrayList<>();
+            try {
+                for (String no : participantes) {
+                    cliente.preparar(no, novos);
+                    preparados.add(no);
+                }
+            } catch (RuntimeException e) {
+                preparados.forEach(this::cancelarEm);
+                throw e;
+            }
+
+            List<String> falhas = new ArrayList<>();
+            for (String no : participantes) {
+                try {
+                    cliente.concluir(no);
+                } catch (RuntimeException e) {
+                    log.error("Falha ao concluir o rebalanceamento em {}", no, e);
+                    falhas.add(no);
+                }
+            }
+            if (!falhas.isEmpty()) {
+                throw new ClusterIndisponivelException("Rebalanceamento não concluído em " + falhas
+                        + "; repita a chamada com a mesma lista de nós");
+            }
+        }
+    }
+
+    public TopologiaResponse topologia() {
+        TopologiaCluster topologia = atual;
+        boolean[] suspensasAgora = suspensas;
+        int locais = 0;
+        int suspensasTotal = 0;
+        for (int particao = 0; particao < particoes; particao++) {
+            locais += topologia.dono(particao).equals(noLocal) ? 1 : 0;
+            suspensasTotal += suspensasAgora[particao] ? 1 : 0;
+        }
+        return TopologiaResponse.builder()
+                .noLocal(noLocal)
+                .nos(topologia.getNos())
+                .particoes(particoes)
+                .particoesLocais(locais)
+                .particoesSuspensas(suspensasTotal)
+                .build();
+    }
+
+    private void cancelarEm(String no) {
+        try {
+            cliente.cancelar(no);
+        } catch (RuntimeException e) {
+            log.error("Falha ao cancelar o rebalanceamento em {}", no, e);
+        }
+    }
+
+    private void trocar(TopologiaCluster topologia, boolean[] novasSuspensas) {
+        escrita.lock();
+        try {
+            atual = topologia;
+            pendente = null;
+            suspensas = novasSuspensas;
+        } finally {
+            escrita.unlock();
+        }
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    private void aguardar(int particao) {
+        if (!suspensas[particao]) {
+            return;
+        }
+        long limite = System.nanoTime() + timeout.toNanos();
+        synchronized (monitor) {
+            while (suspensas[particao]) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) {
+                    throw new TransacaoNaoExecutadaException("Partição " + particao + " em transferência");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(monitor, restante);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransacaoNaoExecutadaException("Interrompido aguardando a partição " + particao, e);
+                }
+            }
+        }
+    }
+
+    private boolean[] locais(TopologiaCluster topologia) {
+        boolean[] locais = new boolean[particoes];
+        for (int particao = 0; particao < particoes; particao++) {
+            locais[particao] = topologia.dono(particao).equals(noLocal);
+        }
+        return locais;
+    }
+
+    private static List<String> normalizar(List<String> nos) {
+        return nos.stream().map(ParticionamentoCluster::normalizar).distinct().toList();
+    }
+
+    private static String normalizar(String no) {
+        String url = no.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
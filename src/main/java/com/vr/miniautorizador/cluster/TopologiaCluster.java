@@ -0,0 +1,85 @@
+package com.vr.miniautorizador.cluster;
+
+import java.util.List;
+
+/**
+ * Distribuição de um número fixo de partições entre os nós, por rendezvous hashing: cada partição
+ * pertence ao nó com o maior hash de (nó, partição). Ao adicionar ou remover um nó, mudam de dono
+ * apenas as partições que ele ganha ou perde, em média {@code 1/n} do total.
+ */
+public final class TopologiaCluster {
+
+    private final List<String> nos;
+    private final int[] donos;
+
+    public TopologiaCluster(List<String> nos, int particoes) {
+        if (nos.isEmpty()) {
+            throw new IllegalArgumentException("O cluster precisa de ao menos um nó");
+        }
+        if (particoes <= 0) {
+            throw new IllegalArgumentException("Quantidade de partições inválida: " + particoes);
+        }
+        this.nos = List.copyOf(nos);
+        this.donos = new int[particoes];
+
+        long[] hashes = this.nos.stream().mapToLong(TopologiaCluster::hash).toArray();
+        for (int particao = 0; particao < particoes; particao++) {
+            long maior = Long.MIN_VALUE;
+            for (int no = 0; no < hashes.length; no++) {
+                long peso = misturar(hashes[no] ^ (particao * 0x9E3779B97F4A7C15L));
+                if (peso > maior || no == 0) {
+                    maior = peso;
+                    donos[particao] = no;
+                }
+            }
+        }
+    }
+
+    public int particao(String numeroCartao) {
+        return (int) Long.remainderUnsigned(misturar(hash(numeroCartao)), donos.length);
+    }
+
+    public String dono(int particao) {
+        return nos.get(donos[particao]);
+    }
+
+    public List<String> getNos() {
+        return nos;
+    }
+
+    public int getParticoes() {
+        return donos.length;
+    }
+
+    /**
+     * Partições cujo dono em {@code nova} é diferente do dono nesta topologia.
+     */
+    public boolean[] particoesTransferidas(TopologiaCluster nova) {
+        if (nova.donos.length != donos.length) {
+            throw new IllegalArgumentException("As topologias têm quantidades de partições diferentes");
+        }
+        boolean[] transferidas = new boolean[donos.length];
+        for (int particao = 0; particao < donos.length; particao++) {
+            transferidas[particao] = !dono(particao).equals(nova.dono(particao));
+        }
+        return transferidas;
+    }
+
+    private static long hash(String valor) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            hash ^= valor.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
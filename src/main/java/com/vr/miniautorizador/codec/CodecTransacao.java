@@ -0,0 +1,234 @@
+package com.vr.miniautorizador.codec;
+
+import com.vr.miniautorizador.dto.Centavos;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Leitura do corpo de {@code POST /transacoes} e escrita das respostas de transações e saldos
+ * direto em bytes, sem Jackson nem Bean Validation.
+ *
+ * <p>Só o formato comum é lido: um objeto com {@code numeroCartao}, {@code senhaCartao} e
+ * {@code valor}, uma única vez cada e em qualquer ordem, com textos sem escapes e valor numérico
+ * sem expoente. As regras do {@link TransacaoRequest} são aplicadas na leitura. Qualquer outro
+ * corpo, válido ou não, resulta em {@code null}, e quem chama segue pelo caminho do Spring MVC,
+ * que aceita ou rejeita o corpo como antes.
+ */
+public final class CodecTransacao {
+
+    private static final byte[] NUMERO_CARTAO = "numeroCartao".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SENHA_CARTAO = "senhaCartao".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALOR = "valor".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TAMANHO_MAXIMO_CARTAO = 16;
+    private static final int DIGITOS_INTEIROS = 16;
+    private static final int CASAS_DECIMAIS = 2;
+
+    private static final byte[][] STATUS = new byte[TransacaoStatus.values().length][];
+
+    static {
+        for (TransacaoStatus status : TransacaoStatus.values()) {
+            STATUS[status.ordinal()] = status.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private CodecTransacao() {
+    }
+
+    /**
+     * Transação lida de {@code corpo[0, tamanho)}, ou {@code null} se o corpo estiver fora do
+     * formato comum ou não passar na validação.
+     */
+    public static TransacaoRequest ler(byte[] corpo, int tamanho) {
+        Leitor leitor = new Leitor(corpo, tamanho);
+        String numeroCartao = null;
+        String senhaCartao = null;
+        long valorCentavos = -1;
+
+        if (!leitor.consumir('{')) {
+            return null;
+        }
+        do {
+            int inicioChave = leitor.texto();
+            if (inicioChave < 0 || !leitor.consumir(':')) {
+                return null;
+            }
+            if (leitor.chave(inicioChave, NUMERO_CARTAO) && numeroCartao == null) {
+                numeroCartao = leitor.valorTexto();
+                if (numeroCartao == null || numeroCartao.length() > TAMANHO_MAXIMO_CARTAO) {
+                    return null;
+                }
+            } else if (leitor.chave(inicioChave, SENHA_CARTAO) && senhaCartao == null) {
+                senhaCartao = leitor.valorTexto();
+                if (senhaCartao == null) {
+                    return null;
+                }
+            } else if (leitor.chave(inicioChave, VALOR) && valorCentavos < 0) {
+                valorCentavos = leitor.valorCentavos();
+                if (valorCentavos < 0) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        } while (leitor.consumir(','));
+
+        if (!leitor.consumir('}') || !leitor.fim()
+                || numeroCartao == null || senhaCartao == null || valorCentavos <= 0) {
+            return null;
+        }
+        return TransacaoRequest.builder()
+                .numeroCartao(numeroCartao)
+                .senhaCartao(senhaCartao)
+                .valor(Centavos.emReais(valorCentavos))
+                .build();
+    }
+
+    /**
+     * Corpo da resposta de uma transação; o array é compartilhado e não deve ser alterado.
+     */
+    public static byte[] status(TransacaoStatus status) {
+        return STATUS[status.ordinal()];
+    }
+
+    /**
+     * Saldo em reais com duas casas decimais, como o Jackson escreve o {@code BigDecimal}.
+     */
+    public static byte[] saldo(long centavos) {
+        byte[] digitos = new byte[21];
+        int inicio = digitos.length;
+        long restante = Math.abs(centavos);
+        for (int i = 0; i < CASAS_DECIMAIS; i++) {
+            digitos[--inicio] = (byte) ('0' + restante % 10);
+            restante /= 10;
+        }
+        digitos[--inicio] = '.';
+        do {
+            digitos[--inicio] = (byte) ('0' + restante % 10);
+            restante /= 10;
+        } while (restante > 0);
+        if (centavos < 0) {
+            digitos[--inicio] = '-';
+        }
+        byte[] saldo = new byte[digitos.length - inicio];
+        System.arraycopy(digitos, inicio, saldo, 0, saldo.length);
+        return saldo;
+    }
+
+    private static final class Leitor {
+
+        private final byte[] corpo;
+        private final int tamanho;
+        private int posicao;
+        private int fimTexto;
+
+        private Leitor(byte[] corpo, int tamanho) {
+            this.corpo = corpo;
+            this.tamanho = tamanho;
+        }
+
+        boolean consumir(char esperado) {
+            pularEspacos();
+            if (posicao < tamanho && corpo[posicao] == esperado) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean fim() {
+            pularEspacos();
+            return posicao == tamanho;
+        }
+
+        /**
+         * Lê um texto sem escapes e retorna a posição do seu primeiro byte, ou {@code -1}; o fim
+         * fica em {@code fimTexto}.
+         */
+        int texto() {
+            if (!consumir('"')) {
+                return -1;
+            }
+            int inicio = posicao;
+            while (posicao < tamanho) {
+                byte atual = corpo[posicao++];
+                if (atual == '"') {
+                    fimTexto = posicao - 1;
+                    return inicio;
+                }
+                if (atual == '\\' || (atual >= 0 && atual < 0x20)) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        boolean chave(int inicio, byte[] esperada) {
+            return fimTexto - inicio == esperada.length
+                    && Arrays.equals(corpo, inicio, fimTexto, esperada, 0, esperada.length);
+        }
+
+        /**
+         * Texto com ao menos um caractere que não seja espaço ({@code @NotBlank}), ou {@code null}.
+         */
+        String valorTexto() {
+            int inicio = texto();
+            if (inicio < 0) {
+                return null;
+            }
+            String texto = new String(corpo, inicio, fimTexto - inicio, StandardCharsets.UTF_8);
+            return texto.isBlank() ? null : texto;
+        }
+
+        /**
+         * Número positivo com até 16 dígitos inteiros e 2 casas decimais, em centavos, ou
+         * {@code -1}. Zero é retornado como tal e recusado por quem chama ({@code @Positive}).
+         */
+        long valorCentavos() {
+            pularEspacos();
+            int inicio = posicao;
+            long inteiros = 0;
+            while (posicao < tamanho && corpo[posicao] >= '0' && corpo[posicao] <= '9') {
+                inteiros = inteiros * 10 + (corpo[posicao++] - '0');
+            }
+            int digitosInteiros = posicao - inicio;
+            // Zeros à esquerda não são JSON válido e o sinal negativo não passaria em @Positive
+            if (digitosInteiros == 0 || digitosInteiros > DIGITOS_INTEIROS
+                    || (digitosInteiros > 1 && corpo[inicio] == '0')) {
+                return -1;
+            }
+
+            long centavos = inteiros * 100;
+            if (posicao < tamanho && corpo[posicao] == '.') {
+                posicao++;
+                int inicioDecimais = posicao;
+                long peso = 10;
+                while (posicao < tamanho && corpo[posicao] >= '0' && corpo[posicao] <= '9') {
+                    centavos += (corpo[posicao++] - '0') * peso;
+                    peso /= 10;
+                }
+                int casas = posicao - inicioDecimais;
+                if (casas == 0 || casas > CASAS_DECIMAIS) {
+                    return -1;
+                }
+            }
+            if (posicao < tamanho && (corpo[posicao] == 'e' || corpo[posicao] == 'E')) {
+                return -1;
+            }
+            return centavos;
+        }
+
+        private void pularEspacos() {
+            while (posicao < tamanho) {
+                byte atual = corpo[posicao];
+                if (atual != ' ' && atual != '\t' && atual != '\n' && atual != '\r') {
+                    return;
+                }
+                posicao++;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.vr.miniautorizador.codec;
+
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.service.CartaoService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Atende {@code POST /transacoes} e {@code GET /cartoes/{numeroCartao}} sem passar pelo Spring MVC:
+ * o corpo é lido pelo {@link CodecTransacao} e a resposta é escrita em bytes já codificados.
+ * Requisições fora do formato comum (corpo que o codec não lê, {@code Idempotency-Key} inválida,
+ * outros tipos de conteúdo) seguem para os controllers com o corpo já lido, e as respostas de erro
+ * continuam as mesmas. Exceções do serviço são tratadas pelo {@link HandlerExceptionResolver} do
+ * Spring MVC, que aplica o {@code GlobalExceptionHandler}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "autorizador.codec.habilitado", havingValue = "true", matchIfMissing = true)
+public class CodecTransacaoFilter extends OncePerRequestFilter {
+
+    private static final String TRANSACOES = "/transacoes";
+    private static final String CARTOES = "/cartoes/";
+    private static final String CARTAO = "/cartoes/{numeroCartao}";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String APPLICATION_JSON = "application/json";
+    private static final String TEXT_PLAIN = "text/plain";
+    private static final String TEXT_PLAIN_UTF8 = "text/plain;charset=UTF-8";
+    private static final int TAMANHO_MAXIMO_CORPO = 1024;
+    private static final int TAMANHO_MAXIMO_CHAVE = 64;
+
+    private final CartaoService cartaoService;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public CodecTransacaoFilter(CartaoService cartaoService,
+                                @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.cartaoService = cartaoService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String caminho = caminho(request);
+        return !(caminho.equals(TRANSACOES) && request.getMethod().equals("POST"))
+                && !(caminho.startsWith(CARTOES) && request.getMethod().equals("GET"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (caminho(request).equals(TRANSACOES)) {
+            realizarTransacao(request, response, chain);
+        } else {
+            obterSaldo(request, response, chain);
+        }
+    }
+
+    private void realizarTransacao(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int tamanho = request.getContentLength();
+        String chaveIdempotencia = request.getHeader(IDEMPOTENCY_KEY);
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_CORPO || !json(request.getContentType())
+                || !aceita(request, TEXT_PLAIN)
+                || (chaveIdempotencia != null && (chaveIdempotencia.isEmpty() || chaveIdempotencia.length() > TAMANHO_MAXIMO_CHAVE))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        byte[] corpo = request.getInputStream().readNBytes(tamanho);
+        TransacaoRequest transacao = CodecTransacao.ler(corpo, corpo.length);
+        if (transacao == null) {
+            chain.doFilter(new CorpoLido(request, corpo), response);
+            return;
+        }
+
+        padraoObservado(request, TRANSACOES);
+        TransacaoStatus status;
+        try {
+            status = cartaoService.realizarTransacao(transacao, chaveIdempotencia);
+        } catch (RuntimeException e) {
+            tratar(request, response, e);
+            return;
+        }
+        escrever(response, status == TransacaoStatus.OK ? HttpStatus.CREATED : HttpStatus.UNPROCESSABLE_ENTITY,
+                TEXT_PLAIN_UTF8, CodecTransacao.status(status));
+    }
+
+    private void obterSaldo(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String numeroCartao = caminho(request).substring(CARTOES.length());
+        // Números que o Spring MVC decodificaria ou não mapearia para o endpoint seguem por ele
+        if (numeroCartao.isEmpty() || numeroCartao.indexOf('/') >= 0 || numeroCartao.indexOf('%') >= 0
+                || numeroCartao.indexOf(';') >= 0 || !aceita(request, APPLICATION_JSON)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        padraoObservado(request, CARTAO);
+        long saldo;
+        try {
+            saldo = cartaoService.obterSaldo(numeroCartao);
+        } catch (RuntimeException e) {
+            tratar(request, response, e);
+            return;
+        }
+        escrever(response, HttpStatus.OK, APPLICATION_JSON, CodecTransacao.saldo(saldo));
+    }
+
+    private void tratar(HttpServletRequest request, HttpServletResponse response, RuntimeException erro) {
+        if (exceptionResolver.resolveException(request, response, null, erro) == null) {
+            throw erro;
+        }
+    }
+
+    private static void escrever(HttpServletResponse response, HttpStatus status, String tipo, byte[] corpo)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(tipo);
+        response.setContentLength(corpo.length);
+        response.getOutputStream().write(corpo);
+    }
+
+    /**
+     * Informa às métricas {@code http.server.requests} o padrão que o Spring MVC teria mapeado.
+     */
+    private static void padraoObservado(HttpServletRequest request, String padrao) {
+        ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(contexto -> contexto.setPathPattern(padrao));
+    }
+
+    private static String caminho(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean json(String tipo) {
+        if (tipo == null || !tipo.regionMatches(true, 0, APPLICATION_JSON, 0, APPLICATION_JSON.length())) {
+            return false;
+        }
+        String parametros = tipo.substring(APPLICATION_JSON.length()).replace(" ", "");
+        return parametros.isEmpty() || parametros.equalsIgnoreCase(";charset=UTF-8");
+    }
+
+    private static boolean aceita(HttpServletRequest request, String tipo) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null || accept.contains("*/*") || accept.contains(tipo);
+    }
+
+    /**
+     * Requisição cujo corpo já foi lido pelo filtro e é entregue de novo aos controllers.
+     */
+    static final class CorpoLido extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoLido(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * O corpo já está todo em memória: o listener é chamado de imediato, e
+                 * {@code onAllDataRead} só depois de ele ter lido tudo.
+                 */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] destino, int inicio, int tamanho) {
+                    return entrada.read(destino, inicio, tamanho);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
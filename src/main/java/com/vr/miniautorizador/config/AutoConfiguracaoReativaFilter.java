@@ -0,0 +1,41 @@
+package com.vr.miniautorizador.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+/**
+ * Descarta a autoconfiguração do R2DBC, que está sempre no classpath, enquanto
+ * {@code autorizador.reativo.habilitado} não for {@code true}: sem a API reativa, nenhum
+ * {@code ConnectionFactory} nem o seu health indicator são iniciados contra o banco.
+ */
+public class AutoConfiguracaoReativaFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final Set<String> AUTO_CONFIGURACOES_R2DBC = Set.of(
+            "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+            "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.r2dbc.ConnectionFactoryHealthContributorAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.r2dbc.R2dbcObservationAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.metrics.r2dbc.ConnectionPoolMetricsAutoConfiguration");
+
+    private boolean reativo;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.reativo = environment.getProperty("autorizador.reativo.habilitado", Boolean.class, false);
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfiguracoes, AutoConfigurationMetadata metadados) {
+        boolean[] aceitas = new boolean[autoConfiguracoes.length];
+        for (int i = 0; i < autoConfiguracoes.length; i++) {
+            aceitas[i] = reativo || autoConfiguracoes[i] == null || !AUTO_CONFIGURACOES_R2DBC.contains(autoConfiguracoes[i]);
+        }
+        return aceitas;
+    }
+}
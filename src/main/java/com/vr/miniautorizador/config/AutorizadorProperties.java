@@ -0,0 +1,438 @@
+package com.vr.miniautorizador.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "autorizador")
+public class AutorizadorProperties {
+
+    /**
+     * Motor responsável por autorizar as transações.
+     */
+    private Motor motor = Motor.PESSIMISTA;
+
+    private Memoria memoria = new Memoria();
+
+    private Coalescente coalescente = new Coalescente();
+
+    private Adaptativo adaptativo = new Adaptativo();
+
+    private CacheSaldo cacheSaldo = new CacheSaldo();
+
+    private Concorrencia concorrencia = new Concorrencia();
+
+    private Reativo reativo = new Reativo();
+
+    private Metricas metricas = new Metricas();
+
+    private Senha senha = new Senha();
+
+    private Idempotencia idempotencia = new Idempotencia();
+
+    private Historico historico = new Historico();
+
+    private FiltroCartoes filtroCartoes = new FiltroCartoes();
+
+    private Cluster cluster = new Cluster();
+
+    private Aquecimento aquecimento = new Aquecimento();
+
+    public enum Motor {
+        /**
+         * Debita via JPA com {@code SELECT ... FOR UPDATE} no registro do cartão.
+         */
+        PESSIMISTA,
+
+        /**
+         * Debita com um único {@code UPDATE} condicionado à senha e ao saldo, sem lock prévio.
+         */
+        CONDICIONAL,
+
+        /**
+         * Mantém os saldos em memória, particionados em shards com um único escritor cada.
+         */
+        MEMORIA,
+
+        /**
+         * Enfileira as transações por cartão e aplica as enfileiradas em uma única transação do
+         * motor pessimista, com uma conexão por cartão.
+         */
+        COALESCENTE,
+
+        /**
+         * Debita com controle otimista pela versão do cartão e passa a bloquear com
+         * {@code SELECT ... FOR UPDATE} os cartões com conflitos frequentes.
+         */
+        ADAPTATIVO
+    }
+
+    public enum PoliticaExcedente {
+        /**
+         * Aguarda por espaço no buffer até {@code espera-maxima} e então descarta o registro.
+         */
+        AGUARDAR,
+
+        /**
+         * Descarta o registro imediatamente.
+         */
+        DESCARTAR
+    }
+
+    @Data
+    public static class Memoria {
+
+        /**
+         * Quantidade de shards (e threads escritoras) entre os quais os cartões são distribuídos.
+         * Com o journal, fica gravada no seu diretório e não pode mais ser alterada.
+         */
+        private int shards = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Capacidade da fila de comandos de cada shard.
+         */
+        private int capacidadeFila = 10_000;
+
+        /**
+         * Quantidade máxima de comandos processados por iteração de um shard.
+         */
+        private int loteMaximo = 256;
+
+        /**
+         * Tempo máximo de espera pela resposta do shard.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+
+        /**
+         * Intervalo entre as gravações assíncronas dos saldos no banco de dados.
+         */
+        private Duration intervaloSincronizacao = Duration.ofMillis(200);
+
+        /**
+         * Quantidade de cartões esperada em memória, usada para dimensionar os índices dos shards
+         * sem reconstruções durante a carga.
+         */
+        private int cartoesEsperados = 0;
+
+        private Journal journal = new Journal();
+    }
+
+    @Data
+    public static class Coalescente {
+
+        /**
+         * Quantidade máxima de transações de um cartão aplicadas em uma única transação do banco.
+         */
+        private int loteMaximo = 256;
+    }
+
+    @Data
+    public static class Adaptativo {
+
+        /**
+         * Tentativas do débito otimista antes de a transação ser refeita com o lock do cartão.
+         */
+        private int tentativasOtimistas = 3;
+
+        /**
+         * Taxa de conflitos, em média móvel exponencial, a partir da qual o cartão passa a ser
+         * debitado com lock.
+         */
+        private double taxaPromocao = 0.3;
+
+        /**
+         * Taxa de concorrência abaixo da qual um cartão debitado com lock volta ao débito otimista.
+         */
+        private double taxaRebaixamento = 0.05;
+
+        /**
+         * Quantidade máxima de cartões com taxa de conflitos mantida em memória.
+         */
+        private long cartoesMonitorados = 10_000;
+
+        /**
+         * Tempo sem transações após o qual um cartão deixa de ser monitorado e volta ao débito
+         * otimista.
+         */
+        private Duration resfriamento = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Journal {
+
+        /**
+         * Grava os débitos aprovados e os cartões criados em um journal por shard, permitindo
+         * reconstruir os saldos após uma queda.
+         */
+        private boolean habilitado = false;
+
+        private Path diretorio = Path.of("journal");
+
+        /**
+         * Tempo máximo que um lote aguarda por mais autorizações antes do fsync. Limita a
+         * latência adicionada pelo journal.
+         */
+        private Duration janelaGroupCommit = Duration.ofMillis(2);
+
+        /**
+         * Quantidade de registros no journal de um shard que dispara um novo snapshot.
+         */
+        private long registrosPorSnapshot = 1_000_000;
+    }
+
+    @Data
+    public static class CacheSaldo {
+
+        /**
+         * Mantém em memória os saldos consultados nos motores que leem do banco.
+         */
+        private boolean habilitado = true;
+
+        private long tamanhoMaximo = 100_000;
+
+        /**
+         * Tempo máximo que um saldo permanece no cache desde a última gravação.
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Concorrencia {
+
+        /**
+         * Limita as requisições simultâneas de cartões e transações; habilitado no perfil
+         * {@code virtual}.
+         */
+        private boolean habilitado = false;
+
+        /**
+         * Requisições simultâneas permitidas; zero usa o tamanho máximo do pool do Hikari.
+         */
+        private int permissoes = 0;
+
+        /**
+         * Tempo que uma requisição aguarda por uma permissão antes de receber {@code 503}.
+         */
+        private Duration esperaMaxima = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Reativo {
+
+        /**
+         * Expõe a API não bloqueante em {@code /reativo}, que acessa o banco via R2DBC.
+         */
+        private boolean habilitado = false;
+    }
+
+    @Data
+    public static class Metricas {
+
+        /**
+         * Espera pelo lock do cartão a partir da qual a transação é contada como contenção.
+         */
+        private Duration limiteContencao = Duration.ofMillis(1);
+
+        /**
+         * Quantidade máxima de cartões com contagem de contenção mantida em memória.
+         */
+        private long cartoesMonitorados = 10_000;
+
+        /**
+         * Quantidade de cartões listados em {@code /actuator/contencao}.
+         */
+        private int cartoesMaisContendidos = 10;
+    }
+
+    @Data
+    public static class Senha {
+
+        /**
+         * Iterações do PBKDF2 aplicadas às senhas novas; as já gravadas mantêm as suas.
+         */
+        private int iteracoes = 310_000;
+
+        /**
+         * Quantidade máxima de cartões com a última senha conferida mantida em memória.
+         */
+        private long cartoesConferidos = 100_000;
+    }
+
+    @Data
+    public static class Idempotencia {
+
+        /**
+         * Considera o cabeçalho {@code Idempotency-Key} em {@code POST /transacoes}.
+         */
+        private boolean habilitado = true;
+
+        /**
+         * Tempo mínimo que uma chave permanece em memória; repetições mais antigas consultam o banco.
+         * Uma chave com resultado indeterminado fica em andamento por no máximo duas janelas e um quarto.
+         */
+        private Duration janela = Duration.ofMinutes(1);
+
+        /**
+         * Quantidade de chaves mantidas em memória por janela.
+         */
+        private int capacidade = 500_000;
+
+        /**
+         * Chaves concluídas aguardando gravação no banco; com a fila cheia, a chave fica só em memória.
+         */
+        private int capacidadeGravacao = 65_536;
+
+        /**
+         * Tempo que as chaves permanecem no banco.
+         */
+        private Duration retencao = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class Historico {
+
+        /**
+         * Registra as tentativas de autorização na tabela {@code transacao}.
+         */
+        private boolean habilitado = true;
+
+        /**
+         * Registros aguardando gravação mantidos em memória.
+         */
+        private int capacidade = 65_536;
+
+        /**
+         * Quantidade máxima de registros gravados em um único {@code INSERT}.
+         */
+        private int loteMaximo = 500;
+
+        private PoliticaExcedente politicaExcedente = PoliticaExcedente.AGUARDAR;
+
+        /**
+         * Espera máxima por espaço no buffer com a política {@code aguardar}.
+         */
+        private Duration esperaMaxima = Duration.ofMillis(100);
+
+        /**
+         * Espera da thread escritora por novos registros e entre tentativas após uma falha.
+         */
+        private Duration intervalo = Duration.ofMillis(50);
+    }
+
+    @Data
+    public static class FiltroCartoes {
+
+        /**
+         * Recusa pelo filtro de Bloom, sem acessar o banco, as operações sobre cartões que
+         * certamente não existem. Habilite apenas quando esta instância cria todos os cartões: os
+         * criados por outras só são aceitos após a próxima reconstrução. Ignorado em cluster.
+         */
+        private boolean habilitado = false;
+
+        /**
+         * Intervalo entre as reconstruções do filtro a partir do banco; zero desliga.
+         */
+        private Duration intervaloReconstrucao = Duration.ofMinutes(5);
+
+        /**
+         * Cartões para os quais o filtro é dimensionado; na inicialização, usa-se o maior entre
+         * este valor e o dobro dos cartões existentes.
+         */
+        private long cartoesEsperados = 1_000_000;
+
+        /**
+         * Fração de números inexistentes aceitos pelo filtro com os cartões esperados.
+         */
+        private double taxaFalsosPositivos = 0.01;
+
+        /**
+         * Limite de memória do filtro; abaixo do necessário para a taxa, a taxa de falsos
+         * positivos aumenta.
+         */
+        private DataSize memoriaMaxima = DataSize.ofMegabytes(64);
+    }
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * Particiona os cartões entre os nós em {@code nos}; requer o motor {@code memoria}.
+         */
+        private boolean habilitado = false;
+
+        /**
+         * URL base deste nó, exatamente como aparece em {@code nos}.
+         */
+        private String noLocal;
+
+        /**
+         * URLs base de todos os nós do cluster, acessíveis entre si.
+         */
+        private List<String> nos = new ArrayList<>();
+
+        /**
+         * Quantidade de partições distribuídas entre os nós. Deve ser a mesma em todos os nós.
+         */
+        private int particoes = 4096;
+
+        /**
+         * Mantém as partições deste nó suspensas até a conclusão de um rebalanceamento; usado
+         * ao adicionar um nó a um cluster em execução.
+         */
+        private boolean ingressando = false;
+
+        /**
+         * Tempo máximo de uma chamada entre nós e de espera por uma partição em transferência.
+         */
+        private Duration timeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Aquecimento {
+
+        /**
+         * Aquece a aplicação antes de declará-la pronta para receber tráfego.
+         */
+        private boolean habilitado = false;
+
+        /**
+         * Quantidade máxima de débitos autorizados medidos; cada um é acompanhado de duas recusas
+         * e uma consulta de saldo. Zero desativa o aquecimento com cartões sintéticos.
+         */
+        private int transacoes = 5_000;
+
+        /**
+         * Débitos por janela de medição do p99.
+         */
+        private int janela = 500;
+
+        private Duration duracaoMaxima = Duration.ofSeconds(60);
+
+        /**
+         * Quantidade de cartões sintéticos.
+         */
+        private int cartoes = 8;
+
+        /**
+         * Prefixo reservado aos números dos cartões sintéticos, completados com zeros até 16 dígitos;
+         * a criação de cartões com ele é recusada.
+         */
+        private String prefixoCartao = "999999999999";
+
+        /**
+         * Quantidade de cartões mais ativos do histórico cujos saldos são carregados.
+         */
+        private int cartoesPreCarregados = 0;
+
+        /**
+         * Período do histórico considerado para escolher os cartões mais ativos.
+         */
+        private Duration janelaAtividade = Duration.ofHours(24);
+    }
+}
@@ -0,0 +1,84 @@
+package com.vr.miniautorizador.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita as requisições de cartões e transações em andamento ao tamanho do pool de conexões.
+ * Com threads virtuais o Tomcat aceita dezenas de milhares de requisições simultâneas; sem esse
+ * limite todas disputariam o pool do Hikari. Quem não obtém permissão em
+ * {@code autorizador.concorrencia.espera-maxima} recebe {@code 503} com {@code Retry-After}.
+ * Executa antes do {@code CodecTransacaoFilter}, que atende parte dessas requisições.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(name = "autorizador.concorrencia.habilitado", havingValue = "true")
+public class LimiteConcorrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permissoes;
+    private final long esperaMaximaNanos;
+
+    public LimiteConcorrenciaFilter(AutorizadorProperties properties, DataSource dataSource) {
+        AutorizadorProperties.Concorrencia concorrencia = properties.getConcorrencia();
+
+        int limite = concorrencia.getPermissoes() > 0 ? concorrencia.getPermissoes() : tamanhoDoPool(dataSource);
+        this.permissoes = new Semaphore(limite, true);
+        this.esperaMaximaNanos = concorrencia.getEsperaMaxima().toNanos();
+        log.info("Limitando a {} requisições simultâneas de cartões e transações", limite);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        return !caminho.startsWith("/cartoes") && !caminho.startsWith("/transacoes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean permitido;
+        try {
+            permitido = permissoes.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitido = false;
+        }
+
+        if (!permitido) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    private static int tamanhoDoPool(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        throw new IllegalStateException("Defina autorizador.concorrencia.permissoes para o DataSource "
+                + dataSource.getClass().getName());
+    }
+}
@@ -0,0 +1,44 @@
+package com.vr.miniautorizador.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Com a API reativa, o R2DBC é autoconfigurado (veja {@link AutoConfiguracaoReativaFilter}) e a
+ * autoconfiguração do Spring Boot deixa de criar o {@code DataSource}, registrando apenas o
+ * gerenciador de transações reativo. Os beans JDBC/JPA são então declarados aqui, com as mesmas
+ * propriedades {@code spring.datasource.*}; sem a API reativa, vêm da autoconfiguração.
+ */
+@Configuration
+@ConditionalOnProperty(name = "autorizador.reativo.habilitado", havingValue = "true")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class PersistenciaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -1,22 +1,32 @@
 package com.vr.miniautorizador.controller;
 
 import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.Centavos;
 import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.service.CartaoLoteService;
 import com.vr.miniautorizador.service.CartaoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/cartoes")
 @RequiredArgsConstructor
 public class CartaoController {
 
+    private static final String TEXT_CSV = "text/csv";
+
     private final CartaoService cartaoService;
+    private final CartaoLoteService cartaoLoteService;
 
     @PostMapping
     public ResponseEntity<CartaoResponse> criarCartao(@Valid @RequestBody CartaoRequest request) {
@@ -26,7 +36,28 @@ public class CartaoController {
 
     @GetMapping("/{numeroCartao}")
     public ResponseEntity<BigDecimal> obterSaldo(@PathVariable String numeroCartao) {
-        BigDecimal saldo = cartaoService.obterSaldo(numeroCartao);
-        return ResponseEntity.ok(saldo);
+        long saldo = cartaoService.obterSaldo(numeroCartao);
+        return ResponseEntity.ok(Centavos.emReais(saldo));
+    }
+
+    /**
+     * Cria cartões a partir de NDJSON ou CSV ({@code numeroCartao,senha}), respondendo em NDJSON
+     * uma linha por cartão à medida que cada bloco é gravado.
+     */
+    @PostMapping(value = "/lote", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void criarCartoes(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CartaoLoteService.Formato formato = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? CartaoLoteService.Formato.NDJSON
+                : CartaoLoteService.Formato.CSV;
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        cartaoLoteService.criarCartoes(request.getReader(), formato, response.getWriter());
     }
 }
@@ -0,0 +1,78 @@
+package com.vr.miniautorizador.controller;
+
+import com.vr.miniautorizador.cluster.MotorAutorizacaoParticionado;
+import com.vr.miniautorizador.cluster.ParticionamentoCluster;
+import com.vr.miniautorizador.dto.TopologiaRequest;
+import com.vr.miniautorizador.dto.TopologiaResponse;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Endpoints chamados entre os nós do cluster e para o rebalanceamento. Não devem ser expostos
+ * fora da rede dos nós.
+ */
+@RestController
+@RequestMapping("/interno")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autorizador.cluster.habilitado", havingValue = "true")
+public class ClusterController {
+
+    private final MotorAutorizacaoParticionado motor;
+    private final ParticionamentoCluster particionamento;
+
+    @PostMapping("/transacoes")
+    public ResponseEntity<String> realizarTransacao(@Valid @RequestBody TransacaoRequest request) {
+        return ResponseEntity.ok(motor.realizarTransacaoLocal(request).name());
+    }
+
+    @PostMapping("/transacoes/lote")
+    public ResponseEntity<List<TransacaoStatus>> realizarTransacoes(@RequestBody List<@Valid TransacaoRequest> requests) {
+        return ResponseEntity.ok(motor.realizarTransacoesLocal(requests));
+    }
+
+    @GetMapping("/cartoes/{numeroCartao}")
+    public ResponseEntity<Long> obterSaldo(@PathVariable String numeroCartao) {
+        OptionalLong saldo = motor.obterSaldoLocal(numeroCartao);
+        return saldo.isPresent() ? ResponseEntity.ok(saldo.getAsLong()) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/cluster")
+    public ResponseEntity<TopologiaResponse> topologia() {
+        return ResponseEntity.ok(particionamento.topologia());
+    }
+
+    /**
+     * Rebalanceia o cluster para a lista de nós informada, coordenado por este nó.
+     */
+    @PostMapping("/cluster/rebalancear")
+    public ResponseEntity<TopologiaResponse> rebalancear(@Valid @RequestBody TopologiaRequest request) {
+        particionamento.rebalancear(request.getNos());
+        return ResponseEntity.ok(particionamento.topologia());
+    }
+
+    @PostMapping("/cluster/preparar")
+    public ResponseEntity<Void> preparar(@Valid @RequestBody TopologiaRequest request) {
+        particionamento.preparar(request.getNos());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/cluster/concluir")
+    public ResponseEntity<Void> concluir() {
+        particionamento.concluir();
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/cluster/cancelar")
+    public ResponseEntity<Void> cancelar() {
+        particionamento.cancelar();
+        return ResponseEntity.noContent().build();
+    }
+}
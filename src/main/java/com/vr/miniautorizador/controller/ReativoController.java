@@ -0,0 +1,47 @@
+package com.vr.miniautorizador.controller;
+
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.dto.Centavos;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.service.CartaoReativoService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Mesmo contrato de {@link CartaoController} e {@link TransacaoController}, sob {@code /reativo}.
+ * As respostas são {@link Mono}s: a thread do servlet é liberada enquanto o banco responde.
+ */
+@RestController
+@RequestMapping("/reativo")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autorizador.reativo.habilitado", havingValue = "true")
+public class ReativoController {
+
+    private final CartaoReativoService cartaoService;
+
+    @PostMapping("/cartoes")
+    public Mono<ResponseEntity<CartaoResponse>> criarCartao(@Valid @RequestBody CartaoRequest request) {
+        return cartaoService.criarCartao(request)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @GetMapping("/cartoes/{numeroCartao}")
+    public Mono<ResponseEntity<BigDecimal>> obterSaldo(@PathVariable String numeroCartao) {
+        return cartaoService.obterSaldo(numeroCartao)
+                .map(saldo -> ResponseEntity.ok(Centavos.emReais(saldo)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/transacoes")
+    public Mono<ResponseEntity<String>> realizarTransacao(@Valid @RequestBody TransacaoRequest request) {
+        return cartaoService.realizarTransacao(request).map(TransacaoController::resposta);
+    }
+}
@@ -1,26 +1,50 @@
 package com.vr.miniautorizador.controller;
 
 import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
 import com.vr.miniautorizador.service.CartaoService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/transacoes")
 @RequiredArgsConstructor
 public class TransacaoController {
 
+    private static final int TAMANHO_MAXIMO_LOTE = 1000;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final CartaoService cartaoService;
 
     @PostMapping
-    public ResponseEntity<String> realizarTransacao(@Valid @RequestBody TransacaoRequest request) {
-        cartaoService.realizarTransacao(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body("OK");
+    public ResponseEntity<String> realizarTransacao(
+            @Valid @RequestBody TransacaoRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 64) String chaveIdempotencia) {
+        return resposta(cartaoService.realizarTransacao(request, chaveIdempotencia));
+    }
+
+    @PostMapping("/lote")
+    public ResponseEntity<List<TransacaoStatus>> realizarTransacoes(
+            @RequestBody @NotEmpty @Size(max = TAMANHO_MAXIMO_LOTE) List<@Valid TransacaoRequest> requests) {
+        return ResponseEntity.ok(cartaoService.realizarTransacoes(requests));
+    }
+
+    /**
+     * {@code 201} com {@code OK} para transações autorizadas; {@code 422} com o status nas recusas.
+     */
+    static ResponseEntity<String> resposta(TransacaoStatus status) {
+        HttpStatus httpStatus = status == TransacaoStatus.OK ? HttpStatus.CREATED : HttpStatus.UNPROCESSABLE_ENTITY;
+        return ResponseEntity.status(httpStatus).body(status.name());
     }
 }
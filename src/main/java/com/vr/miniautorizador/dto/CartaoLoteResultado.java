@@ -0,0 +1,25 @@
+package com.vr.miniautorizador.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de uma linha da criação de cartões em lote. {@code status} segue o código HTTP que
+ * {@code POST /cartoes} retornaria: {@code 201} criado, {@code 422} cartão existente (com o cartão
+ * já cadastrado) e {@code 400} linha inválida.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartaoLoteResultado {
+
+    private long linha;
+    private int status;
+    private CartaoResponse cartao;
+    private String erro;
+}
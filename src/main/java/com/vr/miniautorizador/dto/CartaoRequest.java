@@ -1,6 +1,8 @@
 package com.vr.miniautorizador.dto;
 
+import com.vr.miniautorizador.aquecimento.ForaDaFaixaReservada;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +15,8 @@ import lombok.NoArgsConstructor;
 public class CartaoRequest {
 
     @NotBlank(message = "Número do cartão é obrigatório")
+    @Size(max = 16, message = "Número do cartão deve ter no máximo 16 dígitos")
+    @ForaDaFaixaReservada
     private String numeroCartao;
 
     @NotBlank(message = "Senha é obrigatória")
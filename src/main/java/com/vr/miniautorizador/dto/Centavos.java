@@ -0,0 +1,25 @@
+package com.vr.miniautorizador.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversão entre os valores em reais do JSON e os centavos usados internamente nos saldos.
+ */
+public final class Centavos {
+
+    private static final int CASAS_DECIMAIS = 2;
+
+    private Centavos() {
+    }
+
+    /**
+     * @throws ArithmeticException se o valor tiver mais de duas casas decimais ou não couber em um {@code long}
+     */
+    public static long deReais(BigDecimal reais) {
+        return reais.movePointRight(CASAS_DECIMAIS).longValueExact();
+    }
+
+    public static BigDecimal emReais(long centavos) {
+        return BigDecimal.valueOf(centavos, CASAS_DECIMAIS);
+    }
+}
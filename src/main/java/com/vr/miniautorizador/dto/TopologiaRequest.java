@@ -0,0 +1,20 @@
+package com.vr.miniautorizador.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopologiaRequest {
+
+    @NotEmpty(message = "O cluster precisa de ao menos um nó")
+    private List<@NotBlank String> nos;
+}
@@ -0,0 +1,21 @@
+package com.vr.miniautorizador.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopologiaResponse {
+
+    private String noLocal;
+    private List<String> nos;
+    private int particoes;
+    private int particoesLocais;
+    private int particoesSuspensas;
+}
@@ -1,8 +1,11 @@
 package com.vr.miniautorizador.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,6 +20,7 @@ import java.math.BigDecimal;
 public class TransacaoRequest {
 
     @NotBlank(message = "Número do cartão é obrigatório")
+    @Size(max = 16, message = "Número do cartão deve ter no máximo 16 dígitos")
     private String numeroCartao;
 
     @NotBlank(message = "Senha do cartão é obrigatória")
@@ -24,5 +28,14 @@ public class TransacaoRequest {
 
     @NotNull(message = "Valor é obrigatório")
     @Positive(message = "Valor deve ser positivo")
+    @Digits(integer = 16, fraction = 2, message = "Valor deve ter no máximo 16 dígitos inteiros e 2 casas decimais")
     private BigDecimal valor;
+
+    /**
+     * Valor em centavos, usado pelos motores. A validação de {@code valor} garante que a conversão é exata.
+     */
+    @JsonIgnore
+    public long getValorCentavos() {
+        return Centavos.deReais(valor);
+    }
 }
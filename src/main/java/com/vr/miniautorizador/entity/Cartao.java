@@ -6,8 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "cartao")
 @Data
@@ -23,8 +21,8 @@ public class Cartao {
     @Column(name = "senha", nullable = false)
     private String senha;
 
-    @Column(name = "saldo", nullable = false, precision = 10, scale = 2)
-    private BigDecimal saldo;
+    @Column(name = "saldo_centavos", nullable = false)
+    private long saldoCentavos;
 
     @Version
     private Long version;
@@ -0,0 +1,43 @@
+package com.vr.miniautorizador.entity;
+
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Tentativa de autorização registrada no histórico. {@code saldoCentavos} é o saldo do cartão após
+ * a tentativa, nulo quando o cartão não existe ou o motor não lê o saldo resultante.
+ */
+@Entity
+@Table(name = "transacao", indexes = @Index(name = "idx_transacao_cartao", columnList = "numero_cartao, realizada_em"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Transacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "numero_cartao", length = 16, nullable = false)
+    private String numeroCartao;
+
+    @Column(name = "valor_centavos", nullable = false)
+    private long valorCentavos;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private TransacaoStatus status;
+
+    @Column(name = "saldo_centavos")
+    private Long saldoCentavos;
+
+    @Column(name = "realizada_em", nullable = false)
+    private Instant realizadaEm;
+}
@@ -0,0 +1,53 @@
+package com.vr.miniautorizador.entity;
+
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Transação concluída identificada por um {@code Idempotency-Key}, gravada após o débito; o valor
+ * permite recusar a mesma chave numa transação diferente. Registros sem status, de versões
+ * anteriores, são ignorados.
+ */
+@Entity
+@Table(name = "transacao_idempotente", indexes = @Index(name = "idx_transacao_idempotente_criada_em", columnList = "criada_em"))
+@IdClass(TransacaoIdempotente.Chave.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransacaoIdempotente {
+
+    @Id
+    @Column(name = "chave", length = 64, nullable = false)
+    private String chave;
+
+    @Id
+    @Column(name = "numero_cartao", length = 16, nullable = false)
+    private String numeroCartao;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private TransacaoStatus status;
+
+    @Column(name = "valor_centavos")
+    private Long valorCentavos;
+
+    @Column(name = "criada_em", nullable = false)
+    private Instant criadaEm;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+
+        private String chave;
+        private String numeroCartao;
+    }
+}
@@ -0,0 +1,13 @@
+package com.vr.miniautorizador.event;
+
+import com.vr.miniautorizador.entity.Cartao;
+import lombok.Value;
+
+/**
+ * Publicado por {@code CartaoService.criarCartao}; os ouvintes devem reagir somente após o commit.
+ */
+@Value
+public class CartaoCriadoEvent {
+
+    Cartao cartao;
+}
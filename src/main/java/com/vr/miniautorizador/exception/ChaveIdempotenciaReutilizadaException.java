@@ -0,0 +1,11 @@
+package com.vr.miniautorizador.exception;
+
+/**
+ * {@code Idempotency-Key} já usado no mesmo cartão para uma transação com outro valor.
+ */
+public class ChaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ChaveIdempotenciaReutilizadaException() {
+        super("Idempotency-Key já usado para outra transação do cartão");
+    }
+}
@@ -0,0 +1,16 @@
+package com.vr.miniautorizador.exception;
+
+/**
+ * O nó responsável pelo cartão não respondeu ou respondeu com erro; a operação pode ter sido
+ * executada por ele.
+ */
+public class ClusterIndisponivelException extends RuntimeException {
+
+    public ClusterIndisponivelException(String message) {
+        super(message);
+    }
+
+    public ClusterIndisponivelException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
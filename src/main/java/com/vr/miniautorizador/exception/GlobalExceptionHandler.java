@@ -1,7 +1,9 @@
 package com.vr.miniautorizador.exception;
 
 import com.vr.miniautorizador.dto.CartaoResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -21,10 +23,25 @@ public class GlobalExceptionHandler {
         return ResponseEntity.notFound().build();
     }
 
-    @ExceptionHandler(TransacaoNaoAutorizadaException.class)
-    public ResponseEntity<String> handleTransacaoNaoAutorizada(TransacaoNaoAutorizadaException ex) {
-        return ResponseEntity
-                .status(HttpStatus.UNPROCESSABLE_ENTITY)
-                .body(ex.getStatus().name());
+    @ExceptionHandler(TransacaoEmAndamentoException.class)
+    public ResponseEntity<Void> handleTransacaoEmAndamento(TransacaoEmAndamentoException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(ChaveIdempotenciaReutilizadaException.class)
+    public ResponseEntity<Void> handleChaveIdempotenciaReutilizada(ChaveIdempotenciaReutilizadaException ex) {
+        return ResponseEntity.unprocessableEntity().build();
+    }
+
+    @ExceptionHandler({ClusterIndisponivelException.class, TransacaoNaoExecutadaException.class})
+    public ResponseEntity<Void> handleClusterIndisponivel(RuntimeException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    @ExceptionHandler(NoIncorretoException.class)
+    public ResponseEntity<Void> handleNoIncorreto(NoIncorretoException ex) {
+        return ResponseEntity.status(HttpStatusCode.valueOf(421)).build();
     }
 }
@@ -0,0 +1,11 @@
+package com.vr.miniautorizador.exception;
+
+/**
+ * Transação encaminhada a um nó que, na topologia dele, não é o responsável pelo cartão.
+ */
+public class NoIncorretoException extends RuntimeException {
+
+    public NoIncorretoException(String numeroCartao) {
+        super("Este nó não é o responsável pelo cartão " + numeroCartao);
+    }
+}
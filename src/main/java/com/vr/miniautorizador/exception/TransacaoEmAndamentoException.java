@@ -0,0 +1,8 @@
+package com.vr.miniautorizador.exception;
+
+public class TransacaoEmAndamentoException extends RuntimeException {
+
+    public TransacaoEmAndamentoException() {
+        super("Transação com o mesmo Idempotency-Key em andamento");
+    }
+}
@@ -0,0 +1,17 @@
+package com.vr.miniautorizador.exception;
+
+/**
+ * A transação foi recusada antes de qualquer débito, por exemplo com a fila do shard cheia ou a
+ * partição do cartão em transferência; uma nova tentativa com o mesmo {@code Idempotency-Key} é
+ * executada normalmente.
+ */
+public class TransacaoNaoExecutadaException extends RuntimeException {
+
+    public TransacaoNaoExecutadaException(String message) {
+        super(message);
+    }
+
+    public TransacaoNaoExecutadaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,125 @@
+package com.vr.miniautorizador.filtro;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Filtro de Bloom de números de cartão. Os bits ficam num {@code long[]} alterado com operações
+ * atômicas, de modo que várias threads adicionam e consultam sem bloqueio; um número adicionado
+ * nunca deixa de ser encontrado.
+ *
+ * <p>As {@code k} posições de um número são derivadas de um único hash de 64 bits, como
+ * {@code h1 + i * h2} com as suas duas metades. Números de até 18 dígitos entram no hash pelo seu
+ * valor, sem percorrer um hash de texto.
+ */
+public final class FiltroBloom {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double LN2 = Math.log(2);
+    private static final int DIGITOS_NUMERICOS = 18;
+    private static final int FUNCOES_MAXIMAS = 16;
+
+    private final long[] palavras;
+    private final long quantidadeBits;
+    private final int funcoes;
+
+    private FiltroBloom(long quantidadeBits, int funcoes) {
+        this.palavras = new long[(int) (quantidadeBits / Long.SIZE)];
+        this.quantidadeBits = quantidadeBits;
+        this.funcoes = funcoes;
+    }
+
+    /**
+     * Filtro com a taxa de falsos positivos pedida para {@code elementos}, limitado a
+     * {@code bytesMaximos}; as funções de hash são as ótimas para o tamanho resultante.
+     */
+    public static FiltroBloom dimensionar(long elementos, double taxaFalsosPositivos, long bytesMaximos) {
+        if (elementos <= 0 || taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1 || bytesMaximos < Long.BYTES) {
+            throw new IllegalArgumentException("Elementos, taxa de falsos positivos (entre 0 e 1) e memória devem ser positivos");
+        }
+        double ideal = Math.ceil(-elementos * Math.log(taxaFalsosPositivos) / (LN2 * LN2));
+        // A redução das posições usa 32 bits, e o array, índices int
+        long limite = Math.min(bytesMaximos * Byte.SIZE, (long) Integer.MAX_VALUE + 1);
+        long bits = Math.max(Long.SIZE, Math.min((long) ideal, limite) / Long.SIZE * Long.SIZE);
+        int funcoes = (int) Math.max(1, Math.min(FUNCOES_MAXIMAS, Math.round((double) bits / elementos * LN2)));
+        return new FiltroBloom(bits, funcoes);
+    }
+
+    public void adicionar(String numeroCartao) {
+        long hash = hash(numeroCartao);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = posicao(h1 + i * h2);
+            int palavra = (int) (posicao >>> 6);
+            long mascara = 1L << posicao;
+            if (((long) LONGS.getAcquire(palavras, palavra) & mascara) == 0) {
+                LONGS.getAndBitwiseOr(palavras, palavra, mascara);
+            }
+        }
+    }
+
+    /**
+     * {@code false} somente se o número certamente não foi adicionado.
+     */
+    public boolean podeConter(String numeroCartao) {
+        long hash = hash(numeroCartao);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = posicao(h1 + i * h2);
+            if (((long) LONGS.getAcquire(palavras, (int) (posicao >>> 6)) & 1L << posicao) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Taxa de falsos positivos estimada pela fração de bits ligados; percorre todo o filtro.
+     */
+    public double taxaFalsosPositivosEstimada() {
+        long ligados = 0;
+        for (int i = 0; i < palavras.length; i++) {
+            ligados += Long.bitCount((long) LONGS.getAcquire(palavras, i));
+        }
+        return Math.pow((double) ligados / quantidadeBits, funcoes);
+    }
+
+    public long bytesOcupados() {
+        return (long) palavras.length * Long.BYTES;
+    }
+
+    public int funcoes() {
+        return funcoes;
+    }
+
+    private long posicao(int hash) {
+        // Redução multiplicativa de 32 bits sem sinal para [0, quantidadeBits)
+        return ((hash & 0xffffffffL) * quantidadeBits) >>> 32;
+    }
+
+    private static long hash(String numeroCartao) {
+        int tamanho = numeroCartao.length();
+        long valor = tamanho;
+        boolean numerico = tamanho > 0 && tamanho <= DIGITOS_NUMERICOS;
+        for (int i = 0; i < tamanho && numerico; i++) {
+            int digito = numeroCartao.charAt(i) - '0';
+            numerico = digito >= 0 && digito <= 9;
+            valor = valor * 10 + digito;
+        }
+        if (!numerico) {
+            // FNV-1a de 64 bits
+            valor = 0xcbf29ce484222325L;
+            for (int i = 0; i < tamanho; i++) {
+                valor = (valor ^ numeroCartao.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
@@ -0,0 +1,187 @@
+package com.vr.miniautorizador.filtro;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro de Bloom dos cartões existentes, consultado antes do banco ou do motor nas transações,
+ * consultas de saldo e criações. Um número recusado não existia na última leitura do banco nem
+ * foi criado por esta instância; um aceito pode não existir, com a probabilidade de
+ * {@code autorizador.filtro-cartoes.taxa-falsos-positivos}.
+ *
+ * <p>O filtro é preenchido na inicialização, com os números lidos em páginas do banco, e recebe
+ * cada cartão criado quando o {@link CartaoCriadoEvent} é publicado, ainda dentro da transação:
+ * assim não há intervalo entre o commit e a inclusão em que o cartão seria recusado. Uma criação
+ * desfeita, como os cartões removidos, deixa um falso positivo até a próxima reconstrução. Até o
+ * preenchimento terminar, todos os números são aceitos.
+ *
+ * <p>Só os cartões criados por esta instância entram no filtro assim que criados; os criados por
+ * outras instâncias ou inseridos diretamente no banco são recusados até a próxima reconstrução,
+ * feita a cada {@code autorizador.filtro-cartoes.intervalo-reconstrucao}, ou até
+ * {@link #carregar()}. Por isso o filtro é desabilitado por padrão e deve ser habilitado apenas
+ * quando esta instância cria todos os cartões. Desabilitado em cluster.
+ */
+@Slf4j
+@Component
+public class FiltroCartoes implements SmartInitializingSingleton {
+
+    private static final int PAGINA = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AutorizadorProperties.FiltroCartoes configuracao;
+    private final boolean habilitado;
+    private final Counter recusados;
+    private final ScheduledExecutorService reconstrucao = Executors.newSingleThreadScheduledExecutor(
+            tarefa -> new Thread(tarefa, "autorizador-filtro-cartoes"));
+
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom emReconstrucao;
+    private volatile boolean pronto;
+
+    public FiltroCartoes(JdbcTemplate jdbcTemplate, AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.configuracao = properties.getFiltroCartoes();
+        this.habilitado = configuracao.isHabilitado() && !properties.getCluster().isHabilitado();
+        if (configuracao.isHabilitado() && !habilitado) {
+            log.info("Filtro de cartões desabilitado em cluster");
+        }
+        this.recusados = Counter.builder("autorizador.filtro.cartoes.recusados")
+                .description("Operações sobre cartões inexistentes recusadas sem acessar o banco")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.filtro.cartoes.falsos.positivos", this, FiltroCartoes::taxaFalsosPositivosEstimada)
+                .description("Taxa de falsos positivos estimada pela ocupação do filtro")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!habilitado) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        filtro = dimensionar();
+        // Publicado antes da leitura, para que os cartões criados durante ela também entrem
+        long lidos = carregar();
+        pronto = true;
+        log.info("Filtro de cartões com {} cartões em {} ms: {} KB, {} funções de hash",
+                lidos, (System.nanoTime() - inicio) / 1_000_000, filtro.bytesOcupados() / 1024, filtro.funcoes());
+
+        long intervalo = configuracao.getIntervaloReconstrucao().toMillis();
+        if (intervalo > 0) {
+            reconstrucao.scheduleWithFixedDelay(this::reconstruirAgendado, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void parar() {
+        reconstrucao.shutdownNow();
+    }
+
+    /**
+     * {@code false} somente se o cartão certamente não existe; a recusa é contada em
+     * {@code autorizador.filtro.cartoes.recusados}.
+     */
+    public boolean podeExistir(String numeroCartao) {
+        if (!pronto || filtro.podeConter(numeroCartao)) {
+            return true;
+        }
+        recusados.increment();
+        return false;
+    }
+
+    public void adicionar(String numeroCartao) {
+        FiltroBloom novo = emReconstrucao;
+        if (novo != null) {
+            novo.adicionar(numeroCartao);
+        }
+        FiltroBloom atual = filtro;
+        if (atual != null) {
+            atual.adicionar(numeroCartao);
+        }
+    }
+
+    @EventListener
+    public void onCartaoCriado(CartaoCriadoEvent event) {
+        adicionar(event.getCartao().getNumeroCartao());
+    }
+
+    /**
+     * Adiciona ao filtro todos os cartões do banco, por exemplo após inserções feitas diretamente
+     * nele; retorna os cartões lidos.
+     */
+    public long carregar() {
+        FiltroBloom atual = filtro;
+        return atual == null ? 0 : carregar(atual);
+    }
+
+    /**
+     * Preenche um novo filtro com os cartões do banco e o põe no lugar do atual, incluindo os
+     * cartões criados por outras instâncias e descartando os removidos; retorna os cartões lidos.
+     */
+    public long reconstruir() {
+        if (filtro == null) {
+            return 0;
+        }
+        FiltroBloom novo = dimensionar();
+        // Recebe os cartões criados durante a leitura, como o filtro atual
+        emReconstrucao = novo;
+        try {
+            long lidos = carregar(novo);
+            filtro = novo;
+            return lidos;
+        } finally {
+            emReconstrucao = null;
+        }
+    }
+
+    private void reconstruirAgendado() {
+        try {
+            long inicio = System.nanoTime();
+            long lidos = reconstruir();
+            log.debug("Filtro de cartões reconstruído com {} cartões em {} ms", lidos, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao reconstruir o filtro de cartões; o atual é mantido", e);
+        }
+    }
+
+    private FiltroBloom dimensionar() {
+        Long existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao", Long.class);
+        return FiltroBloom.dimensionar(Math.max(configuracao.getCartoesEsperados(), 2 * existentes),
+                configuracao.getTaxaFalsosPositivos(), configuracao.getMemoriaMaxima().toBytes());
+    }
+
+    private long carregar(FiltroBloom destino) {
+        long lidos = 0;
+        String ultimo = "";
+        while (true) {
+            List<String> pagina = jdbcTemplate.queryForList(
+                    "SELECT numero_cartao FROM cartao WHERE numero_cartao > ? ORDER BY numero_cartao LIMIT ?",
+                    String.class, ultimo, PAGINA);
+            pagina.forEach(destino::adicionar);
+            lidos += pagina.size();
+            if (pagina.size() < PAGINA) {
+                return lidos;
+            }
+            ultimo = pagina.get(pagina.size() - 1);
+        }
+    }
+
+    private double taxaFalsosPositivosEstimada() {
+        FiltroBloom atual = filtro;
+        return atual == null ? 0 : atual.taxaFalsosPositivosEstimada();
+    }
+}
@@ -0,0 +1,134 @@
+package com.vr.miniautorizador.historico;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer circular de tamanho fixo com as tentativas ainda não gravadas, em vetores primitivos
+ * pré-alocados: publicar não aloca. Vários produtores e um único consumidor, que retira os
+ * registros em lotes.
+ */
+final class AnelTransacoes {
+
+    private final String[] cartoes;
+    private final long[] valores;
+    private final byte[] status;
+    private final long[] saldos;
+    private final long[] instantes;
+    private final int mascara;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition comEspaco = lock.newCondition();
+    private final Condition comRegistros = lock.newCondition();
+
+    private long publicados;
+    private long retirados;
+
+    AnelTransacoes(int capacidade) {
+        int posicoes = Integer.highestOneBit(Math.max(1, capacidade - 1)) << 1;
+        this.cartoes = new String[posicoes];
+        this.valores = new long[posicoes];
+        this.status = new byte[posicoes];
+        this.saldos = new long[posicoes];
+        this.instantes = new long[posicoes];
+        this.mascara = posicoes - 1;
+    }
+
+    /**
+     * Publica o registro, aguardando até {@code esperaNanos} por espaço; retorna {@code false} se
+     * o buffer continuar cheio.
+     */
+    boolean publicar(String numeroCartao, long valorCentavos, byte statusTransacao, long saldoCentavos,
+                     long instante, long esperaNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long espera = esperaNanos;
+            while (publicados - retirados == cartoes.length) {
+                if (espera <= 0) {
+                    return false;
+                }
+                espera = comEspaco.awaitNanos(espera);
+            }
+
+            int i = (int) publicados & mascara;
+            cartoes[i] = numeroCartao;
+            valores[i] = valorCentavos;
+            status[i] = statusTransacao;
+            saldos[i] = saldoCentavos;
+            instantes[i] = instante;
+            publicados++;
+            comRegistros.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copia para {@code lote} até a capacidade dele, aguardando até {@code espera} pelo primeiro
+     * registro; retorna a quantidade copiada.
+     */
+    int retirar(Lote lote, long espera, TimeUnit unidade) throws InterruptedException {
+        lock.lock();
+        try {
+            long restante = unidade.toNanos(espera);
+            while (publicados == retirados) {
+                if (restante <= 0) {
+                    return 0;
+                }
+                restante = comRegistros.awaitNanos(restante);
+            }
+
+            int quantidade = (int) Math.min(publicados - retirados, lote.cartoes.length);
+            for (int j = 0; j < quantidade; j++) {
+                int i = (int) (retirados + j) & mascara;
+                lote.cartoes[j] = cartoes[i];
+                lote.valores[j] = valores[i];
+                lote.status[j] = status[i];
+                lote.saldos[j] = saldos[i];
+                lote.instantes[j] = instantes[i];
+                cartoes[i] = null;
+            }
+            retirados += quantidade;
+            comEspaco.signalAll();
+            return quantidade;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long publicados() {
+        lock.lock();
+        try {
+            return publicados;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int pendentes() {
+        lock.lock();
+        try {
+            return (int) (publicados - retirados);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static final class Lote {
+
+        final String[] cartoes;
+        final long[] valores;
+        final byte[] status;
+        final long[] saldos;
+        final long[] instantes;
+
+        Lote(int capacidade) {
+            this.cartoes = new String[capacidade];
+            this.valores = new long[capacidade];
+            this.status = new byte[capacidade];
+            this.saldos = new long[capacidade];
+            this.instantes = new long[capacidade];
+        }
+    }
+}
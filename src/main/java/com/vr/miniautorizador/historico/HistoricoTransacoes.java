@@ -0,0 +1,260 @@
+package com.vr.miniautorizador.historico;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histórico de todas as tentativas de autorização, gravado na tabela {@code transacao} fora do
+ * caminho da requisição. Os motores publicam cada tentativa em um {@link AnelTransacoes} e uma
+ * thread escritora o esvazia em {@code INSERT}s de múltiplas linhas, de até
+ * {@code autorizador.historico.lote-maximo} registros. Com o buffer cheio, a
+ * {@link AutorizadorProperties.PoliticaExcedente} decide se a tentativa aguarda por espaço ou é
+ * descartada (contada em {@code autorizador.historico.descartadas}). Um registro recusado pelo
+ * banco é descartado sem bloquear os demais do lote (contado em
+ * {@code autorizador.historico.recusadas}). Ao encerrar, os registros pendentes são gravados
+ * antes de o {@code DataSource} ser fechado.
+ */
+@Slf4j
+@Component
+public class HistoricoTransacoes implements Runnable {
+
+    /**
+     * Saldo resultante não conhecido pelo motor.
+     */
+    public static final long SALDO_DESCONHECIDO = Long.MIN_VALUE;
+
+    private static final TransacaoStatus[] STATUS = TransacaoStatus.values();
+    private static final int TENTATIVAS_AO_ENCERRAR = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final AnelTransacoes anel;
+    private final AnelTransacoes.Lote lote;
+    private final String[] insercoes;
+    private final long esperaNanos;
+    private final Duration intervalo;
+    private final Counter descartadas;
+    private final Counter recusadas;
+    private final Thread escritor = new Thread(this, "autorizador-historico");
+
+    private volatile boolean ativo = true;
+    private volatile long gravados;
+
+    public HistoricoTransacoes(JdbcTemplate jdbcTemplate, AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        AutorizadorProperties.Historico configuracao = properties.getHistorico();
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = configuracao.isHabilitado();
+        this.anel = new AnelTransacoes(configuracao.getCapacidade());
+        this.lote = new AnelTransacoes.Lote(configuracao.getLoteMaximo());
+        this.insercoes = new String[configuracao.getLoteMaximo() + 1];
+        this.esperaNanos = configuracao.getPoliticaExcedente() == AutorizadorProperties.PoliticaExcedente.AGUARDAR
+                ? configuracao.getEsperaMaxima().toNanos()
+                : 0;
+        this.intervalo = configuracao.getIntervalo();
+        this.descartadas = Counter.builder("autorizador.historico.descartadas")
+                .description("Tentativas não registradas no histórico por falta de espaço no buffer")
+                .register(meterRegistry);
+        this.recusadas = Counter.builder("autorizador.historico.recusadas")
+                .description("Tentativas descartadas do histórico por serem recusadas pelo banco")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.historico.pendentes", anel, AnelTransacoes::pendentes)
+                .description("Tentativas aguardando gravação no histórico")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (habilitado) {
+            escritor.start();
+        }
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (habilitado) {
+            escritor.join();
+        }
+    }
+
+    public void registrar(TransacaoRequest request, TransacaoStatus status, long saldoCentavos) {
+        registrar(request.getNumeroCartao(), request.getValorCentavos(), status, saldoCentavos);
+    }
+
+    public void registrar(String numeroCartao, long valorCentavos, TransacaoStatus status, long saldoCentavos) {
+        publicar(numeroCartao, valorCentavos, status, saldoCentavos, System.currentTimeMillis(), esperaNanos);
+    }
+
+    /**
+     * Descarta o registro se o buffer estiver cheio, qualquer que seja a política; para threads
+     * que não podem bloquear.
+     */
+    public void registrarSemEspera(TransacaoRequest request, TransacaoStatus status, long saldoCentavos) {
+        registrarSemEspera(request.getNumeroCartao(), request.getValorCentavos(), status, saldoCentavos);
+    }
+
+    public void registrarSemEspera(String numeroCartao, long valorCentavos, TransacaoStatus status, long saldoCentavos) {
+        publicar(numeroCartao, valorCentavos, status, saldoCentavos, System.currentTimeMillis(), 0);
+    }
+
+    /**
+     * Registra somente após o commit da transação corrente, se houver uma.
+     */
+    public void registrarAposCommit(TransacaoRequest request, TransacaoStatus status, long saldoCentavos) {
+        if (!habilitado) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(request, status, saldoCentavos);
+            return;
+        }
+        long instante = System.currentTimeMillis();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publicar(request.getNumeroCartao(), request.getValorCentavos(), status, saldoCentavos, instante, esperaNanos);
+            }
+        });
+    }
+
+    /**
+     * Aguarda a gravação de tudo o que foi registrado até aqui, por até {@code timeout}.
+     */
+    public boolean descarregar(Duration timeout) throws InterruptedException {
+        long alvo = anel.publicados();
+        long limite = System.nanoTime() + timeout.toNanos();
+        while (gravados < alvo) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (ativo || anel.pendentes() > 0) {
+            try {
+                int quantidade = anel.retirar(lote, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+                if (quantidade > 0) {
+                    gravar(quantidade);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void publicar(String numeroCartao, long valorCentavos, TransacaoStatus status, long saldoCentavos,
+                          long instante, long espera) {
+        if (!habilitado) {
+            return;
+        }
+        boolean publicado;
+        try {
+            publicado = anel.publicar(numeroCartao, valorCentavos, (byte) status.ordinal(), saldoCentavos, instante, espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            publicado = false;
+        }
+        if (!publicado) {
+            descartadas.increment();
+        }
+    }
+
+    private void gravar(int quantidade) throws InterruptedException {
+        gravar(0, quantidade);
+        Arrays.fill(lote.cartoes, 0, quantidade, null);
+        gravados += quantidade;
+    }
+
+    /**
+     * Grava os registros {@code [inicio, fim)} do lote. Falhas transitórias, como o banco
+     * indisponível, são repetidas; numa recusa permanente, como um registro que viola a tabela, o
+     * intervalo é dividido até isolar e descartar os registros recusados.
+     */
+    private void gravar(int inicio, int fim) throws InterruptedException {
+        int quantidade = fim - inicio;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                jdbcTemplate.update(insercao(quantidade), ps -> preencher(ps, inicio, fim));
+                return;
+            } catch (DataAccessException e) {
+                if (recusaPermanente(e)) {
+                    if (quantidade == 1) {
+                        log.error("Descartando o registro do histórico do cartão {} recusado pelo banco", lote.cartoes[inicio], e);
+                        recusadas.increment();
+                    } else {
+                        int meio = (inicio + fim) >>> 1;
+                        gravar(inicio, meio);
+                        gravar(meio, fim);
+                    }
+                    return;
+                }
+                if (!ativo && tentativa >= TENTATIVAS_AO_ENCERRAR) {
+                    log.error("Descartando {} registros do histórico após {} tentativas", quantidade, tentativa, e);
+                    return;
+                }
+                log.warn("Falha ao gravar {} registros do histórico; nova tentativa em {}", quantidade, intervalo, e);
+                Thread.sleep(intervalo.toMillis());
+            }
+        }
+    }
+
+    private static boolean recusaPermanente(DataAccessException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void preencher(PreparedStatement ps, int inicio, int fim) throws java.sql.SQLException {
+        int parametro = 1;
+        for (int i = inicio; i < fim; i++) {
+            ps.setString(parametro++, lote.cartoes[i]);
+            ps.setLong(parametro++, lote.valores[i]);
+            ps.setString(parametro++, STATUS[lote.status[i]].name());
+            if (lote.saldos[i] == SALDO_DESCONHECIDO) {
+                ps.setNull(parametro++, Types.BIGINT);
+            } else {
+                ps.setLong(parametro++, lote.saldos[i]);
+            }
+            ps.setTimestamp(parametro++, new Timestamp(lote.instantes[i]));
+        }
+    }
+
+    private String insercao(int linhas) {
+        String sql = insercoes[linhas];
+        if (sql == null) {
+            StringBuilder builder = new StringBuilder(
+                    "INSERT INTO transacao (numero_cartao, valor_centavos, status, saldo_centavos, realizada_em) VALUES ");
+            for (int i = 0; i < linhas; i++) {
+                builder.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            }
+            sql = builder.toString();
+            insercoes[linhas] = sql;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,313 @@
+package com.vr.miniautorizador.idempotencia;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Status e valor das transações recentes por chave de idempotência e cartão, sem alocação por
+ * operação. As chaves são distribuídas entre segmentos com lock próprio; cada segmento mantém duas
+ * gerações em tabelas de endereçamento aberto. Cada posição ocupa três {@code long} consecutivos:
+ * os 56 bits altos do primeiro hash da chave com o status no byte baixo, um segundo hash
+ * independente e o valor. Os dois hashes formam uma impressão de 120 bits, com sementes sorteadas a
+ * cada instância, de modo que uma coincidência entre chaves diferentes é desprezível e a resposta é
+ * tratada como exata. {@link #expirar()}, chamado periodicamente, descarta a geração mais antiga
+ * dos segmentos cuja geração atual já tem {@code janela}; uma chave permanece, portanto, por pelo
+ * menos uma janela, ou menos se a geração atual do segmento encher antes, e por no máximo duas
+ * janelas mais o intervalo entre as chamadas.
+ */
+public final class DeduplicadorTransacoes {
+
+    /**
+     * A chave não está registrada (ou foi liberada) e passou a estar em andamento.
+     */
+    public static final byte AUSENTE = -1;
+
+    public static final byte EM_ANDAMENTO = -2;
+
+    /**
+     * A chave está registrada no cartão com outro valor.
+     */
+    public static final byte VALOR_DIFERENTE = -3;
+
+    private static final int SEGMENTOS = 64;
+    private static final int BITS_SEGMENTO = Integer.numberOfTrailingZeros(SEGMENTOS);
+    private static final long MASCARA_STATUS = 0xFFL;
+    private static final long MULTIPLICADOR = 0x9e3779b97f4a7c15L;
+    private static final long MULTIPLICADOR_VERIFICACAO = 0xc2b2ae3d27d4eb4fL;
+    // Operação de acessar() que reserva a chave em vez de registrar um status
+    private static final byte RESERVAR = Byte.MIN_VALUE;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final long janelaNanos;
+    private final long semente;
+    private final long sementeVerificacao;
+
+    /**
+     * @param capacidade quantidade de chaves por janela, distribuída entre os segmentos
+     */
+    public DeduplicadorTransacoes(int capacidade, long janelaNanos) {
+        this.janelaNanos = janelaNanos;
+        SecureRandom random = new SecureRandom();
+        this.semente = random.nextLong();
+        this.sementeVerificacao = random.nextLong();
+        int porSegmento = Math.max(1, capacidade / SEGMENTOS);
+        // Ocupação máxima de 50% das posições em cada geração
+        int posicoes = Integer.highestOneBit(porSegmento * 2 - 1) << 1;
+        long agora = System.nanoTime();
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(posicoes, porSegmento, agora);
+        }
+    }
+
+    /**
+     * Marca a chave como em andamento, com o valor, se ela estiver ausente; caso contrário retorna
+     * {@link #VALOR_DIFERENTE}, {@link #EM_ANDAMENTO} ou o {@code ordinal} do
+     * {@code TransacaoStatus} registrado.
+     */
+    public byte reservar(String chave, String numeroCartao, long valorCentavos) {
+        return acessar(chave, numeroCartao, valorCentavos, RESERVAR);
+    }
+
+    /**
+     * Registra o status e o valor da chave, incluindo-a se ela já tiver sido descartada.
+     */
+    public void concluir(String chave, String numeroCartao, long valorCentavos, byte status) {
+        acessar(chave, numeroCartao, valorCentavos, status);
+    }
+
+    /**
+     * Libera a chave de uma transação que falhou, para que uma nova tentativa seja executada.
+     */
+    public void liberar(String chave, String numeroCartao) {
+        acessar(chave, numeroCartao, 0, AUSENTE);
+    }
+
+    /**
+     * Rotaciona as gerações dos segmentos cuja geração atual foi iniciada há pelo menos
+     * {@code janela}. Mantém a consulta do relógio fora das operações.
+     */
+    public void expirar() {
+        long agora = System.nanoTime();
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                if (agora - segmento.inicioAtual >= janelaNanos) {
+                    segmento.rotacionar(agora);
+                }
+            }
+        }
+    }
+
+    public void limpar() {
+        long agora = System.nanoTime();
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.rotacionar(agora);
+                segmento.rotacionar(agora);
+            }
+        }
+    }
+
+    byte reservar(long hash, long verificacao, long valorCentavos) {
+        Segmento segmento = segmentoDo(hash);
+        synchronized (segmento) {
+            return segmento.reservar(identificador(hash), verificacao, valorCentavos);
+        }
+    }
+
+    void concluir(long hash, long verificacao, long valorCentavos, byte status) {
+        Segmento segmento = segmentoDo(hash);
+        synchronized (segmento) {
+            segmento.definir(identificador(hash), verificacao, valorCentavos, status);
+        }
+    }
+
+    /**
+     * Calcula os dois hashes da chave e do cartão numa única passagem: cada quatro caracteres
+     * formam um {@code long} misturado por multiplicação e rotação em dois acumuladores com
+     * sementes e multiplicadores diferentes, finalizados pelo MurmurHash3 para espalhar os bits
+     * usados na escolha do segmento e da posição.
+     */
+    private byte acessar(String chave, String numeroCartao, long valorCentavos, byte operacao) {
+        long hash = semente;
+        long verificacao = sementeVerificacao;
+        for (int i = 0; i < chave.length(); i += 4) {
+            long palavra = palavra(chave, i);
+            hash = Long.rotateLeft((hash ^ palavra) * MULTIPLICADOR, 31);
+            verificacao = Long.rotateLeft((verificacao ^ palavra) * MULTIPLICADOR_VERIFICACAO, 27);
+        }
+        // O tamanho separa a chave do cartão
+        hash = Long.rotateLeft((hash ^ chave.length()) * MULTIPLICADOR, 31);
+        verificacao = Long.rotateLeft((verificacao ^ chave.length()) * MULTIPLICADOR_VERIFICACAO, 27);
+        for (int i = 0; i < numeroCartao.length(); i += 4) {
+            long palavra = palavra(numeroCartao, i);
+            hash = Long.rotateLeft((hash ^ palavra) * MULTIPLICADOR, 31);
+            verificacao = Long.rotateLeft((verificacao ^ palavra) * MULTIPLICADOR_VERIFICACAO, 27);
+        }
+
+        if (operacao == RESERVAR) {
+            return reservar(finalizar(hash), finalizar(verificacao), valorCentavos);
+        }
+        concluir(finalizar(hash), finalizar(verificacao), valorCentavos, operacao);
+        return operacao;
+    }
+
+    private static long palavra(String texto, int inicio) {
+        long palavra = 0;
+        for (int j = Math.min(inicio + 4, texto.length()) - 1; j >= inicio; j--) {
+            palavra = (palavra << 16) | texto.charAt(j);
+        }
+        return palavra;
+    }
+
+    private static long finalizar(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private Segmento segmentoDo(long hash) {
+        return segmentos[(int) (hash >>> (Long.SIZE - BITS_SEGMENTO))];
+    }
+
+    // Zero marca posição vazia
+    private static long identificador(long hash) {
+        long identificador = hash & ~MASCARA_STATUS;
+        return identificador == 0 ? MASCARA_STATUS + 1 : identificador;
+    }
+
+    private static final class Segmento {
+
+        private Geracao atual;
+        private Geracao anterior;
+        private long inicioAtual;
+
+        Segmento(int posicoes, int limite, long agora) {
+            this.atual = new Geracao(posicoes, limite);
+            this.anterior = new Geracao(posicoes, limite);
+            this.inicioAtual = agora;
+        }
+
+        byte reservar(long identificador, long verificacao, long valorCentavos) {
+            Geracao geracao = atual;
+            int posicao = atual.posicao(identificador, verificacao);
+            if (posicao < 0) {
+                geracao = anterior;
+                posicao = anterior.posicao(identificador, verificacao);
+            }
+            if (posicao < 0) {
+                inserir(identificador, verificacao, valorCentavos, EM_ANDAMENTO);
+                return AUSENTE;
+            }
+
+            byte status = geracao.status(posicao);
+            if (status == AUSENTE) {
+                geracao.definir(posicao, valorCentavos, EM_ANDAMENTO);
+                return AUSENTE;
+            }
+            return geracao.valor(posicao) == valorCentavos ? status : VALOR_DIFERENTE;
+        }
+
+        void definir(long identificador, long verificacao, long valorCentavos, byte status) {
+            int posicao = atual.posicao(identificador, verificacao);
+            if (posicao >= 0) {
+                atual.definir(posicao, valorCentavos, status);
+                return;
+            }
+            posicao = anterior.posicao(identificador, verificacao);
+            if (posicao >= 0) {
+                anterior.definir(posicao, valorCentavos, status);
+            } else if (status != AUSENTE) {
+                inserir(identificador, verificacao, valorCentavos, status);
+            }
+        }
+
+        private void inserir(long identificador, long verificacao, long valorCentavos, byte status) {
+            if (atual.cheia()) {
+                rotacionar(System.nanoTime());
+            }
+            atual.inserir(identificador, verificacao, valorCentavos, status);
+        }
+
+        void rotacionar(long agora) {
+            Geracao descartada = anterior;
+            descartada.limpar();
+            anterior = atual;
+            atual = descartada;
+            inicioAtual = agora;
+        }
+    }
+
+    private static final class Geracao {
+
+        // Identificador e status, verificação e valor de cada posição
+        private static final int CAMPOS = 3;
+
+        private final long[] entradas;
+        private final int mascara;
+        private final int limite;
+        private int ocupadas;
+
+        Geracao(int posicoes, int limite) {
+            this.entradas = new long[posicoes * CAMPOS];
+            this.mascara = posicoes - 1;
+            this.limite = limite;
+        }
+
+        int posicao(long identificador, long verificacao) {
+            for (int i = indice(identificador); ; i = (i + 1) & mascara) {
+                long entrada = entradas[i * CAMPOS];
+                if ((entrada & ~MASCARA_STATUS) == identificador && entradas[i * CAMPOS + 1] == verificacao) {
+                    return i;
+                }
+                if (entrada == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        byte status(int posicao) {
+            return (byte) entradas[posicao * CAMPOS];
+        }
+
+        long valor(int posicao) {
+            return entradas[posicao * CAMPOS + 2];
+        }
+
+        void definir(int posicao, long valorCentavos, byte status) {
+            int base = posicao * CAMPOS;
+            entradas[base] = (entradas[base] & ~MASCARA_STATUS) | (status & MASCARA_STATUS);
+            if (status != AUSENTE) {
+                entradas[base + 2] = valorCentavos;
+            }
+        }
+
+        void inserir(long identificador, long verificacao, long valorCentavos, byte status) {
+            int i = indice(identificador);
+            while (entradas[i * CAMPOS] != 0) {
+                i = (i + 1) & mascara;
+            }
+            int base = i * CAMPOS;
+            entradas[base] = identificador | (status & MASCARA_STATUS);
+            entradas[base + 1] = verificacao;
+            entradas[base + 2] = valorCentavos;
+            ocupadas++;
+        }
+
+        boolean cheia() {
+            return ocupadas >= limite;
+        }
+
+        void limpar() {
+            if (ocupadas > 0) {
+                Arrays.fill(entradas, 0);
+                ocupadas = 0;
+            }
+        }
+
+        private int indice(long identificador) {
+            return (int) (identificador >>> Long.BYTES) & mascara;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.vr.miniautorizador.idempotencia;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.TransacaoIdempotente;
+import com.vr.miniautorizador.exception.ChaveIdempotenciaReutilizadaException;
+import com.vr.miniautorizador.exception.TransacaoEmAndamentoException;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.repository.TransacaoIdempotenteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Garante que uma transação com {@code Idempotency-Key} seja aplicada uma única vez por cartão.
+ * O {@link DeduplicadorTransacoes} guarda a chave, o valor e o status das transações da janela e
+ * responde sozinho às repetições dentro dela. Numa chave ausente da memória, o banco é consultado
+ * uma vez; se a chave também não estiver lá, o débito é executado e a transação concluída é gravada
+ * em {@code transacao_idempotente} por uma thread escritora, em lotes, fora do caminho da
+ * requisição. Os registros são removidos após {@code autorizador.idempotencia.retencao}.
+ *
+ * <p>Enquanto a transação original está em andamento, as repetições recebem
+ * {@link TransacaoEmAndamentoException}; com outro valor, recebem
+ * {@link ChaveIdempotenciaReutilizadaException}. A chave é liberada quando o débito certamente não
+ * ocorreu ({@link TransacaoNaoExecutadaException}). Em qualquer outra falha, como o tempo esgotado
+ * aguardando o shard ou o nó responsável, o débito pode ter sido aplicado e não há como conferi-lo:
+ * a chave continua em andamento somente em memória, até ser descartada com a sua geração (no máximo
+ * duas janelas e um quarto), e nada é gravado no banco.
+ */
+@Slf4j
+@Component
+public class IdempotenciaTransacoes {
+
+    private static final TransacaoStatus[] STATUS = TransacaoStatus.values();
+    private static final int LOTE_MAXIMO = 500;
+    private static final int VARREDURAS_POR_JANELA = 4;
+    private static final int TENTATIVAS_AO_ENCERRAR = 3;
+    private static final Duration ESPERA_POR_PENDENTES = Duration.ofMillis(100);
+    private static final Duration PAUSA_APOS_FALHA = Duration.ofSeconds(1);
+
+    private final DeduplicadorTransacoes deduplicador;
+    private final TransacaoIdempotenteRepository repository;
+    private final boolean habilitado;
+    private final Duration janela;
+    private final Duration retencao;
+    private final BlockingQueue<TransacaoIdempotente> pendentes;
+    private final AtomicLong publicadas = new AtomicLong();
+    private final Counter repeticoesMemoria;
+    private final Counter repeticoesBanco;
+    private final Counter descartadas;
+    private final Counter recusadas;
+    private final Thread escritor = new Thread(this::gravarPendentes, "autorizador-idempotencia-gravacao");
+    private final ScheduledExecutorService limpeza = Executors.newSingleThreadScheduledExecutor(
+            tarefa -> new Thread(tarefa, "autorizador-idempotencia"));
+
+    private volatile boolean ativo = true;
+    private volatile long gravadas;
+
+    public IdempotenciaTransacoes(TransacaoIdempotenteRepository repository, AutorizadorProperties properties,
+                                  MeterRegistry meterRegistry) {
+        AutorizadorProperties.Idempotencia configuracao = properties.getIdempotencia();
+
+        this.repository = repository;
+        this.habilitado = configuracao.isHabilitado();
+        this.janela = configuracao.getJanela();
+        this.retencao = configuracao.getRetencao();
+        this.deduplicador = new DeduplicadorTransacoes(configuracao.getCapacidade(), janela.toNanos());
+        this.pendentes = new ArrayBlockingQueue<>(configuracao.getCapacidadeGravacao());
+        this.repeticoesMemoria = repeticoes(meterRegistry, "memoria");
+        this.repeticoesBanco = repeticoes(meterRegistry, "banco");
+        this.descartadas = Counter.builder("autorizador.idempotencia.descartadas")
+                .description("Chaves de idempotência não gravadas no banco por falta de espaço na fila")
+                .register(meterRegistry);
+        this.recusadas = Counter.builder("autorizador.idempotencia.recusadas")
+                .description("Chaves de idempotência descartadas por serem recusadas pelo banco")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.idempotencia.pendentes", pendentes, BlockingQueue::size)
+                .description("Chaves de idempotência aguardando gravação no banco")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (habilitado) {
+            escritor.start();
+            long intervalo = janela.toMillis();
+            long varredura = janela.dividedBy(VARREDURAS_POR_JANELA).toMillis();
+            limpeza.scheduleWithFixedDelay(deduplicador::expirar, varredura, varredura, TimeUnit.MILLISECONDS);
+            limpeza.scheduleWithFixedDelay(this::removerExpiradas, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        ativo = false;
+        limpeza.shutdownNow();
+        if (habilitado) {
+            escritor.join();
+        }
+    }
+
+    public TransacaoStatus executar(String chaveIdempotencia, TransacaoRequest request, Supplier<TransacaoStatus> transacao) {
+        if (!habilitado) {
+            return transacao.get();
+        }
+        String numeroCartao = request.getNumeroCartao();
+        long valorCentavos = request.getValorCentavos();
+
+        byte emMemoria = deduplicador.reservar(chaveIdempotencia, numeroCartao, valorCentavos);
+        if (emMemoria != DeduplicadorTransacoes.AUSENTE) {
+            return repetir(emMemoria);
+        }
+
+        Optional<TransacaoIdempotente> registrada;
+        try {
+            registrada = repository.buscar(chaveIdempotencia, numeroCartao);
+        } catch (RuntimeException e) {
+            deduplicador.liberar(chaveIdempotencia, numeroCartao);
+            throw e;
+        }
+        if (registrada.isPresent()) {
+            return repetir(registrada.get(), valorCentavos);
+        }
+
+        TransacaoStatus status;
+        try {
+            status = transacao.get();
+        } catch (TransacaoNaoExecutadaException e) {
+            deduplicador.liberar(chaveIdempotencia, numeroCartao);
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Resultado indeterminado da transação com Idempotency-Key {}; a chave continua em andamento por até {}",
+                    chaveIdempotencia, janela.multipliedBy(2).plus(janela.dividedBy(VARREDURAS_POR_JANELA)));
+            throw e;
+        }
+
+        deduplicador.concluir(chaveIdempotencia, numeroCartao, valorCentavos, (byte) status.ordinal());
+        publicar(TransacaoIdempotente.builder()
+                .chave(chaveIdempotencia)
+                .numeroCartao(numeroCartao)
+                .status(status)
+                .valorCentavos(valorCentavos)
+                .criadaEm(Instant.now())
+                .build());
+        return status;
+    }
+
+    /**
+     * Descarta as chaves em memória, por exemplo após alterações feitas diretamente no banco.
+     */
+    public void limpar() {
+        deduplicador.limpar();
+    }
+
+    /**
+     * Aguarda a gravação de todas as chaves concluídas até aqui, por até {@code timeout}.
+     */
+    public boolean descarregar(Duration timeout) throws InterruptedException {
+        long alvo = publicadas.get();
+        long limite = System.nanoTime() + timeout.toNanos();
+        while (gravadas < alvo) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private TransacaoStatus repetir(byte emMemoria) {
+        if (emMemoria == DeduplicadorTransacoes.VALOR_DIFERENTE) {
+            throw new ChaveIdempotenciaReutilizadaException();
+        }
+        if (emMemoria == DeduplicadorTransacoes.EM_ANDAMENTO) {
+            throw new TransacaoEmAndamentoException();
+        }
+        repeticoesMemoria.increment();
+        return STATUS[emMemoria];
+    }
+
+    private TransacaoStatus repetir(TransacaoIdempotente registrada, long valorCentavos) {
+        String chave = registrada.getChave();
+        String numeroCartao = registrada.getNumeroCartao();
+        Long valorRegistrado = registrada.getValorCentavos();
+        deduplicador.concluir(chave, numeroCartao, valorRegistrado == null ? valorCentavos : valorRegistrado,
+                (byte) registrada.getStatus().ordinal());
+        if (valorRegistrado != null && valorRegistrado != valorCentavos) {
+            throw new ChaveIdempotenciaReutilizadaException();
+        }
+        repeticoesBanco.increment();
+        return registrada.getStatus();
+    }
+
+    private void publicar(TransacaoIdempotente transacao) {
+        if (pendentes.offer(transacao)) {
+            publicadas.incrementAndGet();
+        } else {
+            descartadas.increment();
+        }
+    }
+
+    private void gravarPendentes() {
+        List<TransacaoIdempotente> lote = new ArrayList<>(LOTE_MAXIMO);
+        while (ativo || !pendentes.isEmpty()) {
+            try {
+                TransacaoIdempotente primeira = pendentes.poll(ESPERA_POR_PENDENTES.toMillis(), TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                lote.add(primeira);
+                pendentes.drainTo(lote, LOTE_MAXIMO - 1);
+                gravar(lote);
+                gravadas += lote.size();
+                lote.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Falhas transitórias, como o banco indisponível, são repetidas; numa recusa permanente, como
+     * uma chave já gravada por outra instância, as transações do lote são gravadas uma a uma.
+     */
+    private void gravar(List<TransacaoIdempotente> lote) throws InterruptedException {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                repository.gravar(lote);
+                return;
+            } catch (DataAccessException e) {
+                if (recusaPermanente(e)) {
+                    lote.forEach(this::gravarIndividualmente);
+                    return;
+                }
+                if (!ativo && tentativa >= TENTATIVAS_AO_ENCERRAR) {
+                    log.error("Descartando {} chaves de idempotência após {} tentativas", lote.size(), tentativa, e);
+                    return;
+                }
+                log.warn("Falha ao gravar {} chaves de idempotência; nova tentativa em {}", lote.size(), PAUSA_APOS_FALHA, e);
+                Thread.sleep(PAUSA_APOS_FALHA.toMillis());
+            }
+        }
+    }
+
+    private void gravarIndividualmente(TransacaoIdempotente transacao) {
+        try {
+            repository.gravar(List.of(transacao));
+        } catch (DuplicateKeyException e) {
+            log.debug("Idempotency-Key {} do cartão {} já registrada", transacao.getChave(), transacao.getNumeroCartao());
+        } catch (DataAccessException e) {
+            log.error("Descartando a Idempotency-Key {} do cartão {} recusada pelo banco",
+                    transacao.getChave(), transacao.getNumeroCartao(), e);
+            recusadas.increment();
+        }
+    }
+
+    private static boolean recusaPermanente(DataAccessException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void removerExpiradas() {
+        try {
+            int removidas = repository.removerAnterioresA(Instant.now().minus(retencao));
+            log.debug("{} chaves de idempotência removidas", removidas);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao remover chaves de idempotência expiradas", e);
+        }
+    }
+
+    private static Counter repeticoes(MeterRegistry meterRegistry, String origem) {
+        return Counter.builder("autorizador.idempotencia.repeticoes")
+                .description("Transações repetidas com o mesmo Idempotency-Key, respondidas sem novo débito")
+                .tag("origem", origem)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.vr.miniautorizador.metrica;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Expõe em {@code /actuator/contencao} os cartões com mais esperas pelo lock acima do limite.
+ */
+@Component
+@Endpoint(id = "contencao")
+@RequiredArgsConstructor
+public class ContencaoEndpoint {
+
+    private final MetricasAutorizacao metricas;
+
+    @ReadOperation
+    public List<MetricasAutorizacao.CartaoContendido> cartoesMaisContendidos() {
+        return metricas.cartoesMaisContendidos();
+    }
+}
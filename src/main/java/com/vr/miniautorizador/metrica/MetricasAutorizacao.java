@@ -0,0 +1,185 @@
+package com.vr.miniautorizador.metrica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas do caminho de autorização. Os medidores são criados uma única vez e as durações são
+ * registradas a partir de {@link System#nanoTime()}, sem {@code Timer.Sample} por requisição.
+ *
+ * <ul>
+ *   <li>{@code autorizador.operacao{operacao}}: latência de {@code realizarTransacao},
+ *   {@code obterSaldo} e {@code criarCartao}, com histograma de percentis;</li>
+ *   <li>{@code autorizador.transacao.fase{fase}}: espera pelo lock, validação e commit;</li>
+ *   <li>{@code autorizador.transacoes{status}}: transações por {@link TransacaoStatus};</li>
+ *   <li>{@code autorizador.contencao}: esperas pelo lock acima de
+ *   {@code autorizador.metricas.limite-contencao}, também contadas por cartão para o endpoint
+ *   {@code /actuator/contencao}.</li>
+ * </ul>
+ */
+@Component
+public class MetricasAutorizacao {
+
+    private final Timer transacao;
+    private final Timer consulta;
+    private final Timer criacao;
+    private final Timer esperaLock;
+    private final Timer validacao;
+    private final Timer commit;
+    private final Map<TransacaoStatus, Counter> transacoesPorStatus = new EnumMap<>(TransacaoStatus.class);
+    private final Counter contencao;
+    private final Cache<String, LongAdder> contencaoPorCartao;
+    private final long limiteContencaoNanos;
+    private final int cartoesMaisContendidos;
+
+    public MetricasAutorizacao(AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        AutorizadorProperties.Metricas metricas = properties.getMetricas();
+
+        this.transacao = operacao(meterRegistry, "realizarTransacao");
+        this.consulta = operacao(meterRegistry, "obterSaldo");
+        this.criacao = operacao(meterRegistry, "criarCartao");
+        this.esperaLock = fase(meterRegistry, "espera_lock");
+        this.validacao = fase(meterRegistry, "validacao");
+        this.commit = fase(meterRegistry, "commit");
+        for (TransacaoStatus status : TransacaoStatus.values()) {
+            transacoesPorStatus.put(status, Counter.builder("autorizador.transacoes")
+                    .description("Transações por status")
+                    .tag("status", status.name())
+                    .register(meterRegistry));
+        }
+        this.contencao = Counter.builder("autorizador.contencao")
+                .description("Esperas pelo lock do cartão acima do limite de contenção")
+                .register(meterRegistry);
+        // O W-TinyLFU do Caffeine retém os cartões mais frequentes quando o limite é atingido
+        this.contencaoPorCartao = Caffeine.newBuilder()
+                .maximumSize(metricas.getCartoesMonitorados())
+                .build();
+        this.limiteContencaoNanos = metricas.getLimiteContencao().toNanos();
+        this.cartoesMaisContendidos = metricas.getCartoesMaisContendidos();
+    }
+
+    public void registrarTransacao(TransacaoStatus status, long inicioNanos) {
+        transacao.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+        transacoesPorStatus.get(status).increment();
+    }
+
+    /**
+     * Conta os status de um lote; a latência do lote não entra no histograma de transações.
+     */
+    public void contarTransacoes(List<TransacaoStatus> resultados) {
+        for (TransacaoStatus status : resultados) {
+            transacoesPorStatus.get(status).increment();
+        }
+    }
+
+    public void registrarConsulta(long inicioNanos) {
+        consulta.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra a criação ao fim da transação corrente, incluindo o commit. Deve ser chamado
+     * dentro de um método {@code @Transactional}.
+     */
+    public void registrarCriacaoAoConcluir(long inicioNanos) {
+        aoConcluir(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                criacao.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void registrarEsperaLock(String numeroCartao, long inicioNanos) {
+        long espera = System.nanoTime() - inicioNanos;
+        esperaLock.record(espera, TimeUnit.NANOSECONDS);
+        if (espera > limiteContencaoNanos) {
+            contencao.increment();
+            contencaoPorCartao.get(numeroCartao, numero -> new LongAdder()).increment();
+        }
+    }
+
+    public void registrarValidacao(long inicioNanos) {
+        validacao.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Mede o commit da transação corrente, do {@code beforeCommit} ao fim da transação.
+     */
+    public void medirCommit() {
+        aoConcluir(new TransactionSynchronization() {
+            private long inicio;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                inicio = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    commit.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cartões com mais esperas pelo lock acima do limite, em ordem decrescente.
+     */
+    public List<CartaoContendido> cartoesMaisContendidos() {
+        return contencaoPorCartao.asMap().entrySet().stream()
+                .map(entrada -> new CartaoContendido(entrada.getKey(), entrada.getValue().sum()))
+                .sorted(Comparator.comparingLong(CartaoContendido::getEsperas).reversed())
+                .limit(cartoesMaisContendidos)
+                .toList();
+    }
+
+    private static void aoConcluir(TransactionSynchronization sincronizacao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(sincronizacao);
+        }
+    }
+
+    private static Timer operacao(MeterRegistry meterRegistry, String operacao) {
+        return histograma(Timer.builder("autorizador.operacao")
+                .description("Latência das operações de cartão")
+                .tag("operacao", operacao), meterRegistry);
+    }
+
+    private static Timer fase(MeterRegistry meterRegistry, String fase) {
+        return histograma(Timer.builder("autorizador.transacao.fase")
+                .description("Latência das fases de uma transação")
+                .tag("fase", fase), meterRegistry);
+    }
+
+    private static Timer histograma(Timer.Builder builder, MeterRegistry meterRegistry) {
+        return builder
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    @Value
+    public static class CartaoContendido {
+        String numeroCartao;
+        long esperas;
+    }
+}
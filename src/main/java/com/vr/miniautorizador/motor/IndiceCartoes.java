@@ -0,0 +1,371 @@
+package com.vr.miniautorizador.motor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Saldos em memória indexados pelo número do cartão, sem um objeto por cartão. Números de até 16
+ * dígitos são convertidos em uma chave {@code long} (quantidade de dígitos nos bits 54 a 58 e o
+ * valor nos 54 bits inferiores, preservando zeros à esquerda); números com outros caracteres
+ * recebem uma chave sequencial guardada à parte.
+ *
+ * <p>Chaves, saldos e versões ficam em arrays paralelos com endereçamento aberto e sondagem linear,
+ * ocupando 20 bytes por posição. A tabela cresce 50% ao atingir 80% de ocupação, de modo que
+ * cada cartão ocupa entre 25 e 37,5 bytes.
+ *
+ * <p>Uma única thread altera o índice; as demais podem consultar saldos sem bloqueio. Uma chave só
+ * é publicada depois do saldo, e a posição de um cartão removido só é reaproveitada na próxima
+ * reconstrução da tabela, que é publicada inteira. O {@link SnapshotCartoes} percorre a tabela
+ * enquanto ela é alterada e a carrega, antes de o índice entrar em uso, com várias threads.
+ */
+public final class IndiceCartoes {
+
+    /**
+     * Saldo retornado para cartões fora do índice.
+     */
+    public static final long AUSENTE = Long.MIN_VALUE;
+
+    private static final long VAZIA = -1;
+    private static final long REMOVIDA = -2;
+    private static final long TEXTUAL = 1L << 62;
+    private static final int BITS_VALOR = 54;
+    private static final long MASCARA_VALOR = (1L << BITS_VALOR) - 1;
+    private static final int DIGITOS_MAXIMOS = 16;
+    private static final double CARGA_MAXIMA = 0.8;
+    private static final double CRESCIMENTO = 1.5;
+    private static final int CAPACIDADE_MINIMA = 16;
+    private static final int BYTES_POR_POSICAO = Long.BYTES * 2 + Integer.BYTES;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Map<String, Long> chavesTextuais = new ConcurrentHashMap<>();
+    private final Map<Long, String> numerosTextuais = new ConcurrentHashMap<>();
+
+    private volatile Tabela tabela;
+    private volatile int tamanho;
+    private int removidas;
+
+    public IndiceCartoes(int cartoesEsperados) {
+        this.tabela = new Tabela(capacidadePara(cartoesEsperados));
+    }
+
+    /**
+     * Saldo do cartão ou {@link #AUSENTE}; pode ser chamado por qualquer thread.
+     */
+    public long saldo(String numeroCartao) {
+        long chave = chaveExistente(numeroCartao);
+        if (chave == VAZIA) {
+            return AUSENTE;
+        }
+        Tabela atual = tabela;
+        int posicao = atual.localizar(chave);
+        return posicao < 0 ? AUSENTE : (long) LONGS.getAcquire(atual.saldos, posicao);
+    }
+
+    public boolean contem(String numeroCartao) {
+        return saldo(numeroCartao) != AUSENTE;
+    }
+
+    /**
+     * Posição do cartão na tabela atual ou {@code -1}. A posição só é válida até a próxima
+     * inserção ou remoção.
+     */
+    public int localizar(String numeroCartao) {
+        long chave = chaveExistente(numeroCartao);
+        return chave == VAZIA ? -1 : tabela.localizar(chave);
+    }
+
+    public long saldo(int posicao) {
+        return tabela.saldos[posicao];
+    }
+
+    public int versao(int posicao) {
+        return tabela.versoes[posicao];
+    }
+
+    /**
+     * Grava o novo saldo do cartão na posição e incrementa a sua versão.
+     */
+    public void atualizarSaldo(int posicao, long saldoCentavos) {
+        Tabela atual = tabela;
+        atual.versoes[posicao]++;
+        LONGS.setRelease(atual.saldos, posicao, saldoCentavos);
+    }
+
+    /**
+     * Insere o cartão se ainda não estiver no índice; retorna a sua posição.
+     */
+    public int inserir(String numeroCartao, long saldoCentavos, int versao) {
+        long chave = chave(numeroCartao);
+        int posicao = tabela.localizar(chave);
+        if (posicao >= 0) {
+            return posicao;
+        }
+        if (tamanho + removidas + 1 > tabela.limite) {
+            reconstruir(capacidadePara((int) Math.min(Integer.MAX_VALUE / 2, (long) ((tamanho + 1) * CRESCIMENTO))));
+        }
+        tamanho++;
+        return tabela.inserir(chave, saldoCentavos, versao);
+    }
+
+    /**
+     * Insere o cartão ou substitui o seu saldo.
+     */
+    public void definir(String numeroCartao, long saldoCentavos) {
+        int posicao = localizar(numeroCartao);
+        if (posicao < 0) {
+            inserir(numeroCartao, saldoCentavos, 0);
+        } else {
+            atualizarSaldo(posicao, saldoCentavos);
+        }
+    }
+
+    /**
+     * Remove o cartão; retorna se ele estava no índice.
+     */
+    public boolean remover(String numeroCartao) {
+        int posicao = localizar(numeroCartao);
+        if (posicao < 0) {
+            return false;
+        }
+        LONGS.setRelease(tabela.chaves, posicao, REMOVIDA);
+        tamanho--;
+        removidas++;
+        return true;
+    }
+
+    /**
+     * Remove os cartões aceitos por {@code removido}; retorna a quantidade removida.
+     */
+    public int removerSe(Predicate<String> removido) {
+        Tabela atual = tabela;
+        int removidos = 0;
+        for (int i = 0; i < atual.chaves.length; i++) {
+            long chave = atual.chaves[i];
+            if (chave >= 0 && removido.test(numero(chave))) {
+                LONGS.setRelease(atual.chaves, i, REMOVIDA);
+                removidos++;
+            }
+        }
+        tamanho -= removidos;
+        removidas += removidos;
+        return removidos;
+    }
+
+    public void paraCada(ObjLongConsumer<String> consumidor) {
+        Tabela atual = tabela;
+        for (int i = 0; i < atual.chaves.length; i++) {
+            long chave = atual.chaves[i];
+            if (chave >= 0) {
+                consumidor.accept(numero(chave), atual.saldos[i]);
+            }
+        }
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Bytes ocupados pelos arrays da tabela, sem os números não numéricos guardados à parte.
+     */
+    public long bytesOcupados() {
+        return (long) tabela.chaves.length * BYTES_POR_POSICAO;
+    }
+
+    /**
+     * Cartão visto por {@link #percorrer}, pela chave interna.
+     */
+    interface RegistroCartao {
+        void aceitar(long chave, long saldoCentavos, int versao);
+    }
+
+    /**
+     * Percorre a tabela atual sem bloquear a thread escritora. Cada cartão é visto com o saldo de
+     * algum instante do percurso; cartões inseridos ou removidos durante o percurso, ou depois de
+     * uma reconstrução, podem ou não aparecer.
+     */
+    void percorrer(RegistroCartao consumidor) {
+        Tabela atual = tabela;
+        for (int i = 0; i < atual.chaves.length; i++) {
+            long chave = (long) LONGS.getAcquire(atual.chaves, i);
+            if (chave >= 0) {
+                consumidor.aceitar(chave, (long) LONGS.getAcquire(atual.saldos, i), atual.versoes[i]);
+            }
+        }
+    }
+
+    /**
+     * Números não numéricos já vistos, pela chave; inclui os de cartões removidos, para que as
+     * chaves restauradas não sejam reaproveitadas.
+     */
+    Map<Long, String> numerosTextuais() {
+        return Map.copyOf(numerosTextuais);
+    }
+
+    void restaurarTextual(long chave, String numeroCartao) {
+        chavesTextuais.put(numeroCartao, chave);
+        numerosTextuais.put(chave, numeroCartao);
+    }
+
+    /**
+     * Dimensiona o índice, ainda vazio, para {@code cartoes} inserções por {@link #inserirNaCarga}.
+     */
+    void prepararCarga(long cartoes) {
+        if (tamanho != 0 || removidas != 0) {
+            throw new IllegalStateException("A carga só pode ser feita num índice vazio");
+        }
+        tabela = new Tabela(capacidadePara(Math.toIntExact(cartoes)));
+    }
+
+    /**
+     * Insere uma chave ainda ausente; pode ser chamado por várias threads ao mesmo tempo, entre
+     * {@link #prepararCarga} e {@link #concluirCarga}, sem leitores.
+     */
+    void inserirNaCarga(long chave, long saldoCentavos, int versao) {
+        tabela.inserirConcorrente(chave, saldoCentavos, versao);
+    }
+
+    /**
+     * Publica a tabela carregada para as demais threads.
+     */
+    void concluirCarga(long cartoes) {
+        Tabela carregada = tabela;
+        tamanho = Math.toIntExact(cartoes);
+        // Escrita volátil depois das inserções das threads de carga, lidas por quem lê a tabela
+        tabela = carregada;
+    }
+
+    private void reconstruir(int capacidade) {
+        Tabela antiga = tabela;
+        Tabela nova = new Tabela(capacidade);
+        for (int i = 0; i < antiga.chaves.length; i++) {
+            long chave = antiga.chaves[i];
+            if (chave >= 0) {
+                nova.inserir(chave, antiga.saldos[i], antiga.versoes[i]);
+            }
+        }
+        removidas = 0;
+        tabela = nova;
+    }
+
+    private long chave(String numeroCartao) {
+        long chave = chaveNumerica(numeroCartao);
+        if (chave != VAZIA) {
+            return chave;
+        }
+        return chavesTextuais.computeIfAbsent(numeroCartao, numero -> {
+            long nova = TEXTUAL | chavesTextuais.size();
+            numerosTextuais.put(nova, numero);
+            return nova;
+        });
+    }
+
+    private long chaveExistente(String numeroCartao) {
+        long chave = chaveNumerica(numeroCartao);
+        return chave != VAZIA ? chave : chavesTextuais.getOrDefault(numeroCartao, VAZIA);
+    }
+
+    private String numero(long chave) {
+        if ((chave & TEXTUAL) != 0) {
+            return numerosTextuais.get(chave);
+        }
+        int digitos = (int) (chave >>> BITS_VALOR);
+        char[] numero = new char[digitos];
+        long valor = chave & MASCARA_VALOR;
+        for (int i = digitos - 1; i >= 0; i--) {
+            numero[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return new String(numero);
+    }
+
+    private static long chaveNumerica(String numeroCartao) {
+        int digitos = numeroCartao.length();
+        if (digitos == 0 || digitos > DIGITOS_MAXIMOS) {
+            return VAZIA;
+        }
+        long valor = 0;
+        for (int i = 0; i < digitos; i++) {
+            int digito = numeroCartao.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return VAZIA;
+            }
+            valor = valor * 10 + digito;
+        }
+        return (long) digitos << BITS_VALOR | valor;
+    }
+
+    private static int capacidadePara(int cartoes) {
+        return Math.max(CAPACIDADE_MINIMA, (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(cartoes / CARGA_MAXIMA)));
+    }
+
+    private static final class Tabela {
+
+        private final long[] chaves;
+        private final long[] saldos;
+        private final int[] versoes;
+        private final int limite;
+        private final long semente;
+
+        private Tabela(int capacidade) {
+            this.chaves = new long[capacidade];
+            this.saldos = new long[capacidade];
+            this.versoes = new int[capacidade];
+            this.limite = (int) (capacidade * CARGA_MAXIMA);
+            // Cada capacidade espalha as chaves de outro modo: inserir na ordem de outra tabela
+            // (reconstrução, cópia de outro índice) não concentra as chaves no início desta
+            this.semente = capacidade * 0x9e3779b97f4a7c15L;
+            Arrays.fill(chaves, VAZIA);
+        }
+
+        private int localizar(long chave) {
+            int capacidade = chaves.length;
+            for (int i = inicio(chave, capacidade); ; i = i + 1 == capacidade ? 0 : i + 1) {
+                long atual = (long) LONGS.getAcquire(chaves, i);
+                if (atual == chave) {
+                    return i;
+                }
+                if (atual == VAZIA) {
+                    return -1;
+                }
+            }
+        }
+
+        private int inserir(long chave, long saldoCentavos, int versao) {
+            int capacidade = chaves.length;
+            int i = inicio(chave, capacidade);
+            while (chaves[i] != VAZIA) {
+                i = i + 1 == capacidade ? 0 : i + 1;
+            }
+            saldos[i] = saldoCentavos;
+            versoes[i] = versao;
+            LONGS.setRelease(chaves, i, chave);
+            return i;
+        }
+
+        private void inserirConcorrente(long chave, long saldoCentavos, int versao) {
+            int capacidade = chaves.length;
+            int i = inicio(chave, capacidade);
+            while (!LONGS.compareAndSet(chaves, i, VAZIA, chave)) {
+                i = i + 1 == capacidade ? 0 : i + 1;
+            }
+            saldos[i] = saldoCentavos;
+            versoes[i] = versao;
+        }
+
+        private int inicio(long chave, int capacidade) {
+            long hash = (chave ^ semente) * 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            // Redução multiplicativa dos 32 bits superiores para [0, capacidade)
+            return (int) (((hash >>> 32) * capacidade) >>> 32);
+        }
+    }
+}
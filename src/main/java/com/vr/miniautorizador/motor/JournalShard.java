@@ -0,0 +1,417 @@
+package com.vr.miniautorizador.motor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal append-only de um shard, dividido em segmentos numerados. Cada registro guarda o estado
+ * resultante do cartão (e não o valor debitado), de modo que reaplicar um registro já contido no
+ * snapshot não altera o saldo.
+ *
+ * <p>Formato de um registro: {@code tamanho(int) crc32(int) tipo(byte) numero(byte+bytes)
+ * saldo(long)}, com o saldo em centavos. A recuperação para no primeiro registro incompleto ou com
+ * CRC inválido do último segmento e descarta o restante; um registro íntegro com outro tamanho é
+ * de um formato desconhecido e interrompe a recuperação.
+ *
+ * <p>Um snapshot passa a gravação a um novo segmento e é gravado pelo {@link SnapshotCartoes} numa
+ * thread própria, sem pausar a thread escritora; na recuperação, ele é carregado e os segmentos a
+ * partir daquele em que começou são reaplicados. Os segmentos anteriores só são apagados depois de
+ * uma sincronização com o banco iniciada após a troca de segmento, já que contêm saldos que o
+ * banco ainda pode não ter.
+ */
+@Slf4j
+class JournalShard implements AutoCloseable {
+
+    private static final byte ESTADO = 1;
+    private static final byte SALDO = 2;
+    private static final byte REMOCAO = 3;
+    private static final int CABECALHO = Integer.BYTES * 2;
+    private static final String ARQUIVO_SHARDS = "shards";
+
+    private final Path diretorio;
+    private final int indice;
+    private final Path arquivoSnapshot;
+    private final Escritor escritor;
+    private final AtomicReference<Descarte> descartePendente = new AtomicReference<>();
+
+    private FileChannel canal;
+    private long segmento;
+    private long registrosDesdeSnapshot;
+    private CompletableFuture<Long> snapshotEmAndamento = CompletableFuture.completedFuture(0L);
+
+    JournalShard(Path diretorio, int indice) {
+        this.diretorio = diretorio;
+        this.indice = indice;
+        this.arquivoSnapshot = diretorio.resolve("snapshot-" + indice + ".dat");
+        try {
+            Files.createDirectories(diretorio);
+            List<Long> segmentos = segmentos();
+            this.segmento = segmentos.isEmpty() ? 0 : segmentos.get(segmentos.size() - 1);
+            this.canal = abrir(segmento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o journal do shard " + indice + " em " + diretorio, e);
+        }
+        this.escritor = new Escritor(canal);
+    }
+
+    /**
+     * Grava em {@code diretorio} a quantidade de shards com que os journals são escritos, ou confere
+     * a já gravada: como os cartões são distribuídos pelo hash do número módulo essa quantidade,
+     * recuperar os arquivos com outra poria os cartões nos shards errados.
+     *
+     * @throws IllegalStateException se a quantidade gravada for outra, ou se já houver journals
+     * sem ela
+     */
+    static void conferirQuantidadeShards(Path diretorio, int shards) {
+        Path arquivo = diretorio.resolve(ARQUIVO_SHARDS);
+        try {
+            Files.createDirectories(diretorio);
+            if (Files.exists(arquivo)) {
+                int gravada = Integer.parseInt(Files.readString(arquivo, StandardCharsets.US_ASCII).trim());
+                if (gravada != shards) {
+                    throw new IllegalStateException("O journal em " + diretorio + " foi gravado com " + gravada
+                            + " shards; configure autorizador.memoria.shards=" + gravada);
+                }
+                return;
+            }
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                if (arquivos.anyMatch(existente -> existente.getFileName().toString().matches("(journal|snapshot)-.*"))) {
+                    throw new IllegalStateException("O journal em " + diretorio
+                            + " não registra a quantidade de shards com que foi gravado");
+                }
+            }
+            Path temporario = diretorio.resolve(ARQUIVO_SHARDS + ".tmp");
+            Files.writeString(temporario, Integer.toString(shards), StandardCharsets.US_ASCII);
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível conferir a quantidade de shards em " + diretorio, e);
+        }
+    }
+
+    /**
+     * Reconstrói os cartões a partir do último snapshot e dos segmentos seguintes, posicionando o
+     * journal no fim do último registro válido. {@code alterado} recebe o número de cada cartão
+     * presente nos segmentos ainda não apagados, cujo saldo o banco pode não ter.
+     */
+    void recuperar(IndiceCartoes cartoes, Consumer<String> alterado) throws IOException {
+        long primeiroSegmento = 0;
+        if (Files.exists(arquivoSnapshot)) {
+            long inicio = System.nanoTime();
+            primeiroSegmento = SnapshotCartoes.carregar(arquivoSnapshot, cartoes);
+            log.info("Snapshot {} carregado com {} cartões em {} ms", arquivoSnapshot, cartoes.tamanho(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+
+        List<Long> segmentos = segmentos();
+        for (long numero : segmentos) {
+            boolean ultimo = numero == segmento;
+            try (FileChannel anterior = ultimo ? null : FileChannel.open(arquivoSegmento(numero), StandardOpenOption.READ)) {
+                FileChannel origem = ultimo ? canal : anterior;
+                // Segmentos anteriores ao snapshot já estão nele; só os seus cartões são informados
+                long fimValido = ler(arquivoSegmento(numero), origem, numero >= primeiroSegmento ? cartoes : null, alterado);
+                if (fimValido < origem.size()) {
+                    if (!ultimo) {
+                        throw new IOException("Segmento " + arquivoSegmento(numero) + " corrompido na posição " + fimValido);
+                    }
+                    log.warn("Descartando {} bytes incompletos no fim de {}", origem.size() - fimValido, arquivoSegmento(numero));
+                    canal.truncate(fimValido);
+                }
+                if (ultimo) {
+                    canal.position(fimValido);
+                }
+            }
+        }
+        if (primeiroSegmento > 0) {
+            // Os cartões informados em alterado entram na primeira sincronização
+            descartePendente.set(new Descarte(primeiroSegmento, 0));
+        }
+    }
+
+    void registrarEstado(String numeroCartao, long saldoCentavos) {
+        escritor.registrar(ESTADO, numeroCartao, saldoCentavos);
+        registrosDesdeSnapshot++;
+    }
+
+    void registrarSaldo(String numeroCartao, long saldoCentavos) {
+        escritor.registrar(SALDO, numeroCartao, saldoCentavos);
+        registrosDesdeSnapshot++;
+    }
+
+    void registrarRemocao(String numeroCartao) {
+        escritor.registrar(REMOCAO, numeroCartao, 0);
+        registrosDesdeSnapshot++;
+    }
+
+    boolean possuiPendencias() {
+        return escritor.possuiPendencias();
+    }
+
+    long registrosDesdeSnapshot() {
+        return registrosDesdeSnapshot;
+    }
+
+    /**
+     * Grava os registros acumulados e executa um único fsync para todo o grupo.
+     */
+    void commit() {
+        try {
+            escritor.descarregar();
+            canal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha no commit do journal " + arquivoSegmento(segmento), e);
+        }
+    }
+
+    boolean snapshotEmAndamento() {
+        return !snapshotEmAndamento.isDone();
+    }
+
+    /**
+     * Passa a gravar num novo segmento e inicia, em outra thread, a gravação do snapshot; o
+     * resultado é a quantidade de cartões gravados. Deve ser chamado pela thread escritora do
+     * shard logo após um {@link #commit()}, sem outro snapshot em andamento.
+     * {@code sincronizacoesIniciadas} é a contagem do {@link SincronizadorSaldos} depois de
+     * marcados os saldos já gravados no journal.
+     */
+    CompletableFuture<Long> snapshot(IndiceCartoes cartoes, long sincronizacoesIniciadas) {
+        if (snapshotEmAndamento()) {
+            throw new IllegalStateException("Snapshot do shard " + indice + " já em andamento");
+        }
+        long novoSegmento = segmento + 1;
+        try {
+            FileChannel novo = abrir(novoSegmento);
+            // O novo segmento precisa existir no diretório antes de o snapshot apontar para ele
+            novo.force(true);
+            canal.close();
+            canal = novo;
+            segmento = novoSegmento;
+            escritor.canal = novo;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao iniciar o segmento " + arquivoSegmento(novoSegmento), e);
+        }
+        registrosDesdeSnapshot = 0;
+
+        CompletableFuture<Long> resultado = new CompletableFuture<>();
+        snapshotEmAndamento = resultado;
+        Thread gravacao = new Thread(() -> {
+            Path temporario = arquivoSnapshot.resolveSibling(arquivoSnapshot.getFileName() + ".tmp");
+            try {
+                long gravados = SnapshotCartoes.gravar(temporario, cartoes, novoSegmento);
+                Files.move(temporario, arquivoSnapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                descartePendente.set(new Descarte(novoSegmento, sincronizacoesIniciadas));
+                resultado.complete(gravados);
+            } catch (IOException | RuntimeException e) {
+                resultado.completeExceptionally(new UncheckedIOException("Falha ao gravar o snapshot " + arquivoSnapshot,
+                        e instanceof IOException io ? io : new IOException(e)));
+            }
+        }, "autorizador-snapshot-" + indice);
+        gravacao.setDaemon(true);
+        gravacao.start();
+        return resultado;
+    }
+
+    /**
+     * Apaga os segmentos já contidos no último snapshot, se o banco já recebeu os seus saldos:
+     * {@code sincronizacoesConcluidas} é o número da última sincronização bem-sucedida.
+     */
+    void descartarSegmentos(long sincronizacoesConcluidas) {
+        Descarte descarte = descartePendente.get();
+        if (descarte == null || sincronizacoesConcluidas <= descarte.sincronizacao) {
+            return;
+        }
+        try {
+            for (long numero : segmentos()) {
+                if (numero < descarte.segmento) {
+                    Files.deleteIfExists(arquivoSegmento(numero));
+                }
+            }
+            descartePendente.compareAndSet(descarte, null);
+        } catch (IOException e) {
+            log.warn("Falha ao apagar segmentos antigos do journal do shard {}", indice, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            snapshotEmAndamento.join();
+        } catch (CompletionException e) {
+            log.warn("Snapshot do shard {} não concluído antes do encerramento", indice, e.getCause());
+        }
+        canal.close();
+    }
+
+    private FileChannel abrir(long numero) throws IOException {
+        return FileChannel.open(arquivoSegmento(numero),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path arquivoSegmento(long numero) {
+        return diretorio.resolve("journal-" + indice + "-" + numero + ".log");
+    }
+
+    private List<Long> segmentos() throws IOException {
+        Pattern nome = Pattern.compile("journal-" + indice + "-(\\d+)\\.log");
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(arquivo -> nome.matcher(arquivo.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(encontrado -> Long.parseLong(encontrado.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Aplica os registros válidos em {@code cartoes}, se não for nulo, e informa os seus cartões;
+     * retorna a posição seguinte ao último registro válido.
+     */
+    private static long ler(Path arquivo, FileChannel origem, IndiceCartoes cartoes, Consumer<String> alterado) throws IOException {
+        ByteBuffer leitura = origem.map(FileChannel.MapMode.READ_ONLY, 0, origem.size());
+        CRC32 crc = new CRC32();
+
+        while (leitura.remaining() >= CABECALHO) {
+            int inicio = leitura.position();
+            int tamanho = leitura.getInt();
+            int esperado = leitura.getInt();
+            if (tamanho <= 0 || leitura.remaining() < tamanho) {
+                return inicio;
+            }
+
+            ByteBuffer payload = leitura.slice(leitura.position(), tamanho);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != esperado) {
+                return inicio;
+            }
+
+            if (tamanho < Byte.BYTES * 2 || tamanho != Byte.BYTES * 2 + payload.get(1) + Long.BYTES) {
+                throw new IOException("Registro em formato desconhecido em " + arquivo + " na posição " + inicio);
+            }
+            aplicar(payload, cartoes, alterado);
+            leitura.position(leitura.position() + tamanho);
+        }
+        return leitura.position();
+    }
+
+    private static void aplicar(ByteBuffer payload, IndiceCartoes cartoes, Consumer<String> alterado) {
+        byte tipo = payload.get();
+        byte[] numero = new byte[payload.get()];
+        payload.get(numero);
+        String numeroCartao = new String(numero, StandardCharsets.US_ASCII);
+        long saldo = payload.getLong();
+
+        alterado.accept(numeroCartao);
+        if (cartoes == null) {
+            return;
+        }
+        if (tipo == ESTADO) {
+            cartoes.definir(numeroCartao, saldo);
+            return;
+        }
+        if (tipo == REMOCAO) {
+            cartoes.remover(numeroCartao);
+            return;
+        }
+
+        int posicao = cartoes.localizar(numeroCartao);
+        if (posicao < 0) {
+            log.warn("Registro de saldo para cartão sem estado no journal: {}", numeroCartao);
+            return;
+        }
+        cartoes.atualizarSaldo(posicao, saldo);
+    }
+
+    /**
+     * Segmentos anteriores a {@code segmento} podem ser apagados após uma sincronização com número
+     * maior que {@code sincronizacao}.
+     */
+    private static final class Descarte {
+
+        private final long segmento;
+        private final long sincronizacao;
+
+        private Descarte(long segmento, long sincronizacao) {
+            this.segmento = segmento;
+            this.sincronizacao = sincronizacao;
+        }
+    }
+
+    /**
+     * Serializa registros em um buffer e os grava no canal quando ele enche ou em
+     * {@link #descarregar()}.
+     */
+    private static final class Escritor {
+
+        private FileChannel canal;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+        private Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void registrar(byte tipo, String numeroCartao, long saldoCentavos) {
+            byte[] numero = numeroCartao.getBytes(StandardCharsets.US_ASCII);
+            int inicio = iniciar(Byte.BYTES * 2 + numero.length + Long.BYTES);
+            buffer.put(tipo);
+            buffer.put((byte) numero.length);
+            buffer.put(numero);
+            buffer.putLong(saldoCentavos);
+            finalizar(inicio);
+        }
+
+        boolean possuiPendencias() {
+            return buffer.position() > 0;
+        }
+
+        void descarregar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private int iniciar(int tamanho) {
+            if (buffer.remaining() < CABECALHO + tamanho) {
+                try {
+                    descarregar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (buffer.capacity() < CABECALHO + tamanho) {
+                    buffer = ByteBuffer.allocateDirect(CABECALHO + tamanho);
+                }
+            }
+            int inicio = buffer.position();
+            buffer.putInt(tamanho);
+            buffer.putInt(0);
+            return inicio;
+        }
+
+        private void finalizar(int inicio) {
+            crc.reset();
+            crc.update(buffer.slice(inicio + CABECALHO, buffer.position() - inicio - CABECALHO));
+            buffer.putInt(inicio + Integer.BYTES, (int) crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.vr.miniautorizador.motor;
+
+import com.vr.miniautorizador.cluster.ParticionamentoCluster;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import com.vr.miniautorizador.service.MotorAutorizacao;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Motor que mantém os saldos em memória. Os cartões são distribuídos entre shards pelo hash do
+ * número e cada shard aplica seus débitos em uma única thread; o banco é atualizado de forma
+ * assíncrona pelo {@link SincronizadorSaldos}. Com {@code autorizador.memoria.journal.habilitado},
+ * cada shard grava um {@link JournalShard} e reconstrói seus saldos a partir dele ao iniciar.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "autorizador.motor", havingValue = "memoria")
+public class MotorAutorizacaoMemoria implements MotorAutorizacao {
+
+    private final ShardAutorizacao[] shards;
+    private final SincronizadorSaldos sincronizador;
+    private final ObjectProvider<ParticionamentoCluster> particionamento;
+    private final Duration timeout;
+    private final Duration intervaloSincronizacao;
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(
+            tarefa -> new Thread(tarefa, "autorizador-sincronizador"));
+
+    public MotorAutorizacaoMemoria(CartaoRepository cartaoRepository, JdbcTemplate jdbcTemplate,
+                                   VerificadorSenha verificadorSenha, HistoricoTransacoes historico,
+                                   ObjectProvider<ParticionamentoCluster> particionamento,
+                                   AutorizadorProperties properties) {
+        AutorizadorProperties.Memoria memoria = properties.getMemoria();
+
+        this.particionamento = particionamento;
+        this.sincronizador = new SincronizadorSaldos(jdbcTemplate);
+        this.timeout = memoria.getTimeout();
+        this.intervaloSincronizacao = memoria.getIntervaloSincronizacao();
+        this.shards = new ShardAutorizacao[memoria.getShards()];
+        AutorizadorProperties.Journal journal = memoria.getJournal();
+        if (journal.isHabilitado()) {
+            JournalShard.conferirQuantidadeShards(journal.getDiretorio(), shards.length);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardAutorizacao(i, cartaoRepository, sincronizador, verificadorSenha, historico,
+                    journal.isHabilitado() ? new JournalShard(journal.getDiretorio(), i) : null,
+                    memoria.getCapacidadeFila(), memoria.getLoteMaximo(),
+                    journal.getJanelaGroupCommit(), journal.getRegistrosPorSnapshot(),
+                    memoria.getCartoesEsperados() / shards.length);
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        // Com o journal, cada shard carrega o seu snapshot e reaplica os seus segmentos
+        Arrays.stream(shards).parallel().forEach(ShardAutorizacao::iniciar);
+        long intervalo = intervaloSincronizacao.toMillis();
+        agendador.scheduleWithFixedDelay(sincronizador::sincronizar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException, IOException {
+        for (ShardAutorizacao shard : shards) {
+            shard.parar();
+        }
+        agendador.shutdown();
+        agendador.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        sincronizador.sincronizar();
+    }
+
+    @Override
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        return aguardar(shardDo(request.getNumeroCartao())
+                .debitar(request.getNumeroCartao(), request.getSenhaCartao(), request.getValorCentavos()));
+    }
+
+    /**
+     * Enfileira todos os débitos antes de aguardar o primeiro. Os débitos de um mesmo cartão caem
+     * na mesma fila, em ordem, e tendem a compartilhar o mesmo fsync do journal.
+     */
+    @Override
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        List<CompletableFuture<TransacaoStatus>> pendentes = new ArrayList<>(requests.size());
+        for (TransacaoRequest request : requests) {
+            pendentes.add(shardDo(request.getNumeroCartao())
+                    .debitar(request.getNumeroCartao(), request.getSenhaCartao(), request.getValorCentavos()));
+        }
+
+        List<TransacaoStatus> resultados = new ArrayList<>(requests.size());
+        for (CompletableFuture<TransacaoStatus> pendente : pendentes) {
+            resultados.add(aguardar(pendente));
+        }
+        return resultados;
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        ShardAutorizacao shard = shardDo(numeroCartao);
+        OptionalLong saldo = shard.saldoEmMemoria(numeroCartao);
+        return saldo.isPresent() ? saldo : aguardar(shard.consultar(numeroCartao));
+    }
+
+    /**
+     * Remove da memória os cartões aceitos por {@code liberado} e grava os seus saldos no banco,
+     * de onde o próximo responsável pelos cartões os carrega; retorna a quantidade removida.
+     */
+    public int liberar(Predicate<String> liberado) {
+        List<CompletableFuture<Integer>> pendentes = new ArrayList<>(shards.length);
+        for (ShardAutorizacao shard : shards) {
+            pendentes.add(shard.liberar(liberado));
+        }
+        int removidos = 0;
+        for (CompletableFuture<Integer> pendente : pendentes) {
+            removidos += aguardar(pendente);
+        }
+        if (!sincronizador.sincronizar()) {
+            throw new IllegalStateException("Falha ao gravar no banco os saldos dos cartões liberados");
+        }
+        return removidos;
+    }
+
+    @TransactionalEventListener
+    public void onCartaoCriado(CartaoCriadoEvent event) {
+        String numeroCartao = event.getCartao().getNumeroCartao();
+        ParticionamentoCluster cluster = particionamento.getIfAvailable();
+        // Em cluster, só o nó responsável mantém o cartão; os demais encaminham as transações
+        if (cluster == null || cluster.responsavel(numeroCartao)) {
+            shardDo(numeroCartao).registrar(event.getCartao());
+        }
+    }
+
+    private ShardAutorizacao shardDo(String numeroCartao) {
+        int hash = numeroCartao.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private <T> T aguardar(CompletableFuture<T> resultado) {
+        try {
+            return resultado.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TransacaoNaoExecutadaException naoExecutada) {
+                throw naoExecutada;
+            }
+            throw new IllegalStateException("Falha no shard", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Tempo esgotado aguardando o shard", e);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.vr.miniautorizador.motor;
+
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Partição dos cartões com uma única thread escritora. Todos os comandos de um cartão são
+ * enfileirados no mesmo shard e aplicados em ordem de chegada, sem locks.
+ *
+ * <p>Com o journal habilitado, cada iteração aplica um lote de comandos, grava seus registros e
+ * faz um único fsync antes de responder; o lote é estendido por até {@code janelaGroupCommit}
+ * para agrupar mais autorizações no mesmo fsync. A cada {@code registrosPorSnapshot} registros, um
+ * snapshot é gravado em outra thread, sem interromper os débitos.
+ *
+ * <p>Os saldos ficam num {@link IndiceCartoes}, sem o hash da senha. A senha é conferida na thread
+ * de quem chama, pelo cache do {@link VerificadorSenha} e, numa falta, contra o hash lido do banco;
+ * um cartão ainda não carregado também é lido nela e entregue ao shard já conferido. A thread
+ * escritora não acessa o banco nem executa o hash lento.
+ */
+@Slf4j
+class ShardAutorizacao implements Runnable {
+
+    private final CartaoRepository cartaoRepository;
+    private final SincronizadorSaldos sincronizador;
+    private final VerificadorSenha verificadorSenha;
+    private final HistoricoTransacoes historico;
+    private final JournalShard journal;
+    private final BlockingQueue<Comando<?>> fila;
+    private final int loteMaximo;
+    private final long janelaGroupCommitNanos;
+    private final long registrosPorSnapshot;
+    private final IndiceCartoes cartoes;
+    private final Map<String, Long> alterados = new HashMap<>();
+    private final Thread escritor;
+
+    private volatile boolean ativo = true;
+
+    ShardAutorizacao(int indice, CartaoRepository cartaoRepository, SincronizadorSaldos sincronizador,
+                     VerificadorSenha verificadorSenha, HistoricoTransacoes historico, JournalShard journal, int capacidadeFila, int loteMaximo,
+                     Duration janelaGroupCommit, long registrosPorSnapshot, int cartoesEsperados) {
+        this.cartaoRepository = cartaoRepository;
+        this.sincronizador = sincronizador;
+        this.verificadorSenha = verificadorSenha;
+        this.historico = historico;
+        this.journal = journal;
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        this.loteMaximo = loteMaximo;
+        this.janelaGroupCommitNanos = janelaGroupCommit.toNanos();
+        this.registrosPorSnapshot = registrosPorSnapshot;
+        this.cartoes = new IndiceCartoes(cartoesEsperados);
+        this.escritor = new Thread(this, "autorizador-shard-" + indice);
+    }
+
+    void iniciar() {
+        if (journal != null) {
+            Set<String> recuperados = new HashSet<>();
+            try {
+                journal.recuperar(cartoes, recuperados::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao recuperar o " + escritor.getName(), e);
+            }
+            // O banco pode estar atrás do journal; reenvia os saldos dos cartões que ele ainda contém
+            for (String numeroCartao : recuperados) {
+                long saldo = cartoes.saldo(numeroCartao);
+                if (saldo != IndiceCartoes.AUSENTE) {
+                    sincronizador.marcar(numeroCartao, saldo);
+                }
+            }
+        }
+        escritor.start();
+    }
+
+    void parar() throws InterruptedException, IOException {
+        ativo = false;
+        escritor.join();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Leitura sem passar pela fila; retorna vazio se o cartão ainda não foi carregado.
+     */
+    OptionalLong saldoEmMemoria(String numeroCartao) {
+        return saldo(cartoes.saldo(numeroCartao));
+    }
+
+    CompletableFuture<TransacaoStatus> debitar(String numeroCartao, String senha, long valorCentavos) {
+        if (cartoes.contem(numeroCartao)) {
+            if (!confere(numeroCartao, senha)) {
+                return CompletableFuture.completedFuture(registrar(numeroCartao, valorCentavos, TransacaoStatus.SENHA_INVALIDA));
+            }
+            return enfileirar(() -> registrarSemEspera(numeroCartao, valorCentavos, aplicarDebito(numeroCartao, null, valorCentavos)));
+        }
+
+        Optional<Cartao> cartao = buscar(numeroCartao);
+        if (cartao.isEmpty()) {
+            return CompletableFuture.completedFuture(registrar(numeroCartao, valorCentavos, TransacaoStatus.CARTAO_INEXISTENTE));
+        }
+        if (!verificadorSenha.confere(numeroCartao, senha, cartao.get().getSenha())) {
+            return CompletableFuture.completedFuture(registrar(numeroCartao, valorCentavos, TransacaoStatus.SENHA_INVALIDA));
+        }
+        return enfileirar(() -> registrarSemEspera(numeroCartao, valorCentavos, aplicarDebito(numeroCartao, cartao.get(), valorCentavos)));
+    }
+
+    /**
+     * Saldo de um cartão ausente da memória: o cartão é lido do banco na thread de quem chama e
+     * carregado no shard, a menos que outro comando já o tenha carregado.
+     */
+    CompletableFuture<OptionalLong> consultar(String numeroCartao) {
+        Optional<Cartao> cartao = buscar(numeroCartao);
+        if (cartao.isEmpty()) {
+            return CompletableFuture.completedFuture(OptionalLong.empty());
+        }
+        return enfileirar(() -> {
+            int posicao = cartoes.localizar(numeroCartao);
+            return OptionalLong.of(cartoes.saldo(posicao >= 0 ? posicao : carregar(cartao.get())));
+        });
+    }
+
+    void registrar(Cartao cartao) {
+        enfileirar(() -> {
+            if (!cartoes.contem(cartao.getNumeroCartao())) {
+                carregar(cartao);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Remove da memória os cartões aceitos por {@code liberado}, depois de aplicados os comandos
+     * já enfileirados; retorna a quantidade removida. Com o journal habilitado, as remoções são
+     * registradas nele, para que os cartões não reapareçam numa recuperação.
+     */
+    CompletableFuture<Integer> liberar(Predicate<String> liberado) {
+        return enfileirar(() -> cartoes.removerSe(numeroCartao -> {
+            if (!liberado.test(numeroCartao)) {
+                return false;
+            }
+            if (journal != null) {
+                journal.registrarRemocao(numeroCartao);
+            }
+            return true;
+        }));
+    }
+
+    @Override
+    public void run() {
+        List<Comando<?>> lote = new ArrayList<>(loteMaximo);
+
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Comando<?> primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, loteMaximo - 1);
+                executar(lote, 0);
+
+                if (journal != null && journal.possuiPendencias()) {
+                    estenderLote(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lote.forEach(comando -> comando.falhar(e));
+                break;
+            }
+
+            concluir(lote);
+            lote.clear();
+        }
+    }
+
+    private void estenderLote(List<Comando<?>> lote) throws InterruptedException {
+        long prazo = System.nanoTime() + janelaGroupCommitNanos;
+
+        while (lote.size() < loteMaximo) {
+            long restante = prazo - System.nanoTime();
+            if (restante <= 0) {
+                return;
+            }
+            Comando<?> proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+            if (proximo == null) {
+                return;
+            }
+            int inicio = lote.size();
+            lote.add(proximo);
+            fila.drainTo(lote, loteMaximo - lote.size());
+            executar(lote, inicio);
+        }
+    }
+
+    private void executar(List<Comando<?>> lote, int inicio) {
+        for (int i = inicio; i < lote.size(); i++) {
+            lote.get(i).executar();
+        }
+    }
+
+    private void concluir(List<Comando<?>> lote) {
+        if (journal != null && journal.possuiPendencias()) {
+            try {
+                journal.commit();
+            } catch (UncheckedIOException e) {
+                // O estado em memória já foi alterado e não está durável: o shard não pode continuar
+                log.error("Falha no commit do journal; {} será desativado", escritor.getName(), e);
+                ativo = false;
+                lote.forEach(comando -> comando.falhar(e));
+                fila.forEach(comando -> comando.falhar(e));
+                fila.clear();
+                return;
+            }
+        }
+
+        alterados.forEach(sincronizador::marcar);
+        alterados.clear();
+        lote.forEach(Comando::concluir);
+
+        if (journal != null) {
+            journal.descartarSegmentos(sincronizador.sincronizacaoConcluida());
+            if (journal.registrosDesdeSnapshot() >= registrosPorSnapshot && !journal.snapshotEmAndamento()) {
+                iniciarSnapshot();
+            }
+        }
+    }
+
+    private void iniciarSnapshot() {
+        long inicio = System.nanoTime();
+        try {
+            journal.snapshot(cartoes, sincronizador.sincronizacoesIniciadas()).whenComplete((gravados, erro) -> {
+                if (erro != null) {
+                    // Os segmentos anteriores são mantidos; uma nova tentativa ocorre após outros registrosPorSnapshot
+                    log.error("Falha ao gerar o snapshot do {}", escritor.getName(), erro);
+                } else {
+                    log.info("Snapshot do {} gravado com {} cartões em {} ms", escritor.getName(), gravados,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // O journal continua no segmento atual; uma nova tentativa ocorre no próximo lote
+            log.error("Falha ao iniciar o snapshot do {}", escritor.getName(), e);
+        }
+    }
+
+    /**
+     * Aplica o débito com a senha já conferida por quem chamou; {@code lido} é o cartão lido do
+     * banco, carregado se ainda não estiver em memória.
+     */
+    private TransacaoStatus aplicarDebito(String numeroCartao, Cartao lido, long valorCentavos) {
+        int posicao = cartoes.localizar(numeroCartao);
+
+        if (posicao < 0) {
+            if (lido == null) {
+                // Liberado entre a conferência e o débito: o saldo do banco pode ainda não refletir a memória
+                throw new TransacaoNaoExecutadaException("Cartão " + numeroCartao + " liberado do " + escritor.getName());
+            }
+            posicao = carregar(lido);
+        }
+        long saldo = cartoes.saldo(posicao);
+        if (saldo < valorCentavos) {
+            return TransacaoStatus.SALDO_INSUFICIENTE;
+        }
+
+        cartoes.atualizarSaldo(posicao, saldo - valorCentavos);
+        alterados.put(numeroCartao, saldo - valorCentavos);
+        if (journal != null) {
+            journal.registrarSaldo(numeroCartao, saldo - valorCentavos);
+        }
+        return TransacaoStatus.OK;
+    }
+
+    private TransacaoStatus registrar(String numeroCartao, long valorCentavos, TransacaoStatus status) {
+        historico.registrar(numeroCartao, valorCentavos, status, saldoRegistrado(numeroCartao));
+        return status;
+    }
+
+    /**
+     * Registro feito pela thread escritora, que não pode aguardar por espaço no histórico.
+     */
+    private TransacaoStatus registrarSemEspera(String numeroCartao, long valorCentavos, TransacaoStatus status) {
+        historico.registrarSemEspera(numeroCartao, valorCentavos, status, saldoRegistrado(numeroCartao));
+        return status;
+    }
+
+    private long saldoRegistrado(String numeroCartao) {
+        long saldo = cartoes.saldo(numeroCartao);
+        return saldo != IndiceCartoes.AUSENTE ? saldo : HistoricoTransacoes.SALDO_DESCONHECIDO;
+    }
+
+    private boolean confere(String numeroCartao, String senha) {
+        Optional<Boolean> emCache = verificadorSenha.conferirEmCache(numeroCartao, senha);
+        if (emCache.isPresent()) {
+            return emCache.get();
+        }
+        return buscar(numeroCartao)
+                .map(cartao -> verificadorSenha.confere(numeroCartao, senha, cartao.getSenha()))
+                .orElse(false);
+    }
+
+    private Optional<Cartao> buscar(String numeroCartao) {
+        return cartaoRepository.findById(numeroCartao);
+    }
+
+    private int carregar(Cartao cartao) {
+        int posicao = cartoes.inserir(cartao.getNumeroCartao(), cartao.getSaldoCentavos(),
+                cartao.getVersion() != null ? cartao.getVersion().intValue() : 0);
+        // Registros de saldo só podem ser reaplicados sobre um estado completo do cartão
+        if (journal != null) {
+            journal.registrarEstado(cartao.getNumeroCartao(), cartao.getSaldoCentavos());
+        }
+        return posicao;
+    }
+
+    private <T> CompletableFuture<T> enfileirar(Supplier<T> acao) {
+        Comando<T> comando = new Comando<>(acao);
+        if (!ativo || !fila.offer(comando)) {
+            comando.falhar(new TransacaoNaoExecutadaException("Fila do " + escritor.getName() + " indisponível"));
+        }
+        return comando.resultado;
+    }
+
+    private static OptionalLong saldo(long saldo) {
+        return saldo == IndiceCartoes.AUSENTE ? OptionalLong.empty() : OptionalLong.of(saldo);
+    }
+
+    /**
+     * Comando aplicado pela thread escritora. O resultado só é entregue ao chamador em
+     * {@link #concluir()}, depois que o lote estiver durável.
+     */
+    private static final class Comando<T> {
+
+        private final Supplier<T> acao;
+        private final CompletableFuture<T> resultado = new CompletableFuture<>();
+        private T valor;
+        private RuntimeException erro;
+
+        private Comando(Supplier<T> acao) {
+            this.acao = acao;
+        }
+
+        void executar() {
+            try {
+                valor = acao.get();
+            } catch (RuntimeException e) {
+                log.error("Falha ao executar comando no shard", e);
+                erro = e;
+            }
+        }
+
+        void concluir() {
+            if (erro != null) {
+                resultado.completeExceptionally(erro);
+            } else {
+                resultado.complete(valor);
+            }
+        }
+
+        void falhar(Throwable causa) {
+            resultado.completeExceptionally(causa);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vr.miniautorizador.motor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grava no banco, em lotes JDBC, o último saldo de cada cartão alterado em memória.
+ * Saldos intermediários de um mesmo cartão são descartados entre duas sincronizações.
+ *
+ * <p>As sincronizações são numeradas: uma sincronização concluída com número maior que
+ * {@link #sincronizacoesIniciadas()} lido após {@link #marcar} gravou o saldo marcado (ou um
+ * posterior). O {@link JournalShard} usa isso para saber quando pode apagar segmentos antigos.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class SincronizadorSaldos {
+
+    private static final String ATUALIZAR_SALDO =
+            "UPDATE cartao SET saldo_centavos = ?, version = version + 1 WHERE numero_cartao = ?";
+
+    private static final int TAMANHO_LOTE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Long> pendentes = new ConcurrentHashMap<>();
+    private volatile long iniciadas;
+    private volatile long concluida;
+
+    void marcar(String numeroCartao, long saldoCentavos) {
+        pendentes.put(numeroCartao, saldoCentavos);
+    }
+
+    /**
+     * Retorna {@code false} se a gravação falhou; os saldos continuam pendentes.
+     */
+    synchronized boolean sincronizar() {
+        long numero = ++iniciadas;
+        if (pendentes.isEmpty()) {
+            concluida = numero;
+            return true;
+        }
+
+        List<Map.Entry<String, Long>> lote = new ArrayList<>(pendentes.size());
+        pendentes.forEach((numeroCartao, saldo) -> lote.add(Map.entry(numeroCartao, saldo)));
+
+        try {
+            jdbcTemplate.batchUpdate(ATUALIZAR_SALDO, lote, TAMANHO_LOTE, (ps, entrada) -> {
+                ps.setLong(1, entrada.getValue());
+                ps.setString(2, entrada.getKey());
+            });
+        } catch (RuntimeException e) {
+            log.error("Falha ao sincronizar {} saldos com o banco; nova tentativa no próximo ciclo", lote.size(), e);
+            return false;
+        }
+
+        // Só remove o que não foi alterado de novo durante a gravação
+        lote.forEach(entrada -> pendentes.remove(entrada.getKey(), entrada.getValue()));
+        concluida = numero;
+        return true;
+    }
+
+    long sincronizacoesIniciadas() {
+        return iniciadas;
+    }
+
+    /**
+     * Número da última sincronização bem-sucedida.
+     */
+    long sincronizacaoConcluida() {
+        return concluida;
+    }
+}
@@ -0,0 +1,238 @@
+package com.vr.miniautorizador.motor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot binário dos cartões de um shard, com registros de tamanho fixo para que a carga seja
+ * dividida entre várias threads, cada uma mapeando a sua faixa do arquivo.
+ *
+ * <p>Formato: cabeçalho de {@value #CABECALHO} bytes {@code magia(int) formato(int) segmento(long)
+ * cartoes(long) posicaoTextuais(long) textuais(int) crc32c(int)}; blocos de até
+ * {@value #REGISTROS_POR_BLOCO} registros {@code chave(long) saldo(long) versao(int)}, cada um
+ * seguido do CRC32C do bloco; e os números não numéricos {@code chave(long) tamanho(short) bytes},
+ * seguidos do CRC32C da seção. A chave é a do {@link IndiceCartoes}; o hash da senha não é
+ * mantido em memória e não faz parte do snapshot.
+ *
+ * <p>{@code segmento} é o primeiro segmento do journal a reaplicar sobre o snapshot. O snapshot é
+ * gravado enquanto a thread escritora continua alterando o índice; todas as alterações feitas a
+ * partir do início da gravação estão nesse segmento ou nos seguintes.
+ */
+final class SnapshotCartoes {
+
+    private static final int MAGIA = 0x5652534E;
+    private static final int FORMATO = 1;
+    private static final int CABECALHO = 40;
+    private static final int REGISTRO = Long.BYTES * 2 + Integer.BYTES;
+    private static final int REGISTROS_POR_BLOCO = 4096;
+    private static final int BLOCO = REGISTROS_POR_BLOCO * REGISTRO + Integer.BYTES;
+    private static final int BLOCOS_POR_TAREFA = 64;
+
+    private SnapshotCartoes() {
+    }
+
+    /**
+     * Grava os cartões do índice e força o arquivo para o disco; retorna a quantidade gravada.
+     */
+    static long gravar(Path arquivo, IndiceCartoes cartoes, long segmento) throws IOException {
+        try (FileChannel destino = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Blocos blocos = new Blocos(destino);
+            try {
+                cartoes.percorrer(blocos::registrar);
+                blocos.concluir();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Lidos depois do percurso: incluem os números de todas as chaves gravadas
+            Map<Long, String> textuais = cartoes.numerosTextuais();
+            long posicaoTextuais = destino.position();
+            ByteBuffer secao = ByteBuffer.allocate(textuais.values().stream()
+                    .mapToInt(numero -> Long.BYTES + Short.BYTES + numero.length() * 3).sum() + Integer.BYTES);
+            textuais.forEach((chave, numeroCartao) -> {
+                byte[] numero = numeroCartao.getBytes(StandardCharsets.UTF_8);
+                secao.putLong(chave).putShort((short) numero.length).put(numero);
+            });
+            secao.putInt((int) crc(secao.duplicate().flip()));
+            escrever(destino, secao.flip(), posicaoTextuais);
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO)
+                    .putInt(MAGIA).putInt(FORMATO).putLong(segmento).putLong(blocos.cartoes)
+                    .putLong(posicaoTextuais).putInt(textuais.size());
+            cabecalho.putInt((int) crc(cabecalho.duplicate().flip()));
+            escrever(destino, cabecalho.flip(), 0);
+            destino.force(true);
+            return blocos.cartoes;
+        }
+    }
+
+    /**
+     * Carrega o snapshot num índice vazio, em paralelo; retorna o primeiro segmento do journal a
+     * reaplicar.
+     */
+    static long carregar(Path arquivo, IndiceCartoes cartoes) throws IOException {
+        try (FileChannel origem = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+            ler(origem, cabecalho, 0);
+            cabecalho.flip();
+            if (cabecalho.getInt(0) != MAGIA || cabecalho.getInt(4) != FORMATO
+                    || cabecalho.getInt(CABECALHO - Integer.BYTES) != (int) crc(cabecalho.slice(0, CABECALHO - Integer.BYTES))) {
+                throw corrompido(arquivo, 0);
+            }
+            long segmento = cabecalho.getLong(8);
+            long quantidade = cabecalho.getLong(16);
+            long posicaoTextuais = cabecalho.getLong(24);
+            int textuais = cabecalho.getInt(32);
+            long blocos = (quantidade + REGISTROS_POR_BLOCO - 1) / REGISTROS_POR_BLOCO;
+            if (quantidade < 0 || posicaoTextuais != CABECALHO + quantidade * REGISTRO + blocos * Integer.BYTES
+                    || posicaoTextuais > origem.size()) {
+                throw corrompido(arquivo, 0);
+            }
+
+            carregarTextuais(arquivo, origem, posicaoTextuais, textuais, cartoes);
+
+            cartoes.prepararCarga(quantidade);
+            int tarefas = (int) ((blocos + BLOCOS_POR_TAREFA - 1) / BLOCOS_POR_TAREFA);
+            try {
+                IntStream.range(0, tarefas).parallel().forEach(tarefa -> {
+                    long primeiro = (long) tarefa * BLOCOS_POR_TAREFA;
+                    carregarBlocos(arquivo, origem, quantidade, primeiro, Math.min(blocos, primeiro + BLOCOS_POR_TAREFA), cartoes);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            cartoes.concluirCarga(quantidade);
+            return segmento;
+        }
+    }
+
+    private static void carregarBlocos(Path arquivo, FileChannel origem, long quantidade, long primeiro, long fim,
+                                       IndiceCartoes cartoes) {
+        long inicio = CABECALHO + primeiro * BLOCO;
+        long tamanho = Math.min(CABECALHO + quantidade * REGISTRO + fim * Integer.BYTES, CABECALHO + fim * BLOCO) - inicio;
+        ByteBuffer faixa;
+        try {
+            faixa = origem.map(FileChannel.MapMode.READ_ONLY, inicio, tamanho);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        CRC32C crc = new CRC32C();
+        for (long bloco = primeiro; bloco < fim; bloco++) {
+            int posicao = (int) ((bloco - primeiro) * BLOCO);
+            int registros = (int) Math.min(REGISTROS_POR_BLOCO, quantidade - bloco * REGISTROS_POR_BLOCO);
+            int bytes = registros * REGISTRO;
+            crc.reset();
+            crc.update(faixa.slice(posicao, bytes));
+            if (faixa.getInt(posicao + bytes) != (int) crc.getValue()) {
+                throw new UncheckedIOException(corrompido(arquivo, inicio + posicao));
+            }
+            for (int registro = posicao; registro < posicao + bytes; registro += REGISTRO) {
+                cartoes.inserirNaCarga(faixa.getLong(registro), faixa.getLong(registro + Long.BYTES),
+                        faixa.getInt(registro + Long.BYTES * 2));
+            }
+        }
+    }
+
+    private static void carregarTextuais(Path arquivo, FileChannel origem, long posicao, int textuais,
+                                         IndiceCartoes cartoes) throws IOException {
+        ByteBuffer secao = ByteBuffer.allocate(Math.toIntExact(origem.size() - posicao));
+        ler(origem, secao, posicao);
+        secao.flip();
+        for (int i = 0; i < textuais; i++) {
+            if (secao.remaining() < Long.BYTES + Short.BYTES) {
+                throw corrompido(arquivo, posicao + secao.position());
+            }
+            long chave = secao.getLong();
+            byte[] numero = new byte[secao.getShort()];
+            if (secao.remaining() < numero.length) {
+                throw corrompido(arquivo, posicao + secao.position());
+            }
+            secao.get(numero);
+            cartoes.restaurarTextual(chave, new String(numero, StandardCharsets.UTF_8));
+        }
+        if (secao.remaining() != Integer.BYTES || secao.getInt(secao.position()) != (int) crc(secao.slice(0, secao.position()))) {
+            throw corrompido(arquivo, posicao);
+        }
+    }
+
+    private static IOException corrompido(Path arquivo, long posicao) {
+        return new IOException("Snapshot " + arquivo + " corrompido na posição " + posicao);
+    }
+
+    private static long crc(ByteBuffer dados) {
+        CRC32C crc = new CRC32C();
+        crc.update(dados);
+        return crc.getValue();
+    }
+
+    private static void escrever(FileChannel destino, ByteBuffer dados, long posicao) throws IOException {
+        while (dados.hasRemaining()) {
+            posicao += destino.write(dados, posicao);
+        }
+    }
+
+    private static void ler(FileChannel origem, ByteBuffer destino, long posicao) throws IOException {
+        while (destino.hasRemaining()) {
+            int lidos = origem.read(destino, posicao);
+            if (lidos < 0) {
+                throw new IOException("Fim inesperado do snapshot na posição " + posicao);
+            }
+            posicao += lidos;
+        }
+    }
+
+    /**
+     * Agrupa os registros em blocos com CRC e os grava a partir do fim do cabeçalho.
+     */
+    private static final class Blocos {
+
+        private final FileChannel destino;
+        private final ByteBuffer bloco = ByteBuffer.allocateDirect(BLOCO);
+        private final CRC32C crc = new CRC32C();
+        private long cartoes;
+
+        private Blocos(FileChannel destino) throws IOException {
+            this.destino = destino;
+            destino.position(CABECALHO);
+        }
+
+        void registrar(long chave, long saldoCentavos, int versao) {
+            bloco.putLong(chave).putLong(saldoCentavos).putInt(versao);
+            cartoes++;
+            if (bloco.position() == REGISTROS_POR_BLOCO * REGISTRO) {
+                descarregar();
+            }
+        }
+
+        void concluir() {
+            if (bloco.position() > 0) {
+                descarregar();
+            }
+        }
+
+        private void descarregar() {
+            crc.reset();
+            crc.update(bloco.duplicate().flip());
+            bloco.putInt((int) crc.getValue());
+            bloco.flip();
+            try {
+                while (bloco.hasRemaining()) {
+                    destino.write(bloco);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bloco.clear();
+        }
+    }
+}
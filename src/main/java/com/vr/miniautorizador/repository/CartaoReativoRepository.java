@@ -0,0 +1,60 @@
+package com.vr.miniautorizador.repository;
+
+import com.vr.miniautorizador.entity.Cartao;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Contraparte não bloqueante do {@link CartaoRepository}, sobre R2DBC.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autorizador.reativo.habilitado", havingValue = "true")
+public class CartaoReativoRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Cartao> findById(String numeroCartao) {
+        return databaseClient.sql("SELECT numero_cartao, senha, saldo_centavos, version FROM cartao WHERE numero_cartao = :numeroCartao")
+                .bind("numeroCartao", numeroCartao)
+                .map(row -> Cartao.builder()
+                        .numeroCartao(row.get("numero_cartao", String.class))
+                        .senha(row.get("senha", String.class))
+                        .saldoCentavos(row.get("saldo_centavos", Long.class))
+                        .version(row.get("version", Long.class))
+                        .build())
+                .one();
+    }
+
+    /**
+     * Insere o cartão, emitindo {@code false} se já existir um cartão com o mesmo número.
+     */
+    public Mono<Boolean> inserir(Cartao cartao) {
+        return databaseClient.sql("INSERT INTO cartao (numero_cartao, senha, saldo_centavos, version) VALUES (:numeroCartao, :senha, :saldoCentavos, 0)")
+                .bind("numeroCartao", cartao.getNumeroCartao())
+                .bind("senha", cartao.getSenha())
+                .bind("saldoCentavos", cartao.getSaldoCentavos())
+                .fetch()
+                .rowsUpdated()
+                .map(inseridos -> inseridos > 0)
+                .onErrorReturn(DataIntegrityViolationException.class, false);
+    }
+
+    /**
+     * Debita com um único UPDATE condicionado ao hash da senha e ao saldo; emite a quantidade de
+     * linhas alteradas (zero quando a transação não é autorizada).
+     */
+    public Mono<Long> debitar(String numeroCartao, String senhaArmazenada, long valorCentavos) {
+        return databaseClient.sql("UPDATE cartao SET saldo_centavos = saldo_centavos - :valor, version = version + 1 "
+                        + "WHERE numero_cartao = :numeroCartao AND senha = :senha AND saldo_centavos >= :valor")
+                .bind("valor", valorCentavos)
+                .bind("numeroCartao", numeroCartao)
+                .bind("senha", senhaArmazenada)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +18,8 @@ public interface CartaoRepository extends JpaRepository<Cartao, String> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT c FROM Cartao c WHERE c.numeroCartao = :numeroCartao")
     Optional<Cartao> findByNumeroCartaoComLock(@Param("numeroCartao") String numeroCartao);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cartao c WHERE c.numeroCartao IN :numerosCartao ORDER BY c.numeroCartao")
+    List<Cartao> findAllByNumeroCartaoComLock(@Param("numerosCartao") Collection<String> numerosCartao);
 }
@@ -0,0 +1,60 @@
+package com.vr.miniautorizador.repository;
+
+import com.vr.miniautorizador.entity.TransacaoIdempotente;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acesso JDBC à tabela {@code transacao_idempotente}, fora das transações dos motores: as
+ * transações concluídas são gravadas em lote pela thread escritora de
+ * {@link com.vr.miniautorizador.idempotencia.IdempotenciaTransacoes}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransacaoIdempotenteRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insere as transações concluídas; uma chave já registrada faz o lote falhar com
+     * {@link org.springframework.dao.DuplicateKeyException}.
+     */
+    public void gravar(List<TransacaoIdempotente> transacoes) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transacao_idempotente (chave, numero_cartao, status, valor_centavos, criada_em) VALUES (?, ?, ?, ?, ?)",
+                transacoes, transacoes.size(), (ps, transacao) -> {
+                    ps.setString(1, transacao.getChave());
+                    ps.setString(2, transacao.getNumeroCartao());
+                    ps.setString(3, transacao.getStatus().name());
+                    ps.setLong(4, transacao.getValorCentavos());
+                    ps.setTimestamp(5, Timestamp.from(transacao.getCriadaEm()));
+                });
+    }
+
+    /**
+     * Transação concluída registrada com a chave.
+     */
+    public Optional<TransacaoIdempotente> buscar(String chave, String numeroCartao) {
+        List<TransacaoIdempotente> registradas = jdbcTemplate.query(
+                "SELECT status, valor_centavos FROM transacao_idempotente WHERE chave = ? AND numero_cartao = ? AND status IS NOT NULL",
+                (rs, linha) -> TransacaoIdempotente.builder()
+                        .chave(chave)
+                        .numeroCartao(numeroCartao)
+                        .status(TransacaoStatus.valueOf(rs.getString("status")))
+                        .valorCentavos(rs.getObject("valor_centavos", Long.class))
+                        .build(),
+                chave, numeroCartao);
+        return registradas.stream().findFirst();
+    }
+
+    public int removerAnterioresA(Instant limite) {
+        return jdbcTemplate.update("DELETE FROM transacao_idempotente WHERE criada_em < ?", Timestamp.from(limite));
+    }
+}
@@ -0,0 +1,63 @@
+package com.vr.miniautorizador.seguranca;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hash PBKDF2-HMAC-SHA256 com sal aleatório por senha, armazenado como
+ * {@code pbkdf2$iteracoes$sal$hash} (Base64). Senhas gravadas antes do hash, sem o prefixo, são
+ * comparadas em texto puro até que a {@link MigracaoSenhas} as substitua pelo hash.
+ */
+public class CodificadorSenha {
+
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    static final String PREFIXO = "pbkdf2$";
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iteracoes;
+
+    public CodificadorSenha(int iteracoes) {
+        this.iteracoes = iteracoes;
+    }
+
+    public String codificar(String senha) {
+        byte[] sal = new byte[BYTES_SAL];
+        random.nextBytes(sal);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + iteracoes + '$' + base64.encodeToString(sal) + '$'
+                + base64.encodeToString(derivar(senha, sal, iteracoes));
+    }
+
+    public boolean confere(String senha, String senhaArmazenada) {
+        if (!senhaArmazenada.startsWith(PREFIXO)) {
+            return MessageDigest.isEqual(senha.getBytes(StandardCharsets.UTF_8),
+                    senhaArmazenada.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] partes = senhaArmazenada.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] esperado = base64.decode(partes[3]);
+        return MessageDigest.isEqual(esperado, derivar(senha, base64.decode(partes[2]), Integer.parseInt(partes[1])));
+    }
+
+    private static byte[] derivar(String senha, byte[] sal, int iteracoes) {
+        PBEKeySpec especificacao = new PBEKeySpec(senha.toCharArray(), sal, iteracoes, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(especificacao).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao derivar o hash da senha", e);
+        } finally {
+            especificacao.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.vr.miniautorizador.seguranca;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Substitui pelo hash do {@link CodificadorSenha} as senhas gravadas em texto puro antes dele. A
+ * migração roda numa thread própria depois que a aplicação está pronta, já que as senhas em texto
+ * puro continuam sendo conferidas até lá. Os cartões legados são lidos em páginas, cujos hashes são
+ * calculados pelas threads de hash do {@link VerificadorSenha} e gravados num lote JDBC. Cada
+ * {@code UPDATE} é condicionado à senha lida, de modo que vários nós podem migrar ao mesmo tempo
+ * sem sobrescrever uma senha alterada; cada nó começa num número de cartão sorteado, para que
+ * migrem cartões diferentes.
+ *
+ * <p>Os cartões que continuam em texto puro, por exemplo inseridos diretamente no banco depois da
+ * migração, são publicados em {@code autorizador.senha.legadas} e registrados no log; uma nova
+ * chamada a {@link #migrar()} os converte.
+ */
+@Slf4j
+@Component
+public class MigracaoSenhas {
+
+    private static final int PAGINA = 1_000;
+    private static final String LEGADAS = "senha NOT LIKE '" + CodificadorSenha.PREFIXO + "%'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VerificadorSenha verificadorSenha;
+    private final AtomicLong restantes = new AtomicLong();
+
+    public MigracaoSenhas(JdbcTemplate jdbcTemplate, VerificadorSenha verificadorSenha, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.verificadorSenha = verificadorSenha;
+        Gauge.builder("autorizador.senha.legadas", restantes, AtomicLong::get)
+                .description("Cartões com a senha em texto puro no início e após o fim da última migração")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        Thread migracao = new Thread(() -> {
+            try {
+                migrar();
+            } catch (RuntimeException e) {
+                log.warn("Falha na migração das senhas em texto puro", e);
+            }
+        }, "autorizador-migracao-senhas");
+        migracao.setDaemon(true);
+        migracao.start();
+    }
+
+    /**
+     * Migra as senhas em texto puro e retorna a quantidade de cartões convertidos.
+     */
+    public long migrar() {
+        long inicio = System.nanoTime();
+        restantes.set(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao WHERE " + LEGADAS, Long.class));
+        String sorteado = String.format("%016d", ThreadLocalRandom.current().nextLong(10_000_000_000_000_000L));
+        long migradas = migrar(sorteado, null) + migrar("", sorteado);
+
+        restantes.set(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao WHERE " + LEGADAS, Long.class));
+        if (migradas > 0) {
+            log.info("{} senhas em texto puro substituídas pelo hash em {} ms", migradas,
+                    (System.nanoTime() - inicio) / 1_000_000);
+        }
+        if (restantes.get() > 0) {
+            log.warn("{} cartões continuam com a senha em texto puro", restantes.get());
+        }
+        return migradas;
+    }
+
+    /**
+     * Migra os cartões com número maior que {@code depoisDe} e, se {@code ate} não for nulo, até ele.
+     */
+    private long migrar(String depoisDe, String ate) {
+        String consulta = "SELECT numero_cartao, senha FROM cartao WHERE numero_cartao > ?"
+                + (ate == null ? "" : " AND numero_cartao <= ?") + " AND " + LEGADAS + " ORDER BY numero_cartao LIMIT ?";
+        long migradas = 0;
+        String ultimo = depoisDe;
+        while (true) {
+            List<Map<String, Object>> pagina = ate == null
+                    ? jdbcTemplate.queryForList(consulta, ultimo, PAGINA)
+                    : jdbcTemplate.queryForList(consulta, ultimo, ate, PAGINA);
+            if (pagina.isEmpty()) {
+                return migradas;
+            }
+            List<String> hashes = verificadorSenha.codificarTodas(pagina.stream().map(cartao -> (String) cartao.get("senha")).toList());
+            int[] alteradas = jdbcTemplate.batchUpdate(
+                    "UPDATE cartao SET senha = ?, version = version + 1 WHERE numero_cartao = ? AND senha = ?",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, hashes.get(i));
+                            ps.setString(2, (String) pagina.get(i).get("numero_cartao"));
+                            ps.setString(3, (String) pagina.get(i).get("senha"));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return pagina.size();
+                        }
+                    });
+            for (int i = 0; i < alteradas.length; i++) {
+                // SUCCESS_NO_INFO (-2) também indica um UPDATE executado
+                migradas += alteradas[i] != 0 ? 1 : 0;
+                verificadorSenha.invalidar((String) pagina.get(i).get("numero_cartao"));
+            }
+            if (pagina.size() < PAGINA) {
+                return migradas;
+            }
+            ultimo = (String) pagina.get(pagina.size() - 1).get("numero_cartao");
+        }
+    }
+}
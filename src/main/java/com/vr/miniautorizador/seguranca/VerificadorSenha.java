@@ -0,0 +1,154 @@
+package com.vr.miniautorizador.seguranca;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Confere senhas contra o hash armazenado sem pagar o {@link CodificadorSenha} a cada transação.
+ * Após uma conferência bem-sucedida, o cartão guarda no cache o hash armazenado e um SHA-256 da
+ * senha com um segredo aleatório do processo; enquanto o hash armazenado for o mesmo, as próximas
+ * conferências (certas ou erradas) custam um SHA-256. A entrada é descartada quando o cartão é
+ * criado e ignorada quando o hash armazenado muda.
+ *
+ * <p>Acertos, faltas e remoções são publicados como métricas {@code cache.*{cache="senhas"}}.
+ * Hashes em quantidade, da criação em lote e da {@link MigracaoSenhas}, são calculados em threads
+ * próprias, uma por CPU, por {@link #codificarTodas(List)}.
+ */
+@Component
+public class VerificadorSenha {
+
+    private final CodificadorSenha codificador;
+    private final Cache<String, SenhaConferida> conferidas;
+    private final MessageDigest resumoComSegredo;
+    private final ExecutorService codificadores;
+
+    public VerificadorSenha(AutorizadorProperties properties, MeterRegistry meterRegistry) {
+        AutorizadorProperties.Senha configuracao = properties.getSenha();
+
+        this.codificador = new CodificadorSenha(configuracao.getIteracoes());
+        this.conferidas = Caffeine.newBuilder()
+                .maximumSize(configuracao.getCartoesConferidos())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, conferidas, "senhas");
+
+        byte[] segredo = new byte[32];
+        new SecureRandom().nextBytes(segredo);
+        try {
+            this.resumoComSegredo = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        resumoComSegredo.update(segredo);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.codificadores = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), tarefa -> {
+            Thread thread = new Thread(tarefa, "autorizador-senhas-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void parar() {
+        codificadores.shutdownNow();
+    }
+
+    public String codificar(String senha) {
+        return codificador.codificar(senha);
+    }
+
+    /**
+     * Codifica as senhas em paralelo nas threads de hash, na ordem recebida, e aguarda todas.
+     */
+    public List<String> codificarTodas(List<String> senhas) {
+        List<CompletableFuture<String>> hashes = senhas.stream()
+                .map(senha -> CompletableFuture.supplyAsync(() -> codificador.codificar(senha), codificadores))
+                .toList();
+        return hashes.stream().map(CompletableFuture::join).toList();
+    }
+
+    public boolean confere(String numeroCartao, String senha, String senhaArmazenada) {
+        byte[] resumo = resumir(senha);
+        SenhaConferida conferida = conferidas.getIfPresent(numeroCartao);
+        if (conferida != null && conferida.getSenhaArmazenada().equals(senhaArmazenada)) {
+            return MessageDigest.isEqual(conferida.getResumo(), resumo);
+        }
+
+        if (!codificador.confere(senha, senhaArmazenada)) {
+            return false;
+        }
+        conferidas.put(numeroCartao, new SenhaConferida(senhaArmazenada, resumo));
+        return true;
+    }
+
+    /**
+     * Hash armazenado do cartão, se {@code senha} já foi conferida com ele; permite condicionar
+     * um {@code UPDATE} à senha sem ler o cartão antes.
+     */
+    public Optional<String> senhaArmazenadaConferida(String numeroCartao, String senha) {
+        SenhaConferida conferida = conferidas.getIfPresent(numeroCartao);
+        if (conferida == null || !MessageDigest.isEqual(conferida.getResumo(), resumir(senha))) {
+            return Optional.empty();
+        }
+        return Optional.of(conferida.getSenhaArmazenada());
+    }
+
+    /**
+     * Confere {@code senha} só pelo cache, para quem não guarda o hash armazenado; vazio se o
+     * cartão não tiver uma conferência em cache. Como a entrada é descartada quando o cartão é
+     * criado, ela corresponde ao hash atual.
+     */
+    public Optional<Boolean> conferirEmCache(String numeroCartao, String senha) {
+        SenhaConferida conferida = conferidas.getIfPresent(numeroCartao);
+        return conferida == null ? Optional.empty() : Optional.of(MessageDigest.isEqual(conferida.getResumo(), resumir(senha)));
+    }
+
+    public void invalidar(String numeroCartao) {
+        conferidas.invalidate(numeroCartao);
+    }
+
+    public void limpar() {
+        conferidas.invalidateAll();
+    }
+
+    @TransactionalEventListener
+    public void onCartaoCriado(CartaoCriadoEvent event) {
+        invalidar(event.getCartao().getNumeroCartao());
+    }
+
+    private byte[] resumir(String senha) {
+        MessageDigest resumo;
+        try {
+            resumo = (MessageDigest) resumoComSegredo.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        return resumo.digest(senha.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Value
+    private static class SenhaConferida {
+        String senhaArmazenada;
+        byte[] resumo;
+    }
+}
@@ -0,0 +1,235 @@
+package com.vr.miniautorizador.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.dto.CartaoLoteResultado;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cria cartões a partir de um fluxo NDJSON ou CSV sem carregar o corpo inteiro: as linhas são
+ * lidas em blocos de {@value #TAMANHO_BLOCO}, inseridas em um lote JDBC por bloco e os resultados
+ * são escritos antes de ler o próximo. A existência é detectada pelo próprio {@code INSERT}, sem
+ * ler os cartões: no MySQL, um {@code INSERT IGNORE}, que não falha nem bloqueia intervalos do
+ * índice quando outra criação do mesmo número é confirmada antes; nos demais bancos (H2), um
+ * {@code MERGE} que só insere. A contagem de cada linha do lote indica se o cartão foi criado;
+ * quando o driver não a informa ({@link Statement#SUCCESS_NO_INFO}, como o do MySQL com
+ * {@code rewriteBatchedStatements=true}), os cartões do bloco são lidos na mesma transação, e foi
+ * criado o cartão cujo hash gravado é o desta linha, já que cada hash tem o seu próprio sal.
+ * Os hashes das senhas de um bloco são calculados em paralelo, nas threads de hash do
+ * {@link VerificadorSenha}, antes de abrir a transação.
+ */
+@Service
+public class CartaoLoteService {
+
+    private static final int TAMANHO_BLOCO = 1000;
+    private static final String CABECALHO_CSV = "numeroCartao,senha";
+
+    private static final String INSERIR_IGNORANDO_EXISTENTE_MYSQL =
+            "INSERT IGNORE INTO cartao (numero_cartao, senha, saldo_centavos, version) VALUES (?, ?, ?, 0)";
+    private static final String INSERIR_SE_AUSENTE =
+            "MERGE INTO cartao c USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT))) "
+                    + "AS v (numero_cartao, senha, saldo_centavos) ON c.numero_cartao = v.numero_cartao "
+                    + "WHEN NOT MATCHED THEN INSERT (numero_cartao, senha, saldo_centavos, version) "
+                    + "VALUES (v.numero_cartao, v.senha, v.saldo_centavos, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VerificadorSenha verificadorSenha;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Definida no primeiro lote, para que a inicialização não dependa do banco
+    private volatile String insercao;
+
+    public CartaoLoteService(JdbcTemplate jdbcTemplate, VerificadorSenha verificadorSenha,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             Validator validator, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.verificadorSenha = verificadorSenha;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public enum Formato {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * Escreve em {@code saida} um {@link CartaoLoteResultado} em NDJSON por linha não vazia da entrada.
+     */
+    public void criarCartoes(Reader entrada, Formato formato, Writer saida) throws IOException {
+        BufferedReader leitor = new BufferedReader(entrada);
+        BufferedWriter escritor = new BufferedWriter(saida);
+        List<Linha> bloco = new ArrayList<>(TAMANHO_BLOCO);
+        long numeroLinha = 0;
+
+        String conteudo;
+        while ((conteudo = leitor.readLine()) != null) {
+            numeroLinha++;
+            if (conteudo.isBlank() || (formato == Formato.CSV && numeroLinha == 1 && conteudo.trim().equals(CABECALHO_CSV))) {
+                continue;
+            }
+            bloco.add(interpretar(numeroLinha, conteudo, formato));
+            if (bloco.size() == TAMANHO_BLOCO) {
+                processar(bloco, escritor);
+                bloco.clear();
+            }
+        }
+        processar(bloco, escritor);
+        escritor.flush();
+    }
+
+    private Linha interpretar(long numero, String conteudo, Formato formato) {
+        CartaoRequest request;
+        try {
+            request = formato == Formato.NDJSON ? objectMapper.readValue(conteudo, CartaoRequest.class) : csv(conteudo);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return new Linha(numero, null, "Linha mal formatada");
+        }
+
+        Set<ConstraintViolation<CartaoRequest>> violacoes = validator.validate(request);
+        if (!violacoes.isEmpty()) {
+            return new Linha(numero, null, violacoes.iterator().next().getMessage());
+        }
+        return new Linha(numero, request, null);
+    }
+
+    private static CartaoRequest csv(String conteudo) {
+        String[] campos = conteudo.split(",", -1);
+        if (campos.length != 2) {
+            throw new IllegalArgumentException("Esperados 2 campos");
+        }
+        return CartaoRequest.builder().numeroCartao(campos[0].trim()).senha(campos[1].trim()).build();
+    }
+
+    private void processar(List<Linha> bloco, Writer escritor) throws IOException {
+        List<Linha> validas = bloco.stream().filter(linha -> linha.request != null).toList();
+        if (!validas.isEmpty()) {
+            List<String> hashes = verificadorSenha.codificarTodas(validas.stream().map(linha -> linha.request.getSenha()).toList());
+            for (int i = 0; i < validas.size(); i++) {
+                validas.get(i).senhaArmazenada = hashes.get(i);
+            }
+            inserir(validas);
+        }
+        for (Linha linha : bloco) {
+            escritor.write(objectMapper.writeValueAsString(linha.resultado()));
+            escritor.write('\n');
+        }
+        escritor.flush();
+    }
+
+    private void inserir(List<Linha> validas) {
+        transactionTemplate.executeWithoutResult(transacao -> {
+            int[][] inseridos = jdbcTemplate.batchUpdate(insercao(), validas, validas.size(), (ps, linha) -> {
+                ps.setString(1, linha.request.getNumeroCartao());
+                ps.setString(2, linha.senhaArmazenada);
+                ps.setLong(3, CartaoService.SALDO_INICIAL_CENTAVOS);
+            });
+
+            List<Linha> semContagem = new ArrayList<>();
+            for (int i = 0; i < validas.size(); i++) {
+                if (inseridos[0][i] == Statement.SUCCESS_NO_INFO) {
+                    semContagem.add(validas.get(i));
+                } else {
+                    validas.get(i).criado = inseridos[0][i] > 0;
+                }
+            }
+            if (!semContagem.isEmpty()) {
+                conferirCriados(semContagem);
+            }
+
+            for (Linha linha : validas) {
+                if (linha.criado) {
+                    eventPublisher.publishEvent(new CartaoCriadoEvent(linha.cartaoCriado()));
+                }
+            }
+        });
+    }
+
+    private void conferirCriados(List<Linha> linhas) {
+        Map<String, String> gravadas = new HashMap<>();
+        jdbcTemplate.query("SELECT numero_cartao, senha FROM cartao WHERE numero_cartao IN ("
+                        + String.join(",", Collections.nCopies(linhas.size(), "?")) + ")",
+                resultado -> {
+                    gravadas.put(resultado.getString(1), resultado.getString(2));
+                },
+                linhas.stream().map(linha -> linha.request.getNumeroCartao()).toArray());
+        for (Linha linha : linhas) {
+            linha.criado = linha.senhaArmazenada.equals(gravadas.get(linha.request.getNumeroCartao()));
+        }
+    }
+
+    private String insercao() {
+        if (insercao == null) {
+            String banco = jdbcTemplate.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+            insercao = "MySQL".equalsIgnoreCase(banco) ? INSERIR_IGNORANDO_EXISTENTE_MYSQL : INSERIR_SE_AUSENTE;
+        }
+        return insercao;
+    }
+
+    private static final class Linha {
+        private final long numero;
+        private final CartaoRequest request;
+        private final String erro;
+        private String senhaArmazenada;
+        private boolean criado;
+
+        private Linha(long numero, CartaoRequest request, String erro) {
+            this.numero = numero;
+            this.request = request;
+            this.erro = erro;
+        }
+
+        Cartao cartaoCriado() {
+            return Cartao.builder()
+                    .numeroCartao(request.getNumeroCartao())
+                    .senha(senhaArmazenada)
+                    .saldoCentavos(CartaoService.SALDO_INICIAL_CENTAVOS)
+                    .version(0L)
+                    .build();
+        }
+
+        CartaoLoteResultado resultado() {
+            CartaoLoteResultado.CartaoLoteResultadoBuilder resultado = CartaoLoteResultado.builder().linha(numero);
+            if (request == null) {
+                return resultado.status(HttpStatus.BAD_REQUEST.value()).erro(erro).build();
+            }
+            return resultado.status(criado ? HttpStatus.CREATED.value() : HttpStatus.UNPROCESSABLE_ENTITY.value())
+                    .cartao(CartaoResponse.builder()
+                            .numeroCartao(request.getNumeroCartao())
+                            .senha(request.getSenha())
+                            .build())
+                    .build();
+        }
+    }
+}
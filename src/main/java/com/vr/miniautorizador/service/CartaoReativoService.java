@@ -0,0 +1,146 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.CartaoResponse;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.CartaoExistenteException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.repository.CartaoReativoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Versão não bloqueante do {@link CartaoService}. O débito é o mesmo {@code UPDATE} condicionado
+ * do {@link MotorAutorizacaoCondicional}, e as recusas são emitidas como {@link TransacaoStatus}
+ * em vez de exceções. O hash das senhas, quando não evitado pelo {@link VerificadorSenha}, roda no
+ * {@link Schedulers#boundedElastic()}, fora das threads do driver. As tentativas entram no
+ * {@link HistoricoTransacoes} sem o saldo resultante e sem aguardar por espaço no buffer. Os
+ * cartões recusados pelo {@link FiltroCartoes} não chegam ao banco.
+ */
+@Service
+@ConditionalOnProperty(name = "autorizador.reativo.habilitado", havingValue = "true")
+public class CartaoReativoService {
+
+    private static final long SALDO_INICIAL_CENTAVOS = 50_000;
+
+    private final CartaoReativoRepository cartaoRepository;
+    private final CacheSaldos cacheSaldos;
+    private final VerificadorSenha verificadorSenha;
+    private final HistoricoTransacoes historico;
+    private final FiltroCartoes filtroCartoes;
+
+    public CartaoReativoService(CartaoReativoRepository cartaoRepository, CacheSaldos cacheSaldos,
+                                VerificadorSenha verificadorSenha, HistoricoTransacoes historico,
+                                FiltroCartoes filtroCartoes, AutorizadorProperties properties) {
+        if (properties.getMotor() == AutorizadorProperties.Motor.MEMORIA) {
+            throw new IllegalStateException("A API reativa debita direto no banco e não pode ser usada com o motor memoria");
+        }
+        this.cartaoRepository = cartaoRepository;
+        this.cacheSaldos = cacheSaldos;
+        this.verificadorSenha = verificadorSenha;
+        this.historico = historico;
+        this.filtroCartoes = filtroCartoes;
+    }
+
+    /**
+     * A existência é conferida antes do hash da senha, para que uma tentativa sobre um cartão
+     * existente não custe um PBKDF2; uma criação concorrente ainda é barrada pelo {@code INSERT}.
+     */
+    public Mono<CartaoResponse> criarCartao(CartaoRequest request) {
+        Mono<Boolean> existente = filtroCartoes.podeExistir(request.getNumeroCartao())
+                ? cartaoRepository.findById(request.getNumeroCartao()).hasElement()
+                : Mono.just(false);
+        return existente
+                .flatMap(existe -> existe
+                        ? Mono.<String>error(new CartaoExistenteException(resposta(request)))
+                        : Mono.fromCallable(() -> verificadorSenha.codificar(request.getSenha()))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                .map(senhaArmazenada -> Cartao.builder()
+                        .numeroCartao(request.getNumeroCartao())
+                        .senha(senhaArmazenada)
+                        .saldoCentavos(SALDO_INICIAL_CENTAVOS)
+                        .build())
+                // Adicionado antes do INSERT, para que o cartão nunca exista sem estar no filtro
+                .doOnNext(cartao -> filtroCartoes.adicionar(cartao.getNumeroCartao()))
+                .flatMap(cartao -> cartaoRepository.inserir(cartao)
+                        .flatMap(inserido -> inserido
+                                ? Mono.just(cartao)
+                                : Mono.error(new CartaoExistenteException(resposta(request)))))
+                .doOnNext(criado -> {
+                    verificadorSenha.invalidar(criado.getNumeroCartao());
+                    cacheSaldos.atualizarAposCommit(criado.getNumeroCartao(), criado.getSaldoCentavos());
+                })
+                .map(criado -> resposta(request));
+    }
+
+    /**
+     * Saldo em centavos.
+     */
+    public Mono<Long> obterSaldo(String numeroCartao) {
+        if (!filtroCartoes.podeExistir(numeroCartao)) {
+            return Mono.empty();
+        }
+        return cartaoRepository.findById(numeroCartao).map(Cartao::getSaldoCentavos);
+    }
+
+    public Mono<TransacaoStatus> realizarTransacao(TransacaoRequest request) {
+        return autorizar(request)
+                .doOnNext(status -> historico.registrarSemEspera(request, status, HistoricoTransacoes.SALDO_DESCONHECIDO));
+    }
+
+    private Mono<TransacaoStatus> autorizar(TransacaoRequest request) {
+        if (!filtroCartoes.podeExistir(request.getNumeroCartao())) {
+            return Mono.just(TransacaoStatus.CARTAO_INEXISTENTE);
+        }
+        Optional<String> conferida = verificadorSenha.senhaArmazenadaConferida(request.getNumeroCartao(), request.getSenhaCartao());
+        if (conferida.isPresent()) {
+            return debitar(request, conferida.get());
+        }
+        return cartaoRepository.findById(request.getNumeroCartao())
+                .flatMap(cartao -> conferir(cartao, request)
+                        .flatMap(confere -> confere
+                                ? debitar(request, cartao.getSenha())
+                                : Mono.just(TransacaoStatus.SENHA_INVALIDA)))
+                .defaultIfEmpty(TransacaoStatus.CARTAO_INEXISTENTE);
+    }
+
+    private Mono<TransacaoStatus> debitar(TransacaoRequest request, String senhaArmazenada) {
+        return cartaoRepository.debitar(request.getNumeroCartao(), senhaArmazenada, request.getValorCentavos())
+                .flatMap(alterados -> {
+                    if (alterados > 0) {
+                        cacheSaldos.invalidarAposCommit(request.getNumeroCartao());
+                        return Mono.just(TransacaoStatus.OK);
+                    }
+                    return diagnosticarRecusa(request);
+                });
+    }
+
+    private Mono<TransacaoStatus> diagnosticarRecusa(TransacaoRequest request) {
+        return cartaoRepository.findById(request.getNumeroCartao())
+                .flatMap(cartao -> conferir(cartao, request)
+                        .map(confere -> confere ? TransacaoStatus.SALDO_INSUFICIENTE : TransacaoStatus.SENHA_INVALIDA))
+                .defaultIfEmpty(TransacaoStatus.CARTAO_INEXISTENTE);
+    }
+
+    private Mono<Boolean> conferir(Cartao cartao, TransacaoRequest request) {
+        return Mono.fromCallable(() -> verificadorSenha.confere(cartao.getNumeroCartao(), request.getSenhaCartao(), cartao.getSenha()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static CartaoResponse resposta(CartaoRequest request) {
+        return CartaoResponse.builder()
+                .numeroCartao(request.getNumeroCartao())
+                .senha(request.getSenha())
+                .build();
+    }
+}
@@ -4,83 +4,157 @@ import com.vr.miniautorizador.dto.CartaoRequest;
 import com.vr.miniautorizador.dto.CartaoResponse;
 import com.vr.miniautorizador.dto.TransacaoRequest;
 import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.event.CartaoCriadoEvent;
 import com.vr.miniautorizador.exception.CartaoExistenteException;
 import com.vr.miniautorizador.exception.CartaoNaoEncontradoException;
-import com.vr.miniautorizador.exception.TransacaoNaoAutorizadaException;
 import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.idempotencia.IdempotenciaTransacoes;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
 import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
 
 @Service
 @RequiredArgsConstructor
 public class CartaoService {
 
-    private static final BigDecimal SALDO_INICIAL = new BigDecimal("500.00");
+    static final long SALDO_INICIAL_CENTAVOS = 50_000;
 
     private final CartaoRepository cartaoRepository;
+    private final MotorAutorizacao motorAutorizacao;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricasAutorizacao metricas;
+    private final VerificadorSenha verificadorSenha;
+    private final IdempotenciaTransacoes idempotencia;
+    private final FiltroCartoes filtroCartoes;
+    private final HistoricoTransacoes historico;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    /**
+     * O hash da senha é calculado antes de abrir a transação, para não ocupar uma conexão do pool
+     * durante o PBKDF2.
+     */
     public CartaoResponse criarCartao(CartaoRequest request) {
-        cartaoRepository.findById(request.getNumeroCartao())
-                .ifPresent(cartao -> {
-                    throw new CartaoExistenteException(
-                            CartaoResponse.builder()
-                                    .numeroCartao(cartao.getNumeroCartao())
-                                    .senha(cartao.getSenha())
-                                    .build()
-                    );
-                });
+        long inicio = System.nanoTime();
+        String senhaArmazenada = verificadorSenha.codificar(request.getSenha());
+        return transactionTemplate.execute(transacao -> inserir(request, senhaArmazenada, inicio));
+    }
+
+    private CartaoResponse inserir(CartaoRequest request, String senhaArmazenada, long inicio) {
+        metricas.registrarCriacaoAoConcluir(inicio);
+        // Um cartão recusado pelo filtro não existe; a chave primária ainda barra uma criação concorrente
+        if (filtroCartoes.podeExistir(request.getNumeroCartao()) && cartaoRepository.existsById(request.getNumeroCartao())) {
+            throw cartaoExistente(request);
+        }
 
         Cartao cartao = Cartao.builder()
                 .numeroCartao(request.getNumeroCartao())
-                .senha(request.getSenha())
-                .saldo(SALDO_INICIAL)
+                .senha(senhaArmazenada)
+                .saldoCentavos(SALDO_INICIAL_CENTAVOS)
                 .build();
 
-        cartaoRepository.save(cartao);
+        try {
+            cartaoRepository.saveAndFlush(cartao);
+        } catch (DataIntegrityViolationException e) {
+            throw cartaoExistente(request);
+        }
+        eventPublisher.publishEvent(new CartaoCriadoEvent(cartao));
 
         return CartaoResponse.builder()
                 .numeroCartao(cartao.getNumeroCartao())
-                .senha(cartao.getSenha())
+                .senha(request.getSenha())
                 .build();
     }
 
-    @Transactional(readOnly = true)
-    public BigDecimal obterSaldo(String numeroCartao) {
-        return cartaoRepository.findById(numeroCartao)
-                .map(Cartao::getSaldo)
-                .orElseThrow(CartaoNaoEncontradoException::new);
+    /**
+     * Saldo em centavos.
+     */
+    public long obterSaldo(String numeroCartao) {
+        long inicio = System.nanoTime();
+        if (!filtroCartoes.podeExistir(numeroCartao)) {
+            throw new CartaoNaoEncontradoException();
+        }
+        OptionalLong saldo = motorAutorizacao.obterSaldo(numeroCartao);
+        metricas.registrarConsulta(inicio);
+        return saldo.orElseThrow(CartaoNaoEncontradoException::new);
+    }
+
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        long inicio = System.nanoTime();
+        TransacaoStatus status = filtroCartoes.podeExistir(request.getNumeroCartao())
+                ? motorAutorizacao.realizarTransacao(request)
+                : recusarInexistente(request);
+        metricas.registrarTransacao(status, inicio);
+        return status;
     }
 
-    @Transactional
-    public void realizarTransacao(TransacaoRequest request) {
-        Cartao cartao = cartaoRepository.findByNumeroCartaoComLock(request.getNumeroCartao())
-                .orElseThrow(() -> new TransacaoNaoAutorizadaException(TransacaoStatus.CARTAO_INEXISTENTE));
+    /**
+     * Com {@code chaveIdempotencia}, uma repetição da mesma transação retorna o status original
+     * sem novo débito. Cartões recusados pelo filtro não reservam a chave.
+     */
+    public TransacaoStatus realizarTransacao(TransacaoRequest request, String chaveIdempotencia) {
+        if (chaveIdempotencia == null || !filtroCartoes.podeExistir(request.getNumeroCartao())) {
+            return realizarTransacao(request);
+        }
+        return idempotencia.executar(chaveIdempotencia, request, () -> realizarTransacao(request));
+    }
 
-        validarSenha(cartao, request.getSenhaCartao());
-        validarSaldo(cartao, request.getValor());
+    /**
+     * Só as transações de cartões aceitos pelo filtro chegam ao motor.
+     */
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        List<TransacaoRequest> aceitas = new ArrayList<>(requests.size());
+        for (TransacaoRequest request : requests) {
+            if (filtroCartoes.podeExistir(request.getNumeroCartao())) {
+                aceitas.add(request);
+            }
+        }
+        List<TransacaoStatus> resultados = aceitas.size() == requests.size()
+                ? motorAutorizacao.realizarTransacoes(requests)
+                : mesclar(requests, aceitas, aceitas.isEmpty() ? List.of() : motorAutorizacao.realizarTransacoes(aceitas));
+        metricas.contarTransacoes(resultados);
+        return resultados;
+    }
 
-        cartao.setSaldo(cartao.getSaldo().subtract(request.getValor()));
-        cartaoRepository.save(cartao);
+    private TransacaoStatus recusarInexistente(TransacaoRequest request) {
+        historico.registrar(request, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+        return TransacaoStatus.CARTAO_INEXISTENTE;
     }
 
-    private void validarSenha(Cartao cartao, String senha) {
-        boolean senhaValida = cartao.getSenha().equals(senha);
-        
-        if (!senhaValida) {
-            throw new TransacaoNaoAutorizadaException(TransacaoStatus.SENHA_INVALIDA);
+    /**
+     * Resultados na ordem de {@code requests}, com os do motor para as {@code aceitas}, que são
+     * uma subsequência delas, e a recusa para as demais.
+     */
+    private List<TransacaoStatus> mesclar(List<TransacaoRequest> requests, List<TransacaoRequest> aceitas,
+                                          List<TransacaoStatus> resultadosAceitas) {
+        List<TransacaoStatus> resultados = new ArrayList<>(requests.size());
+        int proxima = 0;
+        for (TransacaoRequest request : requests) {
+            if (proxima < aceitas.size() && aceitas.get(proxima) == request) {
+                resultados.add(resultadosAceitas.get(proxima++));
+            } else {
+                resultados.add(recusarInexistente(request));
+            }
         }
+        return resultados;
     }
 
-    private void validarSaldo(Cartao cartao, BigDecimal valor) {
-        boolean saldoSuficiente = cartao.getSaldo().compareTo(valor) >= 0;
-        
-        if (!saldoSuficiente) {
-            throw new TransacaoNaoAutorizadaException(TransacaoStatus.SALDO_INSUFICIENTE);
-        }
+    private static CartaoExistenteException cartaoExistente(CartaoRequest request) {
+        return new CartaoExistenteException(
+                CartaoResponse.builder()
+                        .numeroCartao(request.getNumeroCartao())
+                        .senha(request.getSenha())
+                        .build()
+        );
     }
 }
@@ -0,0 +1,98 @@
+package com.vr.miniautorizador.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Taxa de contenção dos cartões que já tiveram um conflito de versão, usada pelo
+ * {@link MotorAutorizacaoAdaptativo}. Cada observação entra numa média móvel exponencial: um
+ * conflito no débito otimista ou, nos cartões promovidos, outra transação do mesmo cartão em
+ * andamento conta como 1; um débito sem disputa conta como 0. O cartão é promovido ao débito com
+ * lock quando a taxa atinge {@code taxa-promocao} e volta ao otimista quando ela cai abaixo de
+ * {@code taxa-rebaixamento}, ou quando fica {@code resfriamento} sem transações.
+ *
+ * <p>Cartões sem conflitos não são monitorados, de modo que o débito otimista sem disputa não
+ * altera nenhuma estrutura compartilhada.
+ */
+final class ContencaoCartoes {
+
+    /**
+     * Peso de cada observação na média: quatro observações seguidas de disputa levam a taxa de 0
+     * a 0,68.
+     */
+    static final double PESO_OBSERVACAO = 0.25;
+
+    private final double taxaPromocao;
+    private final double taxaRebaixamento;
+    private final Cache<String, Estado> cartoes;
+
+    ContencaoCartoes(AutorizadorProperties.Adaptativo configuracao) {
+        this.taxaPromocao = configuracao.getTaxaPromocao();
+        this.taxaRebaixamento = configuracao.getTaxaRebaixamento();
+        this.cartoes = Caffeine.newBuilder()
+                .maximumSize(configuracao.getCartoesMonitorados())
+                .expireAfterAccess(configuracao.getResfriamento())
+                .build();
+    }
+
+    /**
+     * Estado do cartão, ou {@code null} se ele não é monitorado.
+     */
+    Estado estado(String numeroCartao) {
+        return cartoes.getIfPresent(numeroCartao);
+    }
+
+    /**
+     * Registra um conflito de versão, passando a monitorar o cartão.
+     */
+    Estado registrarConflito(String numeroCartao) {
+        Estado estado = cartoes.get(numeroCartao, numero -> new Estado());
+        estado.observar(true);
+        return estado;
+    }
+
+    long promovidos() {
+        return cartoes.asMap().values().stream().filter(Estado::promovido).count();
+    }
+
+    final class Estado {
+
+        private final AtomicInteger emAndamento = new AtomicInteger();
+        private double taxa;
+        private volatile boolean promovido;
+
+        boolean promovido() {
+            return promovido;
+        }
+
+        double taxa() {
+            synchronized (this) {
+                return taxa;
+            }
+        }
+
+        /**
+         * Marca o início de uma transação com lock; retorna se outra já estava em andamento.
+         */
+        boolean entrar() {
+            return emAndamento.getAndIncrement() > 0;
+        }
+
+        void sair(boolean disputado) {
+            emAndamento.decrementAndGet();
+            observar(disputado);
+        }
+
+        synchronized void observar(boolean disputado) {
+            taxa += PESO_OBSERVACAO * ((disputado ? 1 : 0) - taxa);
+            if (!promovido && taxa >= taxaPromocao) {
+                promovido = true;
+            } else if (promovido && taxa < taxaRebaixamento) {
+                promovido = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Estratégia de autorização selecionada pela propriedade {@code autorizador.motor}.
+ */
+public interface MotorAutorizacao {
+
+    /**
+     * Recusas são devolvidas como status, sem exceção, para não marcar a transação para rollback.
+     */
+    TransacaoStatus realizarTransacao(TransacaoRequest request);
+
+    /**
+     * Aplica as transações na ordem recebida e devolve o status de cada uma na mesma posição.
+     */
+    List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests);
+
+    /**
+     * Saldo em centavos.
+     */
+    OptionalLong obterSaldo(String numeroCartao);
+}
@@ -0,0 +1,142 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Debita lendo o cartão sem lock e gravando o novo saldo com um UPDATE condicionado à versão
+ * lida. Num conflito, a transação é refeita até {@code tentativas-otimistas} vezes e então com o
+ * lock do {@link MotorAutorizacaoPessimista}. Os cartões com conflitos frequentes, segundo o
+ * {@link ContencaoCartoes}, são debitados direto com lock até a disputa cessar.
+ */
+@Component
+@ConditionalOnProperty(name = "autorizador.motor", havingValue = "adaptativo")
+public class MotorAutorizacaoAdaptativo implements MotorAutorizacao {
+
+    private static final String DEBITAR_NA_VERSAO =
+            "UPDATE cartao SET saldo_centavos = ?, version = version + 1 WHERE numero_cartao = ? AND version = ?";
+
+    private final MotorAutorizacaoPessimista pessimista;
+    private final CartaoRepository cartaoRepository;
+    private final CacheSaldos cacheSaldos;
+    private final JdbcTemplate jdbcTemplate;
+    private final MetricasAutorizacao metricas;
+    private final HistoricoTransacoes historico;
+    private final TransactionTemplate transactionTemplate;
+    private final int tentativasOtimistas;
+    private final ContencaoCartoes contencao;
+    private final Counter conflitos;
+
+    public MotorAutorizacaoAdaptativo(CartaoRepository cartaoRepository, CacheSaldos cacheSaldos,
+                                      JdbcTemplate jdbcTemplate, MetricasAutorizacao metricas,
+                                      VerificadorSenha verificadorSenha, HistoricoTransacoes historico,
+                                      PlatformTransactionManager transactionManager, AutorizadorProperties properties,
+                                      MeterRegistry meterRegistry) {
+        // Usado apenas dentro das transações abertas aqui, e não como bean
+        this.pessimista = new MotorAutorizacaoPessimista(cartaoRepository, cacheSaldos, metricas, verificadorSenha, historico);
+        this.cartaoRepository = cartaoRepository;
+        this.cacheSaldos = cacheSaldos;
+        this.jdbcTemplate = jdbcTemplate;
+        this.metricas = metricas;
+        this.historico = historico;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tentativasOtimistas = Math.max(1, properties.getAdaptativo().getTentativasOtimistas());
+        this.contencao = new ContencaoCartoes(properties.getAdaptativo());
+        this.conflitos = Counter.builder("autorizador.adaptativo.conflitos")
+                .description("Débitos otimistas refeitos por alteração concorrente do cartão")
+                .register(meterRegistry);
+        Gauge.builder("autorizador.adaptativo.cartoes.promovidos", contencao, ContencaoCartoes::promovidos)
+                .description("Cartões debitados com lock por disputa frequente")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        String numeroCartao = request.getNumeroCartao();
+        ContencaoCartoes.Estado estado = contencao.estado(numeroCartao);
+        if (estado != null && estado.promovido()) {
+            return debitarComLock(estado, request);
+        }
+
+        for (int tentativa = 1; ; tentativa++) {
+            TransacaoStatus status = transactionTemplate.execute(transacao -> debitarOtimista(request));
+            if (status != null) {
+                if (estado != null) {
+                    estado.observar(false);
+                }
+                return status;
+            }
+            conflitos.increment();
+            estado = contencao.registrarConflito(numeroCartao);
+            if (estado.promovido() || tentativa == tentativasOtimistas) {
+                return debitarComLock(estado, request);
+            }
+        }
+    }
+
+    /**
+     * Lotes bloqueiam todos os seus cartões de uma vez, como no {@link MotorAutorizacaoPessimista}.
+     */
+    @Override
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        return transactionTemplate.execute(transacao -> pessimista.realizarTransacoes(requests));
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        return pessimista.obterSaldo(numeroCartao);
+    }
+
+    /**
+     * Status da transação, ou {@code null} se o cartão foi alterado depois de lido. O cartão
+     * lido não é alterado, para que o Hibernate não o grave no commit.
+     */
+    private TransacaoStatus debitarOtimista(TransacaoRequest request) {
+        metricas.medirCommit();
+        Cartao cartao = cartaoRepository.findById(request.getNumeroCartao()).orElse(null);
+        if (cartao == null) {
+            historico.registrarAposCommit(request, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+            return TransacaoStatus.CARTAO_INEXISTENTE;
+        }
+        TransacaoStatus recusa = pessimista.conferir(cartao, request);
+        if (recusa != null) {
+            historico.registrarAposCommit(request, recusa, cartao.getSaldoCentavos());
+            return recusa;
+        }
+
+        long saldo = cartao.getSaldoCentavos() - request.getValorCentavos();
+        if (jdbcTemplate.update(DEBITAR_NA_VERSAO, saldo, cartao.getNumeroCartao(), cartao.getVersion()) == 0) {
+            return null;
+        }
+        cacheSaldos.atualizarAposCommit(cartao.getNumeroCartao(), saldo);
+        historico.registrarAposCommit(request, TransacaoStatus.OK, saldo);
+        return TransacaoStatus.OK;
+    }
+
+    private TransacaoStatus debitarComLock(ContencaoCartoes.Estado estado, TransacaoRequest request) {
+        boolean disputado = estado.entrar();
+        try {
+            return transactionTemplate.execute(transacao -> pessimista.realizarTransacao(request));
+        } finally {
+            estado.sair(disputado);
+        }
+    }
+}
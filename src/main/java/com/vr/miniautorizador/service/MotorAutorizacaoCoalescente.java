@@ -0,0 +1,180 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fila de admissão por cartão na frente do {@link MotorAutorizacaoPessimista}. Só uma requisição
+ * por cartão (a líder) vai ao banco por vez: ela retira as transações enfileiradas para o cartão,
+ * aplica todas em uma única transação com um único lock e entrega a cada chamador o seu status.
+ * As demais aguardam sem ocupar conexão. Ao terminar, a líder passa a vez para a próxima
+ * requisição da fila, de modo que nenhuma requisição drena mais de um lote.
+ */
+@Component
+@ConditionalOnProperty(name = "autorizador.motor", havingValue = "coalescente")
+public class MotorAutorizacaoCoalescente implements MotorAutorizacao {
+
+    private final MotorAutorizacaoPessimista pessimista;
+    private final TransactionTemplate transactionTemplate;
+    private final int loteMaximo;
+    private final DistributionSummary tamanhoLote;
+    private final Map<String, FilaCartao> filas = new ConcurrentHashMap<>();
+
+    public MotorAutorizacaoCoalescente(CartaoRepository cartaoRepository, CacheSaldos cacheSaldos,
+                                       MetricasAutorizacao metricas, VerificadorSenha verificadorSenha,
+                                       HistoricoTransacoes historico,
+                                       PlatformTransactionManager transactionManager, AutorizadorProperties properties,
+                                       MeterRegistry meterRegistry) {
+        // Usado apenas dentro das transações abertas aqui, e não como bean
+        this.pessimista = new MotorAutorizacaoPessimista(cartaoRepository, cacheSaldos, metricas, verificadorSenha, historico);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loteMaximo = properties.getCoalescente().getLoteMaximo();
+        this.tamanhoLote = DistributionSummary.builder("autorizador.coalescente.lote")
+                .description("Transações de um mesmo cartão aplicadas em uma única transação do banco")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        String numeroCartao = request.getNumeroCartao();
+        Pedido pedido = new Pedido(request);
+
+        if (!enfileirar(numeroCartao, pedido)) {
+            pedido.vez.join();
+        }
+        if (pedido.pendente()) {
+            drenar(numeroCartao, pedido);
+        }
+        if (pedido.erro != null) {
+            throw pedido.erro;
+        }
+        return pedido.status;
+    }
+
+    /**
+     * Lotes já agrupam as transações em uma única transação do banco e não passam pela fila.
+     */
+    @Override
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        return transactionTemplate.execute(transacao -> pessimista.realizarTransacoes(requests));
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        return pessimista.obterSaldo(numeroCartao);
+    }
+
+    /**
+     * Enfileira o pedido e retorna {@code true} se ele se tornou o líder do cartão.
+     */
+    private boolean enfileirar(String numeroCartao, Pedido pedido) {
+        boolean[] lider = new boolean[1];
+        filas.compute(numeroCartao, (numero, fila) -> {
+            // A fila existe enquanto houver um líder; quem a cria assume a liderança
+            lider[0] = fila == null;
+            FilaCartao atual = lider[0] ? new FilaCartao() : fila;
+            atual.pendentes.add(pedido);
+            return atual;
+        });
+        return lider[0];
+    }
+
+    private void drenar(String numeroCartao, Pedido lider) {
+        List<Pedido> lote = retirarLote(numeroCartao);
+        try {
+            List<TransacaoRequest> requests = new ArrayList<>(lote.size());
+            lote.forEach(pedido -> requests.add(pedido.request));
+            List<TransacaoStatus> resultados = transactionTemplate.execute(
+                    transacao -> pessimista.realizarTransacoes(requests));
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).status = resultados.get(i);
+            }
+            tamanhoLote.record(lote.size());
+        } catch (RuntimeException e) {
+            lote.forEach(pedido -> pedido.erro = e);
+        } finally {
+            Pedido proximo = passarVez(numeroCartao);
+            for (Pedido pedido : lote) {
+                if (pedido != lider) {
+                    pedido.vez.complete(null);
+                }
+            }
+            if (proximo != null) {
+                proximo.vez.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Retira até {@code loteMaximo} pedidos; o líder é sempre o primeiro da fila.
+     */
+    private List<Pedido> retirarLote(String numeroCartao) {
+        List<Pedido> lote = new ArrayList<>();
+        filas.computeIfPresent(numeroCartao, (numero, fila) -> {
+            List<Pedido> retirados = fila.pendentes.subList(0, Math.min(loteMaximo, fila.pendentes.size()));
+            lote.addAll(retirados);
+            retirados.clear();
+            return fila;
+        });
+        return lote;
+    }
+
+    /**
+     * Remove a fila do cartão se estiver vazia; senão devolve o próximo líder.
+     */
+    private Pedido passarVez(String numeroCartao) {
+        Pedido[] proximo = new Pedido[1];
+        filas.computeIfPresent(numeroCartao, (numero, fila) -> {
+            if (fila.pendentes.isEmpty()) {
+                return null;
+            }
+            proximo[0] = fila.pendentes.get(0);
+            return fila;
+        });
+        return proximo[0];
+    }
+
+    /**
+     * Estado da fila de um cartão, sempre alterado dentro de {@code filas.compute*}.
+     */
+    private static final class FilaCartao {
+        private final List<Pedido> pendentes = new ArrayList<>();
+    }
+
+    private static final class Pedido {
+        private final TransacaoRequest request;
+        private final CompletableFuture<Void> vez = new CompletableFuture<>();
+        private volatile TransacaoStatus status;
+        private volatile RuntimeException erro;
+
+        private Pedido(TransacaoRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * Liberado sem resultado: o pedido passou a ser o líder do cartão.
+         */
+        boolean pendente() {
+            return status == null && erro == null;
+        }
+    }
+}
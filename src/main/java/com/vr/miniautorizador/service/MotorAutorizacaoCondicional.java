@@ -0,0 +1,181 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Debita com um único UPDATE condicionado ao hash da senha e ao saldo, sem ler nem bloquear o
+ * cartão antes quando a senha já foi conferida pelo {@link VerificadorSenha}; numa falta, o cartão
+ * é lido para conferir a senha. Só quando nenhuma linha é alterada o cartão é lido para
+ * identificar o motivo da recusa. Como o novo saldo não é lido, os débitos invalidam a entrada
+ * do {@link CacheSaldos} e os débitos autorizados entram no {@link HistoricoTransacoes} sem o
+ * saldo resultante.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autorizador.motor", havingValue = "condicional")
+public class MotorAutorizacaoCondicional implements MotorAutorizacao {
+
+    private static final String DEBITAR =
+            "UPDATE cartao SET saldo_centavos = saldo_centavos - ?, version = version + 1 "
+                    + "WHERE numero_cartao = ? AND senha = ? AND saldo_centavos >= ?";
+
+    private final CartaoRepository cartaoRepository;
+    private final CacheSaldos cacheSaldos;
+    private final JdbcTemplate jdbcTemplate;
+    private final MetricasAutorizacao metricas;
+    private final VerificadorSenha verificadorSenha;
+    private final HistoricoTransacoes historico;
+
+    @Override
+    @Transactional
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        metricas.medirCommit();
+        String numeroCartao = request.getNumeroCartao();
+        String senhaArmazenada = verificadorSenha.senhaArmazenadaConferida(numeroCartao, request.getSenhaCartao())
+                .orElse(null);
+        if (senhaArmazenada == null) {
+            Cartao cartao = cartaoRepository.findById(numeroCartao).orElse(null);
+            TransacaoStatus recusa = conferir(cartao, request);
+            if (recusa != null) {
+                return registrar(request, recusa, cartao);
+            }
+            senhaArmazenada = cartao.getSenha();
+        }
+
+        long valor = request.getValorCentavos();
+        // O UPDATE inclui a espera pelo lock da linha, registrada como a fase de espera pelo lock
+        long inicio = System.nanoTime();
+        int alterados = jdbcTemplate.update(DEBITAR, valor, numeroCartao, senhaArmazenada, valor);
+        metricas.registrarEsperaLock(numeroCartao, inicio);
+
+        if (alterados == 0) {
+            Cartao cartao = cartaoRepository.findById(numeroCartao).orElse(null);
+            return registrar(request, diagnosticar(cartao, request), cartao);
+        }
+        cacheSaldos.invalidarAposCommit(numeroCartao);
+        return registrar(request, TransacaoStatus.OK, null);
+    }
+
+    /**
+     * Envia todos os UPDATEs em um único lote JDBC, executados na ordem recebida. Existência e
+     * senha não mudam dentro do lote, então os cartões com senha ainda não conferida são lidos
+     * juntos antes do lote e o diagnóstico das recusas pode ser feito ao final.
+     */
+    @Override
+    @Transactional
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        String[] senhasArmazenadas = new String[requests.size()];
+        Set<String> naoConferidos = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransacaoRequest request = requests.get(i);
+            senhasArmazenadas[i] = verificadorSenha.senhaArmazenadaConferida(request.getNumeroCartao(), request.getSenhaCartao())
+                    .orElse(null);
+            if (senhasArmazenadas[i] == null) {
+                naoConferidos.add(request.getNumeroCartao());
+            }
+        }
+        Map<String, Cartao> lidos = buscar(naoConferidos);
+
+        TransacaoStatus[] resultados = new TransacaoStatus[requests.size()];
+        List<Integer> enviados = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (senhasArmazenadas[i] == null) {
+                Cartao cartao = lidos.get(requests.get(i).getNumeroCartao());
+                resultados[i] = conferir(cartao, requests.get(i));
+                if (resultados[i] != null) {
+                    registrar(requests.get(i), resultados[i], cartao);
+                    continue;
+                }
+                senhasArmazenadas[i] = cartao.getSenha();
+            }
+            enviados.add(i);
+        }
+
+        int[][] alterados = jdbcTemplate.batchUpdate(DEBITAR, enviados, enviados.size(), (ps, i) -> {
+            TransacaoRequest request = requests.get(i);
+            long valor = request.getValorCentavos();
+            ps.setLong(1, valor);
+            ps.setString(2, request.getNumeroCartao());
+            ps.setString(3, senhasArmazenadas[i]);
+            ps.setLong(4, valor);
+        });
+
+        Set<String> recusados = new HashSet<>();
+        for (int j = 0; j < enviados.size(); j++) {
+            if (alterados[0][j] == 0) {
+                recusados.add(requests.get(enviados.get(j)).getNumeroCartao());
+            }
+        }
+        Map<String, Cartao> cartoes = buscar(recusados);
+
+        for (int j = 0; j < enviados.size(); j++) {
+            TransacaoRequest request = requests.get(enviados.get(j));
+            if (alterados[0][j] == 0) {
+                Cartao cartao = cartoes.get(request.getNumeroCartao());
+                resultados[enviados.get(j)] = registrar(request, diagnosticar(cartao, request), cartao);
+            } else {
+                resultados[enviados.get(j)] = registrar(request, TransacaoStatus.OK, null);
+                cacheSaldos.invalidarAposCommit(request.getNumeroCartao());
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        return cacheSaldos.obter(numeroCartao, numero -> cartaoRepository.findById(numero)
+                .map(cartao -> OptionalLong.of(cartao.getSaldoCentavos()))
+                .orElseGet(OptionalLong::empty));
+    }
+
+    private Map<String, Cartao> buscar(Set<String> numerosCartao) {
+        return numerosCartao.isEmpty() ? Map.of() : cartaoRepository.findAllById(numerosCartao).stream()
+                .collect(Collectors.toMap(Cartao::getNumeroCartao, Function.identity()));
+    }
+
+    /**
+     * Motivo da recusa por existência ou senha, ou {@code null} se o cartão pode ser debitado.
+     */
+    private TransacaoStatus conferir(Cartao cartao, TransacaoRequest request) {
+        if (cartao == null) {
+            return TransacaoStatus.CARTAO_INEXISTENTE;
+        }
+        if (!verificadorSenha.confere(cartao.getNumeroCartao(), request.getSenhaCartao(), cartao.getSenha())) {
+            return TransacaoStatus.SENHA_INVALIDA;
+        }
+        return null;
+    }
+
+    private TransacaoStatus registrar(TransacaoRequest request, TransacaoStatus status, Cartao cartao) {
+        historico.registrarAposCommit(request, status,
+                cartao != null ? cartao.getSaldoCentavos() : HistoricoTransacoes.SALDO_DESCONHECIDO);
+        return status;
+    }
+
+    private TransacaoStatus diagnosticar(Cartao cartao, TransacaoRequest request) {
+        TransacaoStatus recusa = conferir(cartao, request);
+        return recusa != null ? recusa : TransacaoStatus.SALDO_INSUFICIENTE;
+    }
+}
@@ -0,0 +1,114 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.metrica.MetricasAutorizacao;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autorizador.motor", havingValue = "pessimista", matchIfMissing = true)
+public class MotorAutorizacaoPessimista implements MotorAutorizacao {
+
+    private final CartaoRepository cartaoRepository;
+    private final CacheSaldos cacheSaldos;
+    private final MetricasAutorizacao metricas;
+    private final VerificadorSenha verificadorSenha;
+    private final HistoricoTransacoes historico;
+
+    @Override
+    @Transactional
+    public TransacaoStatus realizarTransacao(TransacaoRequest request) {
+        metricas.medirCommit();
+        long inicio = System.nanoTime();
+        Optional<Cartao> encontrado = cartaoRepository.findByNumeroCartaoComLock(request.getNumeroCartao());
+        metricas.registrarEsperaLock(request.getNumeroCartao(), inicio);
+        if (encontrado.isEmpty()) {
+            historico.registrarAposCommit(request, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+            return TransacaoStatus.CARTAO_INEXISTENTE;
+        }
+
+        Cartao cartao = encontrado.get();
+        long inicioValidacao = System.nanoTime();
+        TransacaoStatus status = debitar(cartao, request);
+        metricas.registrarValidacao(inicioValidacao);
+        if (status == TransacaoStatus.OK) {
+            cartaoRepository.save(cartao);
+            cacheSaldos.atualizarAposCommit(cartao.getNumeroCartao(), cartao.getSaldoCentavos());
+        }
+        historico.registrarAposCommit(request, status, cartao.getSaldoCentavos());
+        return status;
+    }
+
+    /**
+     * Bloqueia todos os cartões do lote em uma única consulta, ordenada pelo número para evitar
+     * deadlocks entre lotes concorrentes. Os saldos alterados são gravados no commit, em um único
+     * lote JDBC ({@code hibernate.jdbc.batch_size}).
+     */
+    @Override
+    @Transactional
+    public List<TransacaoStatus> realizarTransacoes(List<TransacaoRequest> requests) {
+        Map<String, Cartao> cartoes = cartaoRepository.findAllByNumeroCartaoComLock(requests.stream()
+                        .map(TransacaoRequest::getNumeroCartao)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Cartao::getNumeroCartao, Function.identity()));
+
+        List<TransacaoStatus> resultados = new ArrayList<>(requests.size());
+        for (TransacaoRequest request : requests) {
+            Cartao cartao = cartoes.get(request.getNumeroCartao());
+            TransacaoStatus status = cartao == null ? TransacaoStatus.CARTAO_INEXISTENTE : debitar(cartao, request);
+            historico.registrarAposCommit(request, status,
+                    cartao == null ? HistoricoTransacoes.SALDO_DESCONHECIDO : cartao.getSaldoCentavos());
+            resultados.add(status);
+        }
+        cartoes.values().forEach(cartao -> cacheSaldos.atualizarAposCommit(cartao.getNumeroCartao(), cartao.getSaldoCentavos()));
+        return resultados;
+    }
+
+    @Override
+    public OptionalLong obterSaldo(String numeroCartao) {
+        return cacheSaldos.obter(numeroCartao, numero -> cartaoRepository.findById(numero)
+                .map(cartao -> OptionalLong.of(cartao.getSaldoCentavos()))
+                .orElseGet(OptionalLong::empty));
+    }
+
+    private TransacaoStatus debitar(Cartao cartao, TransacaoRequest request) {
+        TransacaoStatus recusa = conferir(cartao, request);
+        if (recusa != null) {
+            return recusa;
+        }
+
+        cartao.setSaldoCentavos(cartao.getSaldoCentavos() - request.getValorCentavos());
+        return TransacaoStatus.OK;
+    }
+
+    /**
+     * Motivo da recusa por senha ou saldo, ou {@code null} se o cartão pode ser debitado.
+     */
+    TransacaoStatus conferir(Cartao cartao, TransacaoRequest request) {
+        if (!verificadorSenha.confere(cartao.getNumeroCartao(), request.getSenhaCartao(), cartao.getSenha())) {
+            return TransacaoStatus.SENHA_INVALIDA;
+        }
+        if (cartao.getSaldoCentavos() < request.getValorCentavos()) {
+            return TransacaoStatus.SALDO_INSUFICIENTE;
+        }
+        return null;
+    }
+}
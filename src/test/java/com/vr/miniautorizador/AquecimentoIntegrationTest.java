@@ -0,0 +1,111 @@
+package com.vr.miniautorizador;
+
+import com.vr.miniautorizador.aquecimento.AquecimentoAplicacao;
+import com.vr.miniautorizador.cache.CacheSaldos;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.service.CartaoService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "autorizador.aquecimento.habilitado=true",
+        "autorizador.aquecimento.transacoes=300",
+        "autorizador.aquecimento.janela=50",
+        "autorizador.aquecimento.cartoes=2",
+        "autorizador.aquecimento.cartoes-pre-carregados=10",
+        "spring.datasource.url=jdbc:h2:mem:aquecimento;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class AquecimentoIntegrationTest {
+
+    @Autowired
+    private AquecimentoAplicacao aquecimento;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private HistoricoTransacoes historico;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartaoService cartaoService;
+
+    @Autowired
+    private CacheSaldos cacheSaldos;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Deve aquecer antes de aceitar tráfego sem deixar cartões nem registros no histórico")
+    void deveAquecerAntesDeAceitarTrafego() throws Exception {
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        assertThat(meterRegistry.get("autorizador.aquecimento.duracao").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("autorizador.aquecimento.p99").tag("janela", "inicial").gauge().value()).isPositive();
+        assertThat(dataSource.getHikariPoolMXBean().getTotalConnections()).isGreaterThanOrEqualTo(dataSource.getMinimumIdle());
+
+        assertThat(historico.descarregar(Duration.ofSeconds(5))).isTrue();
+        assertThat(meterRegistry.get("autorizador.aquecimento.transacoes").gauge().value()).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacao WHERE numero_cartao IN (?, ?)",
+                Integer.class, "9999999999990000", "9999999999990001")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao WHERE numero_cartao IN (?, ?)",
+                Integer.class, "9999999999990000", "9999999999990001")).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve recusar a criação de cartões na faixa reservada ao aquecimento")
+    void deveRecusarCartaoNaFaixaReservada() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroCartao\":\"9999999999990000\",\"senha\":\"0000\"}"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cartao WHERE numero_cartao = ?",
+                Integer.class, "9999999999990000")).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve carregar os saldos dos cartões mais ativos do histórico")
+    void deveCarregarSaldosDosCartoesMaisAtivos() {
+        String numeroCartao = "6549873025634501";
+        cartaoService.criarCartao(new CartaoRequest(numeroCartao, "1234"));
+        cacheSaldos.limpar();
+        jdbcTemplate.update("INSERT INTO transacao (numero_cartao, valor_centavos, status, saldo_centavos, realizada_em) "
+                + "VALUES (?, 1000, 'OK', 49000, ?)", numeroCartao, Timestamp.from(Instant.now()));
+
+        assertThat(aquecimento.preCarregar()).isEqualTo(1);
+        assertThat(cacheSaldos.obter(numeroCartao, numero -> fail("Saldo não carregado"))).isEqualTo(OptionalLong.of(50_000));
+    }
+}
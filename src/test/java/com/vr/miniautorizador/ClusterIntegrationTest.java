@@ -0,0 +1,137 @@
+package com.vr.miniautorizador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.cluster.TopologiaCluster;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.TopologiaRequest;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sobe vários nós do cluster no mesmo processo, em portas locais, compartilhando um banco H2.
+ */
+class ClusterIntegrationTest {
+
+    private static final int PARTICOES = 64;
+    private static final String SENHA = "1234";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<ConfigurableApplicationContext> nos = new ArrayList<>();
+
+    @AfterEach
+    void pararNos() {
+        nos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Deve encaminhar ao dono e manter os saldos após adicionar um nó")
+    void deveEncaminharERebalancear() throws Exception {
+        String a = url(portaLivre());
+        String b = url(portaLivre());
+        String c = url(portaLivre());
+        iniciar(a, List.of(a, b), false);
+        iniciar(b, List.of(a, b), false);
+
+        List<String> cartoes = IntStream.range(0, 20).mapToObj(i -> String.format("65498730256345%02d", i)).toList();
+        for (String cartao : cartoes) {
+            assertThat(enviar(a, "/cartoes", new CartaoRequest(cartao, SENHA)).statusCode()).isEqualTo(201);
+        }
+        for (String cartao : cartoes) {
+            assertThat(enviar(a, "/transacoes", transacao(cartao, SENHA, "10.00")).body()).isEqualTo("OK");
+            assertThat(enviar(b, "/transacoes", transacao(cartao, SENHA, "5.00")).body()).isEqualTo("OK");
+        }
+        assertThat(enviar(b, "/transacoes", transacao(cartoes.get(0), "0000", "1.00")).body()).isEqualTo("SENHA_INVALIDA");
+        for (String cartao : cartoes) {
+            assertThat(consultar(a, "/cartoes/" + cartao)).isEqualTo("485.00");
+            assertThat(consultar(b, "/cartoes/" + cartao)).isEqualTo("485.00");
+        }
+        assertThat(particoesLocais(a) + particoesLocais(b)).isEqualTo(PARTICOES);
+
+        iniciar(c, List.of(a, b, c), true);
+        HttpResponse<String> rebalanceamento = enviar(a, "/interno/cluster/rebalancear", new TopologiaRequest(List.of(a, b, c)));
+        assertThat(rebalanceamento.statusCode()).isEqualTo(200);
+        assertThat(particoesLocais(a) + particoesLocais(b) + particoesLocais(c)).isEqualTo(PARTICOES);
+
+        TopologiaCluster nova = new TopologiaCluster(List.of(a, b, c), PARTICOES);
+        assertThat(cartoes).anyMatch(cartao -> nova.dono(nova.particao(cartao)).equals(c));
+        List<TransacaoRequest> lote = cartoes.stream().map(cartao -> transacao(cartao, SENHA, "1.00")).toList();
+        assertThat(objectMapper.readTree(enviar(c, "/transacoes/lote", lote).body()))
+                .allMatch(status -> status.asText().equals("OK"));
+        for (String cartao : cartoes) {
+            assertThat(consultar(a, "/cartoes/" + cartao)).isEqualTo("484.00");
+            assertThat(consultar(c, "/cartoes/" + cartao)).isEqualTo("484.00");
+        }
+    }
+
+    private void iniciar(String no, List<String> todos, boolean ingressando) {
+        nos.add(new SpringApplicationBuilder(MiniAutorizadorApplication.class)
+                .profiles("test")
+                .run("--server.port=" + URI.create(no).getPort(),
+                        "--spring.datasource.url=jdbc:h2:mem:cluster;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--autorizador.motor=memoria",
+                        "--autorizador.memoria.shards=2",
+                        "--autorizador.cluster.habilitado=true",
+                        "--autorizador.cluster.no-local=" + no,
+                        "--autorizador.cluster.nos=" + String.join(",", todos),
+                        "--autorizador.cluster.particoes=" + PARTICOES,
+                        "--autorizador.cluster.ingressando=" + ingressando));
+    }
+
+    private HttpResponse<String> enviar(String no, String caminho, Object corpo) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(no + caminho))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(corpo)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String consultar(String no, String caminho) throws IOException, InterruptedException {
+        HttpResponse<String> resposta = http.send(HttpRequest.newBuilder(URI.create(no + caminho)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(resposta.statusCode()).isEqualTo(200);
+        return resposta.body();
+    }
+
+    private int particoesLocais(String no) throws IOException, InterruptedException {
+        JsonNode topologia = objectMapper.readTree(consultar(no, "/interno/cluster"));
+        assertThat(topologia.get("particoesSuspensas").asInt()).isZero();
+        return topologia.get("particoesLocais").asInt();
+    }
+
+    private static TransacaoRequest transacao(String numeroCartao, String senha, String valor) {
+        return TransacaoRequest.builder()
+                .numeroCartao(numeroCartao)
+                .senhaCartao(senha)
+                .valor(new BigDecimal(valor))
+                .build();
+    }
+
+    private static String url(int porta) {
+        return "http://localhost:" + porta;
+    }
+
+    private static int portaLivre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -1,44 +1,144 @@
 package com.vr.miniautorizador;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.cache.CacheSaldos;
 import com.vr.miniautorizador.dto.CartaoRequest;
 import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.entity.Cartao;
+import com.vr.miniautorizador.exception.TransacaoEmAndamentoException;
+import com.vr.miniautorizador.exception.TransacaoNaoExecutadaException;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import com.vr.miniautorizador.filtro.FiltroCartoes;
+import com.vr.miniautorizador.historico.HistoricoTransacoes;
+import com.vr.miniautorizador.idempotencia.IdempotenciaTransacoes;
 import com.vr.miniautorizador.repository.CartaoRepository;
+import com.vr.miniautorizador.seguranca.MigracaoSenhas;
+import com.vr.miniautorizador.seguranca.VerificadorSenha;
+import com.vr.miniautorizador.service.CartaoLoteService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.math.BigDecimal;
-
+import java.net.URI;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 @ActiveProfiles("test")
 class MiniAutorizadorIntegrationTest {
 
     @Autowired
-    private MockMvc mockMvc;
+    MockMvc mockMvc;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    ObjectMapper objectMapper;
 
     @Autowired
     private CartaoRepository cartaoRepository;
 
-    private static final String NUMERO_CARTAO = "6549873025634501";
-    private static final String SENHA = "1234";
+    @Autowired
+    private CacheSaldos cacheSaldos;
+
+    @Autowired
+    private IdempotenciaTransacoes idempotencia;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HistoricoTransacoes historico;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private MigracaoSenhas migracaoSenhas;
+
+    @Autowired
+    private VerificadorSenha verificadorSenha;
+
+    @Autowired
+    private FiltroCartoes filtroCartoes;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    static final String NUMERO_CARTAO = "6549873025634501";
+    static final String SENHA = "1234";
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws InterruptedException {
+        assertThat(historico.descarregar(Duration.ofSeconds(5))).isTrue();
+        jdbcTemplate.update("DELETE FROM transacao");
         cartaoRepository.deleteAll();
+        cacheSaldos.limpar();
+        assertThat(idempotencia.descarregar(Duration.ofSeconds(5))).isTrue();
+        jdbcTemplate.update("DELETE FROM transacao_idempotente");
+        idempotencia.limpar();
+    }
+
+    @Test
+    @DisplayName("Não deve iniciar o R2DBC sem a API reativa")
+    void naoDeveIniciarR2dbcSemApiReativa() {
+        assertThat(contexto.getBeanNamesForType(ConnectionFactory.class)).isEmpty();
+        assertThat(contexto.getBeanNamesForType(DataSource.class)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Deve substituir pelo hash as senhas gravadas em texto puro")
+    void deveMigrarSenhasEmTextoPuro() {
+        // Nos dois extremos, antes e depois do número sorteado para o início da migração
+        for (String numeroCartao : List.of("0000000000000001", NUMERO_CARTAO, "9899999999999998")) {
+            jdbcTemplate.update("INSERT INTO cartao (numero_cartao, senha, saldo_centavos, version) VALUES (?, ?, ?, 0)",
+                    numeroCartao, SENHA, 50_000);
+        }
+
+        assertThat(migracaoSenhas.migrar()).isEqualTo(3);
+        assertThat(migracaoSenhas.migrar()).isZero();
+
+        String armazenada = cartaoRepository.findById(NUMERO_CARTAO).orElseThrow().getSenha();
+        assertThat(armazenada).startsWith("pbkdf2$");
+        assertThat(verificadorSenha.confere(NUMERO_CARTAO, SENHA, armazenada)).isTrue();
+        assertThat(meterRegistry.get("autorizador.senha.legadas").gauge().value()).isZero();
     }
 
     @Test
@@ -55,6 +155,8 @@ class MiniAutorizadorIntegrationTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.numeroCartao").value(NUMERO_CARTAO))
                 .andExpect(jsonPath("$.senha").value(SENHA));
+
+        assertThat(cartaoRepository.findById(NUMERO_CARTAO).orElseThrow().getSenha()).startsWith("pbkdf2$");
     }
 
     @Test
@@ -100,6 +202,28 @@ class MiniAutorizadorIntegrationTest {
                 .andExpect(content().string("500.00"));
     }
 
+    @Test
+    @DisplayName("Deve servir consultas repetidas de saldo pelo cache")
+    void deveServirConsultasDeSaldoPeloCache() throws Exception {
+        CartaoRequest request = CartaoRequest.builder()
+                .numeroCartao(NUMERO_CARTAO)
+                .senha(SENHA)
+                .build();
+
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        double acertosAntes = acertosCacheSaldos();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                    .andExpect(content().string("500.00"));
+        }
+
+        assertThat(acertosCacheSaldos()).isEqualTo(acertosAntes + 3);
+    }
+
     @Test
     @DisplayName("Deve retornar 404 ao consultar saldo de cartão inexistente")
     void deveRetornar404QuandoCartaoNaoExiste() throws Exception {
@@ -212,6 +336,57 @@ class MiniAutorizadorIntegrationTest {
                 .andExpect(content().string("CARTAO_INEXISTENTE"));
     }
 
+    @Test
+    @DisplayName("Deve recusar pelo filtro de cartões as operações sobre cartões nunca criados")
+    void deveRecusarPeloFiltroCartoesNuncaCriados() throws Exception {
+        // Não criado por nenhum teste: os cartões removidos continuam aceitos pelo filtro
+        String numeroCartao = "4024007186239145";
+        double recusadosAntes = meterRegistry.get("autorizador.filtro.cartoes.recusados").counter().count();
+
+        mockMvc.perform(post("/transacoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transacao(numeroCartao, SENHA, "10.00"))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("CARTAO_INEXISTENTE"));
+        mockMvc.perform(get("/cartoes/{numeroCartao}", numeroCartao))
+                .andExpect(status().isNotFound());
+
+        assertThat(meterRegistry.get("autorizador.filtro.cartoes.recusados").counter().count()).isEqualTo(recusadosAntes + 2);
+        assertThat(historico.descarregar(Duration.ofSeconds(5))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacao WHERE numero_cartao = ? AND status = ?",
+                Integer.class, numeroCartao, "CARTAO_INEXISTENTE")).isEqualTo(1);
+
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CartaoRequest(numeroCartao, SENHA))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/cartoes/{numeroCartao}", numeroCartao))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Deve aceitar pelo filtro os cartões criados por outra instância só após a reconstrução")
+    void deveAceitarCartaoDeOutraInstanciaAposReconstrucao() throws Exception {
+        // Inserido direto no banco, como por outra instância: o filtro não o conhece
+        String numeroCartao = "5105105105105100";
+        jdbcTemplate.update("INSERT INTO cartao (numero_cartao, senha, saldo_centavos, version) VALUES (?, ?, ?, 0)",
+                numeroCartao, SENHA, 50_000);
+
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CartaoRequest(numeroCartao, SENHA))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.numeroCartao").value(numeroCartao));
+        mockMvc.perform(get("/cartoes/{numeroCartao}", numeroCartao))
+                .andExpect(status().isNotFound());
+
+        assertThat(filtroCartoes.reconstruir()).isEqualTo(1);
+
+        mockMvc.perform(get("/cartoes/{numeroCartao}", numeroCartao))
+                .andExpect(status().isOk())
+                .andExpect(content().string("500.00"));
+    }
+
     @Test
     @DisplayName("Deve realizar múltiplas transações até saldo insuficiente")
     void deveRealizarMultiplasTransacoesAteSaldoInsuficiente() throws Exception {
@@ -259,4 +434,349 @@ class MiniAutorizadorIntegrationTest {
                 .andExpect(status().isUnprocessableEntity())
                 .andExpect(content().string("SALDO_INSUFICIENTE"));
     }
+
+    @Test
+    @DisplayName("Deve criar cartões em lote via NDJSON informando os já existentes")
+    void deveCriarCartoesEmLoteNdjson() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CartaoRequest(NUMERO_CARTAO, SENHA))))
+                .andExpect(status().isCreated());
+
+        String corpo = """
+                {"numeroCartao":"6549873025634501","senha":"9999"}
+                {"numeroCartao":"6549873025634502","senha":"1111"}
+
+                {"numeroCartao":"6549873025634503"}
+                {"numeroCartao":"6549873025634502","senha":"2222"}
+                nao e json
+                """;
+
+        String resposta = mockMvc.perform(post("/cartoes/lote")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(corpo))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(resposta.lines().toList()).containsExactly(
+                "{\"linha\":1,\"status\":422,\"cartao\":{\"senha\":\"9999\",\"numeroCartao\":\"6549873025634501\"}}",
+                "{\"linha\":2,\"status\":201,\"cartao\":{\"senha\":\"1111\",\"numeroCartao\":\"6549873025634502\"}}",
+                "{\"linha\":4,\"status\":400,\"erro\":\"Senha é obrigatória\"}",
+                "{\"linha\":5,\"status\":422,\"cartao\":{\"senha\":\"2222\",\"numeroCartao\":\"6549873025634502\"}}",
+                "{\"linha\":6,\"status\":400,\"erro\":\"Linha mal formatada\"}");
+
+        mockMvc.perform(get("/cartoes/{numeroCartao}", "6549873025634502"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("500.00"));
+    }
+
+    @Test
+    @DisplayName("Deve criar cartões em lote via CSV em mais de um bloco")
+    void deveCriarCartoesEmLoteCsv() throws Exception {
+        StringBuilder corpo = new StringBuilder("numeroCartao,senha\n");
+        for (int i = 0; i < 2500; i++) {
+            corpo.append(String.format("%016d", i)).append(',').append(SENHA).append('\n');
+        }
+
+        String resposta = mockMvc.perform(post("/cartoes/lote")
+                        .contentType("text/csv")
+                        .content(corpo.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(resposta.lines()).hasSize(2500).allMatch(linha -> linha.contains("\"status\":201"));
+        assertThat(cartaoRepository.count()).isEqualTo(2500);
+    }
+
+    @Test
+    @DisplayName("Deve identificar os cartões criados em lote sem a contagem por linha do driver")
+    void deveCriarCartoesEmLoteSemContagemPorLinha() throws Exception {
+        cartaoRepository.save(Cartao.builder().numeroCartao(NUMERO_CARTAO).senha(verificadorSenha.codificar(SENHA))
+                .saldoCentavos(50_000).build());
+        // Como o driver do MySQL com rewriteBatchedStatements=true
+        JdbcTemplate semContagem = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> argumentos, int tamanhoLote,
+                                           ParameterizedPreparedStatementSetter<T> preenchimento) {
+                int[][] contagens = super.batchUpdate(sql, argumentos, tamanhoLote, preenchimento);
+                Arrays.stream(contagens).forEach(lote -> Arrays.fill(lote, Statement.SUCCESS_NO_INFO));
+                return contagens;
+            }
+        };
+        CartaoLoteService servico = new CartaoLoteService(semContagem, verificadorSenha, transactionManager,
+                objectMapper, validator, contexto);
+        StringWriter resposta = new StringWriter();
+
+        servico.criarCartoes(new StringReader("""
+                6549873025634501,9999
+                6549873025634502,1111
+                6549873025634502,2222
+                """), CartaoLoteService.Formato.CSV, resposta);
+
+        assertThat(resposta.toString().lines().map(linha -> linha.substring(0, linha.indexOf(",\"cartao\""))).toList())
+                .containsExactly("{\"linha\":1,\"status\":422", "{\"linha\":2,\"status\":201", "{\"linha\":3,\"status\":422");
+        assertThat(cartaoRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve registrar no histórico todas as tentativas de autorização")
+    void deveRegistrarTentativasNoHistorico() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CartaoRequest(NUMERO_CARTAO, SENHA))))
+                .andExpect(status().isCreated());
+        for (TransacaoRequest transacao : List.of(
+                transacao(NUMERO_CARTAO, SENHA, "10.00"),
+                transacao(NUMERO_CARTAO, "0000", "20.00"),
+                transacao("1111222233334444", SENHA, "30.00"))) {
+            mockMvc.perform(post("/transacoes")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(transacao)));
+        }
+
+        assertThat(historico.descarregar(Duration.ofSeconds(5))).isTrue();
+        List<String> registros = jdbcTemplate.queryForList(
+                "SELECT CONCAT(numero_cartao, ':', valor_centavos, ':', status, ':', COALESCE(CAST(saldo_centavos AS VARCHAR), '-')) "
+                        + "FROM transacao ORDER BY id", String.class);
+        // O motor condicional não lê o saldo resultante dos débitos autorizados
+        assertThat(registros).satisfiesExactly(
+                registro -> assertThat(registro).matches(NUMERO_CARTAO + ":1000:OK:(49000|-)"),
+                registro -> assertThat(registro).isEqualTo(NUMERO_CARTAO + ":2000:SENHA_INVALIDA:49000"),
+                registro -> assertThat(registro).isEqualTo("1111222233334444:3000:CARTAO_INEXISTENTE:-"));
+    }
+
+    @Test
+    @DisplayName("Deve descartar do histórico só os registros recusados pelo banco")
+    void deveDescartarRegistrosRecusadosDoHistorico() throws Exception {
+        mockMvc.perform(post("/transacoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transacao(NUMERO_CARTAO + "1", SENHA, "10.00"))))
+                .andExpect(status().isBadRequest());
+
+        double recusadas = meterRegistry.get("autorizador.historico.recusadas").counter().count();
+        historico.registrar(NUMERO_CARTAO, 1000, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+        historico.registrar("12345678901234567890", 2000, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+        historico.registrar(NUMERO_CARTAO, 3000, TransacaoStatus.CARTAO_INEXISTENTE, HistoricoTransacoes.SALDO_DESCONHECIDO);
+
+        assertThat(historico.descarregar(Duration.ofSeconds(5))).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT valor_centavos FROM transacao ORDER BY id", Long.class))
+                .containsExactly(1000L, 3000L);
+        assertThat(meterRegistry.get("autorizador.historico.recusadas").counter().count()).isEqualTo(recusadas + 1);
+    }
+
+    @Test
+    @DisplayName("Deve repetir o status original para o mesmo Idempotency-Key sem novo débito")
+    void deveRepetirTransacaoComMesmoIdempotencyKey() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CartaoRequest(NUMERO_CARTAO, SENHA))))
+                .andExpect(status().isCreated());
+        String transacao = objectMapper.writeValueAsString(transacao(NUMERO_CARTAO, SENHA, "10.00"));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/transacoes")
+                            .header("Idempotency-Key", "pedido-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(transacao))
+                    .andExpect(status().isCreated())
+                    .andExpect(content().string("OK"));
+        }
+
+        // Fora da janela em memória a repetição é respondida pelo banco
+        assertThat(idempotencia.descarregar(Duration.ofSeconds(5))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM transacao_idempotente WHERE chave = 'pedido-1'", String.class))
+                .isEqualTo("OK");
+        idempotencia.limpar();
+        mockMvc.perform(post("/transacoes")
+                        .header("Idempotency-Key", "pedido-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(transacao))
+                .andExpect(status().isCreated())
+                .andExpect(content().string("OK"));
+
+        mockMvc.perform(post("/transacoes")
+                        .header("Idempotency-Key", "pedido-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transacao(NUMERO_CARTAO, SENHA, "20.00"))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(post("/transacoes")
+                        .header("Idempotency-Key", "pedido-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(transacao))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/transacoes")
+                        .header("Idempotency-Key", "x".repeat(65))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(transacao))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                .andExpect(status().isOk())
+                .andExpect(content().string("480.00"));
+    }
+
+    @Test
+    @DisplayName("Deve liberar o Idempotency-Key só quando a transação certamente não foi executada")
+    void deveManterIdempotencyKeyComResultadoIndeterminado() throws InterruptedException {
+        TransacaoRequest request = transacao(NUMERO_CARTAO, SENHA, "10.00");
+
+        assertThatThrownBy(() -> idempotencia.executar("recusada", request, () -> {
+            throw new TransacaoNaoExecutadaException("Fila indisponível");
+        })).isInstanceOf(TransacaoNaoExecutadaException.class);
+        assertThat(idempotencia.executar("recusada", request, () -> TransacaoStatus.OK)).isEqualTo(TransacaoStatus.OK);
+
+        // Dentro da janela a repetição é respondida pela memória, sem consultar o banco
+        assertThat(idempotencia.descarregar(Duration.ofSeconds(5))).isTrue();
+        jdbcTemplate.update("DELETE FROM transacao_idempotente");
+        assertThat(idempotencia.executar("recusada", request, () -> TransacaoStatus.SALDO_INSUFICIENTE))
+                .isEqualTo(TransacaoStatus.OK);
+
+        assertThatThrownBy(() -> idempotencia.executar("indeterminada", request, () -> {
+            throw new IllegalStateException("Tempo esgotado aguardando o shard");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> idempotencia.executar("indeterminada", request, () -> TransacaoStatus.OK))
+                .isInstanceOf(TransacaoEmAndamentoException.class);
+
+        // O resultado indeterminado não é gravado no banco e expira com a janela em memória
+        assertThat(idempotencia.descarregar(Duration.ofSeconds(5))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacao_idempotente WHERE chave = 'indeterminada'",
+                Integer.class)).isZero();
+        idempotencia.limpar();
+        assertThat(idempotencia.executar("indeterminada", request, () -> TransacaoStatus.OK)).isEqualTo(TransacaoStatus.OK);
+    }
+
+    @Test
+    @DisplayName("Deve processar lote de transações preservando a ordem por cartão")
+    void deveProcessarLoteDeTransacoes() throws Exception {
+        String outroCartao = "6549873025634502";
+        for (String numeroCartao : List.of(NUMERO_CARTAO, outroCartao)) {
+            mockMvc.perform(post("/cartoes")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(CartaoRequest.builder()
+                                    .numeroCartao(numeroCartao)
+                                    .senha(SENHA)
+                                    .build())))
+                    .andExpect(status().isCreated());
+        }
+
+        List<TransacaoRequest> lote = List.of(
+                transacao(NUMERO_CARTAO, SENHA, "300.00"),
+                transacao(outroCartao, SENHA, "50.00"),
+                transacao(NUMERO_CARTAO, SENHA, "300.00"),
+                transacao(NUMERO_CARTAO, "0000", "1.00"),
+                transacao("0000000000000000", SENHA, "1.00"),
+                transacao(NUMERO_CARTAO, SENHA, "200.00"));
+
+        mockMvc.perform(post("/transacoes/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        ["OK","OK","SALDO_INSUFICIENTE","SENHA_INVALIDA","CARTAO_INEXISTENTE","OK"]
+                        """));
+
+        mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                .andExpect(content().string("0.00"));
+        mockMvc.perform(get("/cartoes/{numeroCartao}", outroCartao))
+                .andExpect(content().string("450.00"));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar lote com transação inválida")
+    void deveRejeitarLoteComTransacaoInvalida() throws Exception {
+        List<TransacaoRequest> lote = List.of(transacao(NUMERO_CARTAO, SENHA, "-1.00"));
+
+        mockMvc.perform(post("/transacoes/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar valor com mais de duas casas decimais ou fora do limite")
+    void deveRejeitarValorForaDaEscala() throws Exception {
+        for (String valor : List.of("10.001", "100000000000000000.00")) {
+            mockMvc.perform(post("/transacoes")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transacao(NUMERO_CARTAO, SENHA, valor))))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve expor métricas de transações no formato Prometheus")
+    void deveExporMetricasPrometheus() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(CartaoRequest.builder()
+                                .numeroCartao(NUMERO_CARTAO)
+                                .senha(SENHA)
+                                .build())))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/transacoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transacao(NUMERO_CARTAO, "0000", "1.00"))))
+                .andExpect(status().isUnprocessableEntity());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("autorizador_transacoes_total{status=\"SENHA_INVALIDA\"")))
+                .andExpect(content().string(containsString("autorizador_operacao_seconds_bucket{operacao=\"criarCartao\"")))
+                .andExpect(content().string(containsString("autorizador_transacao_fase_seconds_count{fase=\"espera_lock\"")));
+        mockMvc.perform(get("/actuator/contencao"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Deve responder pelo codec de transações como pelo Spring MVC")
+    void deveResponderPeloCodecComoPeloSpringMvc() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(CartaoRequest.builder()
+                                .numeroCartao(NUMERO_CARTAO)
+                                .senha(SENHA)
+                                .build())))
+                .andExpect(status().isCreated());
+
+        // O escape na senha não é lido pelo codec e leva a requisição ao controller
+        for (String senha : List.of("1234", "\\u0031234")) {
+            mockMvc.perform(post("/transacoes")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"numeroCartao\":\"" + NUMERO_CARTAO + "\",\"senhaCartao\":\"" + senha + "\",\"valor\":10.00}"))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8"))
+                    .andExpect(content().string("OK"));
+        }
+        for (String numeroCartao : List.of(NUMERO_CARTAO, "%36" + NUMERO_CARTAO.substring(1))) {
+            mockMvc.perform(get(URI.create("/cartoes/" + numeroCartao)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
+                    .andExpect(content().string("480.00"));
+        }
+        mockMvc.perform(get("/cartoes/0000000000000000"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(content().string(containsString("uri=\"/transacoes\"")))
+                .andExpect(content().string(containsString("uri=\"/cartoes/{numeroCartao}\"")));
+    }
+
+    static TransacaoRequest transacao(String numeroCartao, String senha, String valor) {
+        return TransacaoRequest.builder()
+                .numeroCartao(numeroCartao)
+                .senhaCartao(senha)
+                .valor(new BigDecimal(valor))
+                .build();
+    }
+
+    private double acertosCacheSaldos() throws Exception {
+        String metrica = mockMvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:saldos", "result:hit"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(metrica).at("/measurements/0/value").asDouble();
+    }
 }
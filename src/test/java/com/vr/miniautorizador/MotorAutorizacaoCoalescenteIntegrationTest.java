@@ -0,0 +1,63 @@
+package com.vr.miniautorizador;
+
+import com.vr.miniautorizador.dto.CartaoRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Executa os mesmos cenários de {@link MiniAutorizadorIntegrationTest} com o motor coalescente.
+ */
+@SpringBootTest(properties = {
+        "autorizador.motor=coalescente",
+        "autorizador.coalescente.lote-maximo=8",
+        "spring.datasource.url=jdbc:h2:mem:motorcoalescente;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+class MotorAutorizacaoCoalescenteIntegrationTest extends MiniAutorizadorIntegrationTest {
+
+    @Test
+    @DisplayName("Deve entregar a cada chamador o status do seu débito em um cartão disputado")
+    void deveDebitarConcorrentementeNoMesmoCartao() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(CartaoRequest.builder()
+                                .numeroCartao(NUMERO_CARTAO)
+                                .senha(SENHA)
+                                .build())))
+                .andExpect(status().isCreated());
+
+        AtomicInteger aprovadas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 100; i++) {
+            executor.submit(() -> {
+                int status = mockMvc.perform(post("/transacoes")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(transacao(NUMERO_CARTAO, SENHA, "7.00"))))
+                        .andReturn().getResponse().getStatus();
+                (status == 201 ? aprovadas : recusadas).incrementAndGet();
+                return status;
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // 500.00 / 7.00 = 71 débitos aprovados, restando 3.00
+        assertThat(aprovadas.get()).isEqualTo(71);
+        assertThat(recusadas.get()).isEqualTo(29);
+        mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                .andExpect(content().string("3.00"));
+    }
+}
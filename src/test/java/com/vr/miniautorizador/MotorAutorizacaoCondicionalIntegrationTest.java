@@ -0,0 +1,13 @@
+package com.vr.miniautorizador;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Executa os mesmos cenários de {@link MiniAutorizadorIntegrationTest} com o motor condicional.
+ */
+@SpringBootTest(properties = {
+        "autorizador.motor=condicional",
+        "spring.datasource.url=jdbc:h2:mem:motorcondicional;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+class MotorAutorizacaoCondicionalIntegrationTest extends MiniAutorizadorIntegrationTest {
+}
@@ -0,0 +1,130 @@
+package com.vr.miniautorizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "autorizador.motor=memoria",
+        "autorizador.memoria.shards=4",
+        "autorizador.memoria.intervalo-sincronizacao=50ms",
+        "spring.datasource.url=jdbc:h2:mem:motormemoria;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MotorAutorizacaoMemoriaIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartaoRepository cartaoRepository;
+
+    private static final String NUMERO_CARTAO = "6549873025634501";
+    private static final String SENHA = "1234";
+
+    @Test
+    @DisplayName("Deve manter o contrato HTTP de transações com o motor em memória")
+    void deveManterContratoHttp() throws Exception {
+        criarCartao();
+
+        realizarTransacao(SENHA, "10.00")
+                .andExpect(status().isCreated())
+                .andExpect(content().string("OK"));
+        realizarTransacao("0000", "10.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("SENHA_INVALIDA"));
+        realizarTransacao(SENHA, "600.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("SALDO_INSUFICIENTE"));
+
+        mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                .andExpect(status().isOk())
+                .andExpect(content().string("490.00"));
+        mockMvc.perform(get("/cartoes/{numeroCartao}", "0000000000000000"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve debitar concorrentemente sem saldo negativo e sincronizar o banco")
+    void deveDebitarConcorrentementeESincronizarBanco() throws Exception {
+        criarCartao();
+
+        AtomicInteger aprovadas = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> {
+                int status = realizarTransacao(SENHA, "7.00").andReturn().getResponse().getStatus();
+                if (status == 201) {
+                    aprovadas.incrementAndGet();
+                }
+                return status;
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // 500.00 / 7.00 = 71 débitos aprovados, restando 3.00
+        assertThat(aprovadas.get()).isEqualTo(71);
+        mockMvc.perform(get("/cartoes/{numeroCartao}", NUMERO_CARTAO))
+                .andExpect(content().string("3.00"));
+
+        long limite = System.currentTimeMillis() + 5_000;
+        while (cartaoRepository.findById(NUMERO_CARTAO).orElseThrow().getSaldoCentavos() != 300
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        assertThat(cartaoRepository.findById(NUMERO_CARTAO).orElseThrow().getSaldoCentavos()).isEqualTo(300);
+    }
+
+    private void criarCartao() throws Exception {
+        CartaoRequest request = CartaoRequest.builder()
+                .numeroCartao(NUMERO_CARTAO)
+                .senha(SENHA)
+                .build();
+
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+    }
+
+    private ResultActions realizarTransacao(String senha, String valor) throws Exception {
+        TransacaoRequest request = TransacaoRequest.builder()
+                .numeroCartao(NUMERO_CARTAO)
+                .senhaCartao(senha)
+                .valor(new BigDecimal(valor))
+                .build();
+
+        return mockMvc.perform(post("/transacoes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+}
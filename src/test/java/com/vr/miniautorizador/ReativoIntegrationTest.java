@@ -0,0 +1,122 @@
+package com.vr.miniautorizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vr.miniautorizador.dto.CartaoRequest;
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.repository.CartaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "autorizador.reativo.habilitado=true",
+        "spring.datasource.url=jdbc:h2:mem:reativo;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reativo"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReativoIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartaoRepository cartaoRepository;
+
+    private static final String NUMERO_CARTAO = "6549873025634501";
+    private static final String SENHA = "1234";
+
+    @BeforeEach
+    void setUp() {
+        cartaoRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve criar cartão e retornar 422 com o cartão existente na API reativa")
+    void deveCriarCartao() throws Exception {
+        CartaoRequest request = CartaoRequest.builder().numeroCartao(NUMERO_CARTAO).senha(SENHA).build();
+
+        executar(post("/reativo/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.numeroCartao").value(NUMERO_CARTAO));
+
+        executar(post("/reativo/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.senha").value(SENHA));
+
+        executar(get("/reativo/cartoes/" + NUMERO_CARTAO))
+                .andExpect(status().isOk())
+                .andExpect(content().string("500.00"));
+    }
+
+    @Test
+    @DisplayName("Deve manter o contrato de transações na API reativa")
+    void deveManterContratoDeTransacoes() throws Exception {
+        criarCartao();
+
+        realizarTransacao(NUMERO_CARTAO, SENHA, "10.00")
+                .andExpect(status().isCreated())
+                .andExpect(content().string("OK"));
+        realizarTransacao(NUMERO_CARTAO, "0000", "10.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("SENHA_INVALIDA"));
+        realizarTransacao(NUMERO_CARTAO, SENHA, "1000.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("SALDO_INSUFICIENTE"));
+        realizarTransacao("9999999999999999", SENHA, "10.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("CARTAO_INEXISTENTE"));
+
+        // O saldo debitado pela API reativa é visto pela API síncrona
+        mockMvc.perform(get("/cartoes/" + NUMERO_CARTAO))
+                .andExpect(status().isOk())
+                .andExpect(content().string("490.00"));
+        executar(get("/reativo/cartoes/9999999999999999"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void criarCartao() throws Exception {
+        mockMvc.perform(post("/cartoes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                CartaoRequest.builder().numeroCartao(NUMERO_CARTAO).senha(SENHA).build())))
+                .andExpect(status().isCreated());
+    }
+
+    private ResultActions realizarTransacao(String numeroCartao, String senha, String valor) throws Exception {
+        TransacaoRequest request = TransacaoRequest.builder()
+                .numeroCartao(numeroCartao)
+                .senhaCartao(senha)
+                .valor(new BigDecimal(valor))
+                .build();
+        return executar(post("/reativo/transacoes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private ResultActions executar(MockHttpServletRequestBuilder requisicao) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.vr.miniautorizador.cache;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheSaldosTest {
+
+    @Test
+    @DisplayName("Não deve restaurar um saldo anterior quando as confirmações de débitos chegam fora de ordem")
+    void deveManterMenorSaldoComConfirmacoesForaDeOrdem() {
+        CacheSaldos cache = new CacheSaldos(new AutorizadorProperties(), new SimpleMeterRegistry());
+        cache.obter("6549873025634501", numero -> OptionalLong.of(50_000));
+
+        // Dois débitos confirmados em sequência (49.000 e depois 48.000), com callbacks invertidos
+        cache.atualizarAposCommit("6549873025634501", 48_000);
+        cache.atualizarAposCommit("6549873025634501", 49_000);
+
+        assertThat(cache.obter("6549873025634501", numero -> OptionalLong.of(0))).hasValue(48_000);
+    }
+}
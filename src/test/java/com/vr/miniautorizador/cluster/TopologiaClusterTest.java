@@ -0,0 +1,29 @@
+package com.vr.miniautorizador.cluster;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopologiaClusterTest {
+
+    @Test
+    @DisplayName("Deve transferir ao nó adicionado apenas as partições que ele passa a possuir")
+    void deveTransferirApenasParticoesDoNovoNo() {
+        TopologiaCluster anterior = new TopologiaCluster(List.of("http://a:8080", "http://b:8080", "http://c:8080"), 4096);
+        TopologiaCluster nova = new TopologiaCluster(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 4096);
+
+        boolean[] transferidas = anterior.particoesTransferidas(nova);
+        int total = 0;
+        for (int particao = 0; particao < transferidas.length; particao++) {
+            if (transferidas[particao]) {
+                assertThat(nova.dono(particao)).isEqualTo("http://d:8080");
+                total++;
+            }
+        }
+        // Em média 1/4 das partições
+        assertThat(total).isBetween(4096 / 4 - 200, 4096 / 4 + 200);
+    }
+}
@@ -0,0 +1,51 @@
+package com.vr.miniautorizador.codec;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecTransacaoFilterTest {
+
+    @Test
+    @DisplayName("Deve entregar o corpo já lido a um leitor assíncrono")
+    void deveEntregarCorpoAoLeitorAssincrono() {
+        byte[] corpo = "{\"numeroCartao\":\"6549873025634501\"}".getBytes(StandardCharsets.UTF_8);
+        ServletInputStream entrada = new CodecTransacaoFilter.CorpoLido(new MockHttpServletRequest(), corpo).getInputStream();
+        ByteArrayOutputStream lido = new ByteArrayOutputStream();
+        List<String> eventos = new ArrayList<>();
+
+        entrada.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                eventos.add("dados");
+                byte[] bloco = new byte[8];
+                while (entrada.isReady() && !entrada.isFinished()) {
+                    lido.write(bloco, 0, entrada.read(bloco));
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                eventos.add("fim");
+            }
+
+            @Override
+            public void onError(Throwable erro) {
+                eventos.add("erro");
+            }
+        });
+
+        assertThat(eventos).containsExactly("dados", "fim");
+        assertThat(lido.toByteArray()).isEqualTo(corpo);
+    }
+}
@@ -0,0 +1,68 @@
+package com.vr.miniautorizador.codec;
+
+import com.vr.miniautorizador.dto.TransacaoRequest;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecTransacaoTest {
+
+    @Test
+    @DisplayName("Deve ler os campos em qualquer ordem, com espaços e valores em centavos")
+    void deveLerTransacao() {
+        TransacaoRequest request = ler("""
+                { "valor" : 10.5,
+                  "senhaCartao":"sênha",  "numeroCartao": "6549873025634501" }
+                """);
+
+        assertThat(request.getNumeroCartao()).isEqualTo("6549873025634501");
+        assertThat(request.getSenhaCartao()).isEqualTo("sênha");
+        assertThat(request.getValorCentavos()).isEqualTo(1050);
+        assertThat(ler("{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":0.01}").getValorCentavos()).isEqualTo(1);
+        assertThat(ler("{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":9999999999999999.99}").getValorCentavos())
+                .isEqualTo(999999999999999999L);
+    }
+
+    @Test
+    @DisplayName("Deve recusar corpos fora do formato comum ou inválidos")
+    void deveRecusarCorposForaDoFormato() {
+        List<String> corpos = List.of(
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":0}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":-1}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":10.001}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":10000000000000000}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":1e2}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":01}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":\"1\"}",
+                "{\"numeroCartao\":\" \",\"senhaCartao\":\"1\",\"valor\":1}",
+                "{\"numeroCartao\":\"65498730256345011\",\"senhaCartao\":\"1\",\"valor\":1}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"\\u0031\",\"valor\":1}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\"}",
+                "{\"numeroCartao\":\"1\",\"numeroCartao\":\"2\",\"senhaCartao\":\"1\",\"valor\":1}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":1,\"outro\":1}",
+                "{\"numeroCartao\":\"1\",\"senhaCartao\":\"1\",\"valor\":1} x",
+                "[]");
+
+        assertThat(corpos).allSatisfy(corpo -> assertThat(ler(corpo)).as(corpo).isNull());
+    }
+
+    @Test
+    @DisplayName("Deve escrever o saldo com duas casas decimais e o status pré-codificado")
+    void deveEscreverRespostas() {
+        assertThat(new String(CodecTransacao.saldo(49000), StandardCharsets.US_ASCII)).isEqualTo("490.00");
+        assertThat(new String(CodecTransacao.saldo(5), StandardCharsets.US_ASCII)).isEqualTo("0.05");
+        assertThat(new String(CodecTransacao.saldo(0), StandardCharsets.US_ASCII)).isEqualTo("0.00");
+        assertThat(new String(CodecTransacao.status(TransacaoStatus.SALDO_INSUFICIENTE), StandardCharsets.US_ASCII))
+                .isEqualTo("SALDO_INSUFICIENTE");
+    }
+
+    private static TransacaoRequest ler(String corpo) {
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        return CodecTransacao.ler(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,77 @@
+package com.vr.miniautorizador.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LimiteConcorrenciaFilterTest {
+
+    @Test
+    @DisplayName("Deve responder 503 quando todas as permissões estiverem em uso")
+    void deveResponder503QuandoLimiteEsgotado() throws Exception {
+        LimiteConcorrenciaFilter filter = new LimiteConcorrenciaFilter(propriedades(1), null);
+        CountDownLatch emAndamento = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        CompletableFuture<Void> primeira = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("POST", "/transacoes"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            emAndamento.countDown();
+                            aguardar(liberar);
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(emAndamento.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse recusada = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/transacoes"), recusada, new MockFilterChain());
+        assertThat(recusada.getStatus()).isEqualTo(503);
+        assertThat(recusada.getHeader("Retry-After")).isEqualTo("1");
+
+        liberar.countDown();
+        primeira.get(5, TimeUnit.SECONDS);
+
+        MockHttpServletResponse aceita = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/transacoes"), aceita, new MockFilterChain());
+        assertThat(aceita.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Não deve limitar endpoints fora de cartões e transações")
+    void naoDeveLimitarOutrosEndpoints() throws Exception {
+        LimiteConcorrenciaFilter filter = new LimiteConcorrenciaFilter(propriedades(1), null);
+        MockFilterChain emUso = new MockFilterChain();
+        MockHttpServletRequest actuator = new MockHttpServletRequest("GET", "/actuator/health");
+
+        filter.doFilter(actuator, new MockHttpServletResponse(), emUso);
+
+        assertThat(emUso.getRequest()).isSameAs(actuator);
+    }
+
+    private static AutorizadorProperties propriedades(int permissoes) {
+        AutorizadorProperties properties = new AutorizadorProperties();
+        properties.getConcorrencia().setPermissoes(permissoes);
+        properties.getConcorrencia().setEsperaMaxima(Duration.ofMillis(100));
+        return properties;
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.vr.miniautorizador.filtro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FiltroBloomTest {
+
+    private static final int CARTOES = 200_000;
+
+    @Test
+    @DisplayName("Deve encontrar todos os cartões adicionados, numéricos ou não")
+    void deveEncontrarCartoesAdicionados() {
+        FiltroBloom filtro = FiltroBloom.dimensionar(CARTOES, 0.01, 1 << 20);
+        for (int i = 0; i < CARTOES; i++) {
+            filtro.adicionar(String.format("%016d", 6_549_873_000_000_000L + i * 7919L));
+        }
+        filtro.adicionar("0123");
+        filtro.adicionar("ABC-1");
+        filtro.adicionar("12345678901234567890");
+
+        for (int i = 0; i < CARTOES; i++) {
+            assertThat(filtro.podeConter(String.format("%016d", 6_549_873_000_000_000L + i * 7919L))).isTrue();
+        }
+        assertThat(filtro.podeConter("0123")).isTrue();
+        assertThat(filtro.podeConter("ABC-1")).isTrue();
+        assertThat(filtro.podeConter("12345678901234567890")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve recusar cartões inexistentes próximo à taxa de falsos positivos configurada")
+    void deveManterTaxaDeFalsosPositivos() {
+        FiltroBloom filtro = FiltroBloom.dimensionar(CARTOES, 0.01, 1 << 20);
+        for (int i = 0; i < CARTOES; i++) {
+            filtro.adicionar(String.format("%016d", 6_549_873_000_000_000L + i * 7919L));
+        }
+
+        int falsosPositivos = 0;
+        for (int i = 1; i <= CARTOES; i++) {
+            // Entre os números adicionados, que são múltiplos de 7919 a partir da base
+            if (filtro.podeConter(String.format("%016d", 6_549_873_000_000_000L + i * 7919L - 1))) {
+                falsosPositivos++;
+            }
+        }
+
+        assertThat((double) falsosPositivos / CARTOES).isBetween(0.005, 0.015);
+        assertThat(filtro.taxaFalsosPositivosEstimada()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    @DisplayName("Deve limitar o filtro à memória máxima, aumentando a taxa de falsos positivos")
+    void deveLimitarMemoria() {
+        FiltroBloom ideal = FiltroBloom.dimensionar(CARTOES, 0.01, 1 << 20);
+        FiltroBloom limitado = FiltroBloom.dimensionar(CARTOES, 0.01, 64 * 1024);
+        for (int i = 0; i < CARTOES; i++) {
+            ideal.adicionar(String.format("%016d", i));
+            limitado.adicionar(String.format("%016d", i));
+        }
+
+        assertThat(ideal.bytesOcupados()).isBetween(239_000L, 240_000L);
+        assertThat(limitado.bytesOcupados()).isEqualTo(64 * 1024);
+        assertThat(limitado.funcoes()).isLessThan(ideal.funcoes());
+        assertThat(limitado.taxaFalsosPositivosEstimada()).isGreaterThan(0.1);
+        assertThatThrownBy(() -> FiltroBloom.dimensionar(CARTOES, 1, 1 << 20)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.vr.miniautorizador.historico;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnelTransacoesTest {
+
+    @Test
+    @DisplayName("Deve retirar os registros na ordem de publicação, em lotes")
+    void deveRetirarNaOrdemDePublicacao() throws Exception {
+        AnelTransacoes anel = new AnelTransacoes(8);
+        for (int i = 0; i < 5; i++) {
+            assertThat(anel.publicar("cartao-" + i, i * 100L, (byte) 0, 1_000L - i, i, 0)).isTrue();
+        }
+
+        AnelTransacoes.Lote lote = new AnelTransacoes.Lote(3);
+        assertThat(anel.retirar(lote, 0, TimeUnit.MILLISECONDS)).isEqualTo(3);
+        assertThat(lote.cartoes).containsExactly("cartao-0", "cartao-1", "cartao-2");
+        assertThat(lote.valores).containsExactly(0L, 100L, 200L);
+
+        assertThat(anel.retirar(lote, 0, TimeUnit.MILLISECONDS)).isEqualTo(2);
+        assertThat(lote.cartoes[0]).isEqualTo("cartao-3");
+        assertThat(lote.saldos[1]).isEqualTo(996L);
+        assertThat(anel.retirar(lote, 0, TimeUnit.MILLISECONDS)).isZero();
+        assertThat(anel.publicados()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Deve recusar a publicação com o buffer cheio até que haja uma retirada")
+    void deveRecusarPublicacaoComBufferCheio() throws Exception {
+        AnelTransacoes anel = new AnelTransacoes(2);
+        assertThat(anel.publicar("a", 1, (byte) 0, 0, 0, 0)).isTrue();
+        assertThat(anel.publicar("b", 1, (byte) 0, 0, 0, 0)).isTrue();
+
+        assertThat(anel.publicar("c", 1, (byte) 0, 0, 0, TimeUnit.MILLISECONDS.toNanos(20))).isFalse();
+        assertThat(anel.pendentes()).isEqualTo(2);
+
+        anel.retirar(new AnelTransacoes.Lote(1), 0, TimeUnit.MILLISECONDS);
+        assertThat(anel.publicar("c", 1, (byte) 0, 0, 0, 0)).isTrue();
+        assertThat(anel.pendentes()).isEqualTo(2);
+    }
+}
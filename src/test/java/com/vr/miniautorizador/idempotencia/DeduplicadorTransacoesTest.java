@@ -0,0 +1,85 @@
+package com.vr.miniautorizador.idempotencia;
+
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeduplicadorTransacoesTest {
+
+    private static final byte OK = (byte) TransacaoStatus.OK.ordinal();
+    private static final String CARTAO = "6549873025634501";
+
+    @Test
+    @DisplayName("Deve reservar, concluir e repetir o status de uma chave")
+    void deveRepetirStatusConcluido() {
+        DeduplicadorTransacoes deduplicador = new DeduplicadorTransacoes(1_000, Duration.ofMinutes(1).toNanos());
+
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.EM_ANDAMENTO);
+
+        deduplicador.concluir("pedido-1", CARTAO, 1_000, OK);
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(OK);
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 2_000)).isEqualTo(DeduplicadorTransacoes.VALOR_DIFERENTE);
+        assertThat(deduplicador.reservar("pedido-1", "6549873025634502", 1_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+    }
+
+    @Test
+    @DisplayName("Deve distinguir chaves diferentes com o mesmo hash")
+    void deveDistinguirChavesComMesmoHash() {
+        DeduplicadorTransacoes deduplicador = new DeduplicadorTransacoes(1_000, Duration.ofMinutes(1).toNanos());
+
+        deduplicador.reservar(0x700, 1, 1_000);
+        deduplicador.concluir(0x700, 1, 1_000, OK);
+
+        assertThat(deduplicador.reservar(0x700, 2, 1_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+        assertThat(deduplicador.reservar(0x700, 1, 1_000)).isEqualTo(OK);
+    }
+
+    @Test
+    @DisplayName("Deve permitir nova tentativa após liberar a chave")
+    void devePermitirNovaTentativaAposLiberar() {
+        DeduplicadorTransacoes deduplicador = new DeduplicadorTransacoes(1_000, Duration.ofMinutes(1).toNanos());
+
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+        deduplicador.liberar("pedido-1", CARTAO);
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 2_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 2_000)).isEqualTo(DeduplicadorTransacoes.EM_ANDAMENTO);
+    }
+
+    @Test
+    @DisplayName("Deve manter as chaves por pelo menos uma janela e descartá-las na segunda rotação")
+    void deveDescartarChavesAposDuasRotacoes() throws InterruptedException {
+        DeduplicadorTransacoes deduplicador = new DeduplicadorTransacoes(1_000, Duration.ofMillis(50).toNanos());
+        deduplicador.reservar("pedido-1", CARTAO, 1_000);
+
+        deduplicador.expirar();
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.EM_ANDAMENTO);
+
+        Thread.sleep(60);
+        deduplicador.expirar();
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.EM_ANDAMENTO);
+
+        Thread.sleep(60);
+        deduplicador.expirar();
+        assertThat(deduplicador.reservar("pedido-1", CARTAO, 1_000)).isEqualTo(DeduplicadorTransacoes.AUSENTE);
+    }
+
+    @Test
+    @DisplayName("Deve rotacionar a geração cheia sem perder as chaves da geração anterior")
+    void deveRotacionarGeracaoCheia() {
+        DeduplicadorTransacoes deduplicador = new DeduplicadorTransacoes(64 * 4, Duration.ofMinutes(1).toNanos());
+        for (int i = 0; i < 6; i++) {
+            // Todas no mesmo segmento, cuja geração comporta quatro chaves
+            deduplicador.reservar((i + 1L) << Long.BYTES, i, 1_000);
+            deduplicador.concluir((i + 1L) << Long.BYTES, i, 1_000, OK);
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(deduplicador.reservar((i + 1L) << Long.BYTES, i, 1_000)).isEqualTo(OK);
+        }
+    }
+}
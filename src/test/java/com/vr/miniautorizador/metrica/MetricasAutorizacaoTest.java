@@ -0,0 +1,54 @@
+package com.vr.miniautorizador.metrica;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import com.vr.miniautorizador.exception.TransacaoStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricasAutorizacaoTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Deve contar transações por status e registrar a latência")
+    void deveContarTransacoesPorStatus() {
+        MetricasAutorizacao metricas = new MetricasAutorizacao(new AutorizadorProperties(), registry);
+
+        metricas.registrarTransacao(TransacaoStatus.OK, System.nanoTime());
+        metricas.registrarTransacao(TransacaoStatus.SALDO_INSUFICIENTE, System.nanoTime());
+        metricas.contarTransacoes(List.of(TransacaoStatus.OK, TransacaoStatus.SENHA_INVALIDA));
+
+        assertThat(registry.get("autorizador.transacoes").tag("status", "OK").counter().count()).isEqualTo(2);
+        assertThat(registry.get("autorizador.transacoes").tag("status", "SALDO_INSUFICIENTE").counter().count()).isEqualTo(1);
+        assertThat(registry.get("autorizador.transacoes").tag("status", "SENHA_INVALIDA").counter().count()).isEqualTo(1);
+        assertThat(registry.get("autorizador.operacao").tag("operacao", "realizarTransacao").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve listar os cartões mais contendidos em ordem decrescente")
+    void deveListarCartoesMaisContendidos() {
+        AutorizadorProperties properties = new AutorizadorProperties();
+        properties.getMetricas().setLimiteContencao(Duration.ZERO);
+        properties.getMetricas().setCartoesMaisContendidos(2);
+        MetricasAutorizacao metricas = new MetricasAutorizacao(properties, registry);
+
+        for (int i = 0; i < 3; i++) {
+            metricas.registrarEsperaLock("1111", System.nanoTime() - 1);
+        }
+        for (int i = 0; i < 5; i++) {
+            metricas.registrarEsperaLock("2222", System.nanoTime() - 1);
+        }
+        metricas.registrarEsperaLock("3333", System.nanoTime() - 1);
+
+        assertThat(metricas.cartoesMaisContendidos()).containsExactly(
+                new MetricasAutorizacao.CartaoContendido("2222", 5),
+                new MetricasAutorizacao.CartaoContendido("1111", 3));
+        assertThat(registry.get("autorizador.contencao").counter().count()).isEqualTo(9);
+    }
+}
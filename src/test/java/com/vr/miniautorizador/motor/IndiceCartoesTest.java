@@ -0,0 +1,77 @@
+package com.vr.miniautorizador.motor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class IndiceCartoesTest {
+
+    @Test
+    @DisplayName("Deve inserir, debitar e remover cartões preservando zeros à esquerda")
+    void deveManterSaldosPorNumero() {
+        IndiceCartoes cartoes = new IndiceCartoes(0);
+
+        cartoes.inserir("6549873025634501", 50000, 3);
+        cartoes.inserir("0123", 100, 0);
+        cartoes.inserir("123", 200, 0);
+        cartoes.inserir("ABC-1", 300, 0);
+
+        int posicao = cartoes.localizar("6549873025634501");
+        cartoes.atualizarSaldo(posicao, 49000);
+
+        assertThat(cartoes.saldo("6549873025634501")).isEqualTo(49000);
+        assertThat(cartoes.versao(cartoes.localizar("6549873025634501"))).isEqualTo(4);
+        assertThat(cartoes.saldo("0123")).isEqualTo(100);
+        assertThat(cartoes.saldo("123")).isEqualTo(200);
+        assertThat(cartoes.saldo("ABC-1")).isEqualTo(300);
+        assertThat(cartoes.saldo("1111222233334444")).isEqualTo(IndiceCartoes.AUSENTE);
+
+        assertThat(cartoes.removerSe(numero -> numero.length() < 5)).isEqualTo(2);
+        assertThat(cartoes.contem("0123")).isFalse();
+        assertThat(cartoes.contem("ABC-1")).isTrue();
+        assertThat(cartoes.tamanho()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve crescer mantendo todos os cartões e menos de 40 bytes por cartão")
+    void deveCrescerComMenosDe40BytesPorCartao() {
+        IndiceCartoes cartoes = new IndiceCartoes(0);
+        int quantidade = 200_000;
+
+        for (int i = 0; i < quantidade; i++) {
+            cartoes.inserir(String.format("%016d", 6_549_873_000_000_000L + i * 7L), i, 0);
+        }
+        cartoes.removerSe(numero -> numero.endsWith("0"));
+
+        Map<String, Long> visitados = new HashMap<>();
+        cartoes.paraCada(visitados::put);
+
+        assertThat(visitados).hasSize(cartoes.tamanho());
+        assertThat(cartoes.saldo(String.format("%016d", 6_549_873_000_000_000L + 7L))).isEqualTo(1);
+        assertThat(visitados).allSatisfy((numero, saldo) ->
+                assertThat(Long.parseLong(numero)).isEqualTo(6_549_873_000_000_000L + saldo * 7L));
+        assertThat((double) cartoes.bytesOcupados() / quantidade).isLessThan(40);
+    }
+
+    @Test
+    @DisplayName("Deve reinserir em tempo linear os cartões na ordem da tabela de outro índice")
+    void deveReinserirNaOrdemDeOutraTabela() {
+        IndiceCartoes origem = new IndiceCartoes(0);
+        for (int i = 0; i < 500_000; i++) {
+            origem.inserir(String.format("%016d", 6_549_873_000_000_000L + i * 7919L), i, 0);
+        }
+
+        // Como numa cópia entre índices: o índice novo cresce enquanto recebe as chaves
+        IndiceCartoes destino = new IndiceCartoes(0);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> origem.paraCada(destino::definir));
+
+        assertThat(destino.tamanho()).isEqualTo(origem.tamanho());
+        origem.paraCada((numero, saldo) -> assertThat(destino.saldo(numero)).isEqualTo(saldo));
+    }
+}
@@ -0,0 +1,170 @@
+package com.vr.miniautorizador.motor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalShardTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve reconstruir os saldos a partir do journal")
+    void deveReconstruirSaldosDoJournal() throws Exception {
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.registrarEstado("6549873025634501", 50000);
+            journal.registrarSaldo("6549873025634501", 49000);
+            journal.registrarSaldo("6549873025634501", 48050);
+            journal.commit();
+        }
+
+        IndiceCartoes recuperados = recuperar(new HashSet<>());
+
+        assertThat(recuperados.saldo("6549873025634501")).isEqualTo(48050);
+    }
+
+    @Test
+    @DisplayName("Deve combinar o snapshot com os débitos e remoções feitos durante e após a sua gravação")
+    void deveCombinarSnapshotComSegmentosSeguintes() throws Exception {
+        IndiceCartoes cartoes = new IndiceCartoes(0);
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            for (int i = 0; i < 50_000; i++) {
+                String numero = String.format("%016d", i);
+                cartoes.inserir(numero, 50000, 0);
+                journal.registrarEstado(numero, 50000);
+            }
+            cartoes.inserir("cartao-textual", 1000, 0);
+            journal.registrarEstado("cartao-textual", 1000);
+            journal.commit();
+
+            CompletableFuture<Long> snapshot = journal.snapshot(cartoes, 0);
+            assertThat(journal.registrosDesdeSnapshot()).isZero();
+            // Débitos da thread escritora enquanto o snapshot percorre o índice
+            for (int i = 0; i < 50_000; i += 7) {
+                String numero = String.format("%016d", i);
+                int posicao = cartoes.localizar(numero);
+                cartoes.atualizarSaldo(posicao, cartoes.saldo(posicao) - i % 100);
+                journal.registrarSaldo(numero, cartoes.saldo(posicao));
+            }
+            cartoes.remover(String.format("%016d", 3));
+            journal.registrarRemocao(String.format("%016d", 3));
+            journal.registrarEstado("5555666677778888", 50000);
+            cartoes.inserir("5555666677778888", 50000, 0);
+            journal.commit();
+            assertThat(snapshot.join()).isBetween(50_000L, 50_002L);
+        }
+
+        Set<String> alterados = new HashSet<>();
+        IndiceCartoes recuperados = recuperar(alterados);
+
+        assertThat(recuperados.tamanho()).isEqualTo(cartoes.tamanho());
+        cartoes.paraCada((numero, saldo) -> assertThat(recuperados.saldo(numero)).as(numero).isEqualTo(saldo));
+        assertThat(recuperados.contem(String.format("%016d", 3))).isFalse();
+        // Os dois segmentos ainda existem; os cartões de ambos podem estar atrás no banco
+        assertThat(alterados).hasSize(50_002);
+    }
+
+    @Test
+    @DisplayName("Deve apagar os segmentos contidos no snapshot só após uma nova sincronização com o banco")
+    void deveApagarSegmentosAposSincronizacao() throws Exception {
+        IndiceCartoes cartoes = new IndiceCartoes(0);
+        cartoes.inserir("1111222233334444", 40000, 0);
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.registrarEstado("1111222233334444", 40000);
+            journal.commit();
+            journal.snapshot(cartoes, 7).join();
+
+            journal.descartarSegmentos(7);
+            assertThat(diretorio.resolve("journal-0-0.log")).exists();
+
+            journal.descartarSegmentos(8);
+            assertThat(diretorio.resolve("journal-0-0.log")).doesNotExist();
+            assertThat(diretorio.resolve("journal-0-1.log")).exists();
+        }
+
+        Set<String> alterados = new HashSet<>();
+        assertThat(recuperar(alterados).saldo("1111222233334444")).isEqualTo(40000);
+        assertThat(alterados).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve descartar um registro incompleto no fim do journal")
+    void deveDescartarRegistroIncompleto() throws Exception {
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.registrarEstado("6549873025634501", 50000);
+            journal.commit();
+        }
+        Path arquivo = diretorio.resolve("journal-0-0.log");
+        long tamanhoValido = Files.size(arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.APPEND)) {
+            canal.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        IndiceCartoes recuperados = recuperar(new HashSet<>());
+
+        assertThat(recuperados.saldo("6549873025634501")).isEqualTo(50000);
+        assertThat(Files.size(arquivo)).isEqualTo(tamanhoValido);
+    }
+
+    @Test
+    @DisplayName("Deve interromper a recuperação em um registro íntegro de formato desconhecido")
+    void deveRecusarRegistroDeFormatoDesconhecido() throws Exception {
+        byte[] numero = "6549873025634501".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(Byte.BYTES * 3 + numero.length + Long.BYTES)
+                .put((byte) 1).put((byte) numero.length).put(numero).put((byte) 2).putLong(50000).flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        try (FileChannel canal = FileChannel.open(diretorio.resolve("journal-0-0.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(Integer.BYTES * 2).putInt(payload.remaining()).putInt((int) crc.getValue()).flip());
+            canal.write(payload);
+        }
+
+        assertThatThrownBy(() -> recuperar(new HashSet<>()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("formato desconhecido");
+    }
+
+    @Test
+    @DisplayName("Deve recusar um journal gravado com outra quantidade de shards")
+    void deveRecusarOutraQuantidadeDeShards() throws Exception {
+        JournalShard.conferirQuantidadeShards(diretorio, 4);
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.registrarEstado("6549873025634501", 50000);
+            journal.commit();
+        }
+
+        JournalShard.conferirQuantidadeShards(diretorio, 4);
+        assertThatThrownBy(() -> JournalShard.conferirQuantidadeShards(diretorio, 8))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("autorizador.memoria.shards=4");
+
+        Files.delete(diretorio.resolve("shards"));
+        assertThatThrownBy(() -> JournalShard.conferirQuantidadeShards(diretorio, 4))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private IndiceCartoes recuperar(Set<String> alterados) throws Exception {
+        IndiceCartoes cartoes = new IndiceCartoes(0);
+        try (JournalShard journal = new JournalShard(diretorio, 0)) {
+            journal.recuperar(cartoes, alterados::add);
+        }
+        return cartoes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.vr.miniautorizador.seguranca;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerificadorSenhaTest {
+
+    private static final String NUMERO_CARTAO = "6549873025634501";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Deve armazenar a senha com sal e conferi-la pelo cache após a primeira vez")
+    void deveConferirSenhaPeloCache() {
+        VerificadorSenha verificador = new VerificadorSenha(propriedades(), registry);
+
+        String armazenada = verificador.codificar("1234");
+        assertThat(armazenada).startsWith("pbkdf2$1000$").doesNotContain("1234$");
+        assertThat(verificador.codificar("1234")).isNotEqualTo(armazenada);
+
+        assertThat(verificador.senhaArmazenadaConferida(NUMERO_CARTAO, "1234")).isEmpty();
+        assertThat(verificador.confere(NUMERO_CARTAO, "1234", armazenada)).isTrue();
+        assertThat(verificador.senhaArmazenadaConferida(NUMERO_CARTAO, "1234")).contains(armazenada);
+        assertThat(verificador.senhaArmazenadaConferida(NUMERO_CARTAO, "4321")).isEmpty();
+
+        assertThat(verificador.confere(NUMERO_CARTAO, "1234", armazenada)).isTrue();
+        assertThat(verificador.confere(NUMERO_CARTAO, "4321", armazenada)).isFalse();
+        assertThat(registry.get("cache.gets").tag("cache", "senhas").tag("result", "hit").functionCounter().count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar a senha conferida quando o hash armazenado mudar ou o cartão for invalidado")
+    void deveIgnorarSenhaConferidaDeOutroHash() {
+        VerificadorSenha verificador = new VerificadorSenha(propriedades(), registry);
+        String anterior = verificador.codificar("1234");
+        String atual = verificador.codificar("9999");
+
+        assertThat(verificador.confere(NUMERO_CARTAO, "1234", anterior)).isTrue();
+        assertThat(verificador.confere(NUMERO_CARTAO, "1234", atual)).isFalse();
+        assertThat(verificador.confere(NUMERO_CARTAO, "9999", atual)).isTrue();
+
+        verificador.invalidar(NUMERO_CARTAO);
+        assertThat(verificador.senhaArmazenadaConferida(NUMERO_CARTAO, "9999")).isEmpty();
+        // Senhas gravadas antes do hash continuam válidas
+        assertThat(verificador.confere(NUMERO_CARTAO, "1234", "1234")).isTrue();
+    }
+
+    private static AutorizadorProperties propriedades() {
+        AutorizadorProperties properties = new AutorizadorProperties();
+        properties.getSenha().setIteracoes(1000);
+        return properties;
+    }
+}
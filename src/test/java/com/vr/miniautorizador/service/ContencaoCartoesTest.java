@@ -0,0 +1,58 @@
+package com.vr.miniautorizador.service;
+
+import com.vr.miniautorizador.config.AutorizadorProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContencaoCartoesTest {
+
+    private final ContencaoCartoes contencao = new ContencaoCartoes(new AutorizadorProperties.Adaptativo());
+
+    @Test
+    @DisplayName("Deve monitorar apenas cartões com conflito e promover só com conflitos frequentes")
+    void devePromoverComConflitosFrequentes() {
+        assertThat(contencao.estado("6549873025634501")).isNull();
+
+        ContencaoCartoes.Estado estado = contencao.registrarConflito("6549873025634501");
+        assertThat(estado.promovido()).isFalse();
+        // Um conflito isolado: seis débitos sem disputa antes do próximo
+        for (int i = 0; i < 6; i++) {
+            estado.observar(false);
+        }
+        contencao.registrarConflito("6549873025634501");
+        assertThat(estado.promovido()).isFalse();
+
+        contencao.registrarConflito("6549873025634501");
+        assertThat(estado.promovido()).isTrue();
+        assertThat(contencao.estado("6549873025634501")).isSameAs(estado);
+        assertThat(contencao.promovidos()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve rebaixar o cartão promovido quando as transações com lock deixam de ser concorrentes")
+    void deveRebaixarQuandoDisputaCessa() {
+        ContencaoCartoes.Estado estado = contencao.registrarConflito("6549873025634501");
+        contencao.registrarConflito("6549873025634501");
+        assertThat(estado.promovido()).isTrue();
+
+        // Segunda transação com lock enquanto a primeira está em andamento
+        boolean primeira = estado.entrar();
+        boolean segunda = estado.entrar();
+        assertThat(primeira).isFalse();
+        assertThat(segunda).isTrue();
+        estado.sair(segunda);
+        estado.sair(primeira);
+        assertThat(estado.promovido()).isTrue();
+
+        int transacoes = 0;
+        while (estado.promovido()) {
+            estado.sair(estado.entrar());
+            transacoes++;
+        }
+        assertThat(transacoes).isBetween(5, 15);
+        assertThat(estado.taxa()).isLessThan(0.05);
+        assertThat(contencao.promovidos()).isZero();
+    }
+}